@@ -0,0 +1,92 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.web.servlet.context.ServletWebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import ru.yandex.practicum.filmorate.FilmorateApplication;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.StringJoiner;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Время загрузки {@code likes} лайков через HTTP: по одному запросу на лайк и одним пакетным запросом.
+ * Приложение поднимается на случайном порту, журнал HTTP-запросов отключён, чтобы мерить сами вызовы.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BatchEndpointBenchmark {
+    private static final int FILMS = 100;
+
+    @Param({"1000"})
+    int likes;
+
+    private ConfigurableApplicationContext context;
+    private HttpClient client;
+    private String baseUrl;
+    private String batchBody;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        context = SpringApplication.run(FilmorateApplication.class,
+                "--server.port=0", "--logging.level.org.zalando.logbook=OFF", "--logging.level.root=WARN");
+        int port = ((ServletWebServerApplicationContext) context).getWebServer().getPort();
+        baseUrl = "http://localhost:" + port;
+        client = HttpClient.newHttpClient();
+
+        StringJoiner users = new StringJoiner(",", "[", "]");
+        for (int i = 0; i < likes; i++) {
+            users.add("{\"email\":\"user%d@yandex.ru\",\"login\":\"user%d\",\"birthday\":\"1990-01-01\"}"
+                    .formatted(i, i));
+        }
+        send("POST", "/users/batch", users.toString());
+        StringJoiner films = new StringJoiner(",", "[", "]");
+        for (int i = 0; i < FILMS; i++) {
+            films.add("{\"name\":\"Film %d\",\"description\":\"d\",\"releaseDate\":\"2000-01-01\",\"duration\":90}"
+                    .formatted(i));
+        }
+        send("POST", "/films/batch", films.toString());
+
+        StringJoiner batch = new StringJoiner(",", "[", "]");
+        for (int i = 0; i < likes; i++) {
+            batch.add("{\"filmId\":%d,\"userId\":%d}".formatted(1 + i % FILMS, 1 + i));
+        }
+        batchBody = batch.toString();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public int singleRequests() throws Exception {
+        int status = 0;
+        for (int i = 0; i < likes; i++) {
+            status = send("PUT", "/films/%d/like/%d".formatted(1 + i % FILMS, 1 + i), "");
+        }
+        return status;
+    }
+
+    @Benchmark
+    public int batchRequest() throws Exception {
+        return send("PUT", "/films/likes/batch", batchBody);
+    }
+
+    private int send(String method, String path, String body) throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + path))
+                .header("Content-Type", "application/json")
+                .method(method, HttpRequest.BodyPublishers.ofString(body))
+                .build();
+        return client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+    }
+}
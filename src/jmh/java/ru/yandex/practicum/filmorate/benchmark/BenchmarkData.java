@@ -0,0 +1,103 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.film.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.persistence.MutationJournal;
+import ru.yandex.practicum.filmorate.storage.user.InMemoryUserStorage;
+import ru.yandex.practicum.filmorate.utils.IdGeneratorFactory;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/**
+ * Генерация наборов данных для бенчмарков. Перекос задаётся показателем распределения Ципфа:
+ * 0 — равномерное распределение, 1.0 и выше — «звёзды» получают основную долю лайков и друзей.
+ */
+final class BenchmarkData {
+    static final long SEED = 42;
+
+    private BenchmarkData() {
+    }
+
+    static IdGeneratorFactory idGeneratorFactory() {
+        return new IdGeneratorFactory("sequence", 0);
+    }
+
+    static InMemoryUserStorage users(int count) {
+        InMemoryUserStorage storage = new InMemoryUserStorage(idGeneratorFactory(), MutationJournal.DISABLED);
+        for (int i = 0; i < count; i++) {
+            storage.createUser(user(i));
+        }
+        return storage;
+    }
+
+    static InMemoryFilmStorage films(int count) {
+        return films(count, 1);
+    }
+
+    static InMemoryFilmStorage films(int count, int partitions) {
+        InMemoryFilmStorage storage =
+                new InMemoryFilmStorage(idGeneratorFactory(), MutationJournal.DISABLED, partitions);
+        for (int i = 0; i < count; i++) {
+            storage.createFilm(film(i));
+        }
+        return storage;
+    }
+
+    static User user(int i) {
+        return User.builder()
+                .email("user" + i + "@yandex.ru")
+                .login("user" + i)
+                .name("User " + i)
+                .birthday(LocalDate.of(1990, 1, 1).plusDays(i % 10_000))
+                .build();
+    }
+
+    static Film film(int i) {
+        return Film.builder()
+                .name("Film " + i)
+                .description("Description of film " + i)
+                .releaseDate(LocalDate.of(2000, 1, 1).plusDays(i % 10_000))
+                .duration(90 + i % 60)
+                .build();
+    }
+
+    /**
+     * Выборка рангов 1..n по закону Ципфа с показателем {@code exponent} через обратную функцию распределения.
+     */
+    static final class Zipf {
+        private final double[] cumulative;
+        private final SplittableRandom random;
+
+        Zipf(int n, double exponent, long seed) {
+            cumulative = new double[n];
+            double sum = 0;
+            for (int rank = 1; rank <= n; rank++) {
+                sum += 1.0 / Math.pow(rank, exponent);
+                cumulative[rank - 1] = sum;
+            }
+            for (int i = 0; i < n; i++) {
+                cumulative[i] /= sum;
+            }
+            random = new SplittableRandom(seed);
+        }
+
+        /**
+         * Ранг от 1 до n; ранг 1 — самый «популярный».
+         */
+        int next() {
+            return rank(random.nextDouble());
+        }
+
+        /**
+         * Ранг для равномерного {@code uniform} из [0, 1): так выборку можно делать из нескольких потоков,
+         * каждый со своим генератором.
+         */
+        int rank(double uniform) {
+            int index = Arrays.binarySearch(cumulative, uniform);
+            return Math.min((index >= 0 ? index : -index - 1) + 1, cumulative.length);
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.storage.film.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.user.InMemoryUserStorage;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FilmStorageBenchmark {
+    @Param({"10000", "100000"})
+    int films;
+
+    @Param({"0.0", "1.1"})
+    double skew;
+
+    @Param({"10"})
+    long count;
+
+    private InMemoryUserStorage userStorage;
+    private InMemoryFilmStorage filmStorage;
+    private int users;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        users = Math.max(1_000, films / 10);
+        userStorage = BenchmarkData.users(users);
+        filmStorage = BenchmarkData.films(films);
+        BenchmarkData.Zipf filmRanks = new BenchmarkData.Zipf(films, skew, BenchmarkData.SEED);
+        SplittableRandom random = new SplittableRandom(BenchmarkData.SEED);
+        for (int i = 0; i < films * 5; i++) {
+            filmStorage.addLike((long) filmRanks.next(), 1L + random.nextInt(users));
+        }
+    }
+
+    @Benchmark
+    public List<Film> popularFilms() {
+        return filmStorage.getPopularFilms(count);
+    }
+
+    /**
+     * Прежняя реализация /films/popular — полная сортировка каталога — для сравнения с индексом.
+     */
+    @Benchmark
+    public List<Film> popularFilmsFullSort() {
+        return filmStorage.getAll().stream()
+                .filter(film -> !film.getLikes().isEmpty())
+                .sorted(Comparator.comparing(film -> -film.getLikes().size()))
+                .limit(count)
+                .toList();
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void addAndRemoveLike(ThreadState state) {
+        long filmId = state.filmRanks.next();
+        long userId = 1L + state.random.nextInt(users);
+        filmStorage.addLike(filmId, userId);
+        filmStorage.removeLike(filmId, userId);
+    }
+
+    @State(Scope.Thread)
+    public static class ThreadState {
+        BenchmarkData.Zipf filmRanks;
+        SplittableRandom random;
+
+        @Setup(Level.Trial)
+        public void setUp(FilmStorageBenchmark benchmark) {
+            long seed = Thread.currentThread().threadId();
+            filmRanks = new BenchmarkData.Zipf(benchmark.films, benchmark.skew, seed);
+            random = new SplittableRandom(seed);
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import ru.yandex.practicum.filmorate.storage.film.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.persistence.MutationJournal;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Все потоки ставят и снимают лайки одного фильма — «вирусному». С {@code hotContention=0} множество лайков
+ * остаётся одним {@link ru.yandex.practicum.filmorate.utils.LongHashSet} под одной блокировкой,
+ * с порогом по умолчанию фильм после первых же ожиданий переводится в горячие: лайки разбиваются
+ * на шарды, а пересчёт популярности выполняет один поток за раз.
+ *
+ * <p>Лайки ставятся и снимаются поровну от {@value #USERS} пользователей: {@code addLike} возвращает копию
+ * фильма со всеми лайками, и с растущим множеством замер мерил бы копирование, а не запись. Число потоков
+ * задаётся аргументом JMH {@code -t}, масштабирование снимается прогонами с {@code -t 1} … {@code -t 32}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class HotFilmLikeBenchmark {
+    private static final int FILMS = 1_000;
+    private static final long HOT_FILM = 1L;
+    private static final int USERS = 1_000;
+
+    @Param({"0", "128"})
+    int hotContention;
+
+    private InMemoryFilmStorage filmStorage;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        filmStorage = new InMemoryFilmStorage(BenchmarkData.idGeneratorFactory(), MutationJournal.DISABLED, 1,
+                hotContention);
+        for (int i = 0; i < FILMS; i++) {
+            filmStorage.createFilm(BenchmarkData.film(i));
+        }
+        SplittableRandom random = new SplittableRandom(BenchmarkData.SEED);
+        for (int i = 0; i < 100_000; i++) {
+            filmStorage.addLike(2L + random.nextInt(FILMS - 1), 1L + random.nextInt(USERS));
+        }
+    }
+
+    @Benchmark
+    public void likeOrUnlike(ThreadState state) {
+        long userId = 1L + state.random.nextInt(USERS);
+        if (state.random.nextBoolean()) {
+            filmStorage.addLike(HOT_FILM, userId);
+        } else {
+            filmStorage.removeLike(HOT_FILM, userId);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class ThreadState {
+        SplittableRandom random;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            random = new SplittableRandom(Thread.currentThread().threadId());
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.web.servlet.context.ServletWebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import ru.yandex.practicum.filmorate.FilmorateApplication;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.SplittableRandom;
+import java.util.StringJoiner;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Задержка запросов с журналом HTTP по умолчанию (каждый запрос и ответ целиком, синхронно) и в профиле
+ * {@code production} (выборка, обрезка тел, запись в отдельном потоке). Журнал пишется в файл
+ * {@code target/benchmark-http.log}, а не в консоль, чтобы не смешиваться с выводом JMH.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(8)
+public class HttpLoggingBenchmark {
+    private static final int FILMS = 1_000;
+    private static final int USERS = 1_000;
+
+    @Param({"default", "production"})
+    String profile;
+
+    private ConfigurableApplicationContext context;
+    private HttpClient client;
+    private String baseUrl;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        context = SpringApplication.run(FilmorateApplication.class,
+                "--server.port=0", "--spring.profiles.active=" + profile,
+                "--logging.file.name=target/benchmark-http.log", "--logging.pattern.console=");
+        int port = ((ServletWebServerApplicationContext) context).getWebServer().getPort();
+        baseUrl = "http://localhost:" + port;
+        client = HttpClient.newHttpClient();
+
+        StringJoiner users = new StringJoiner(",", "[", "]");
+        for (int i = 0; i < USERS; i++) {
+            users.add("{\"email\":\"user%d@yandex.ru\",\"login\":\"user%d\",\"birthday\":\"1990-01-01\"}"
+                    .formatted(i, i));
+        }
+        send("POST", "/users/batch", users.toString());
+        StringJoiner films = new StringJoiner(",", "[", "]");
+        for (int i = 0; i < FILMS; i++) {
+            films.add("{\"name\":\"Film %d\",\"description\":\"d\",\"releaseDate\":\"2000-01-01\",\"duration\":90}"
+                    .formatted(i));
+        }
+        send("POST", "/films/batch", films.toString());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public int like(ThreadState state) throws Exception {
+        return send("PUT", "/films/%d/like/%d".formatted(
+                1 + state.random.nextInt(FILMS), 1 + state.random.nextInt(USERS)), "");
+    }
+
+    @Benchmark
+    public int filmsPage(ThreadState state) throws Exception {
+        return send("GET", "/films?limit=10&after=" + state.random.nextInt(FILMS - 10), "");
+    }
+
+    @Benchmark
+    public int popular() throws Exception {
+        return send("GET", "/films/popular?count=10", "");
+    }
+
+    private int send(String method, String path, String body) throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + path))
+                .header("Content-Type", "application/json")
+                .method(method, HttpRequest.BodyPublishers.ofString(body))
+                .build();
+        return client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+    }
+
+    @State(Scope.Thread)
+    public static class ThreadState {
+        SplittableRandom random;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            random = new SplittableRandom(Thread.currentThread().threadId());
+        }
+    }
+}
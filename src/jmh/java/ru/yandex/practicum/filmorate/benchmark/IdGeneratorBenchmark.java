@@ -0,0 +1,78 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import ru.yandex.practicum.filmorate.storage.film.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.persistence.MutationJournal;
+import ru.yandex.practicum.filmorate.utils.IdGenerator;
+import ru.yandex.practicum.filmorate.utils.SequenceIdGenerator;
+import ru.yandex.practicum.filmorate.utils.SnowflakeIdGenerator;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class IdGeneratorBenchmark {
+    private final IdGenerator sequence = new SequenceIdGenerator();
+    private final IdGenerator snowflake = new SnowflakeIdGenerator(1);
+    private final Map<Long, Object> existing = new HashMap<>();
+
+    @Param({"10000"})
+    int existingEntities;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        for (long id = 1; id <= existingEntities; id++) {
+            existing.put(id, Boolean.TRUE);
+        }
+    }
+
+    @Benchmark
+    @Threads(4)
+    public long sequenceNextId() {
+        return sequence.nextId();
+    }
+
+    @Benchmark
+    @Threads(4)
+    public long snowflakeNextId() {
+        return snowflake.nextId();
+    }
+
+    @Benchmark
+    public long[] sequenceReserveBlock() {
+        return sequence.reserve(1_000);
+    }
+
+    /**
+     * Прежний UtilMethods.getNextId: поиск максимального ключа на каждое создание.
+     */
+    @Benchmark
+    public long legacyMaxKeyScan() {
+        return existing.keySet().stream()
+                .mapToLong(id -> id)
+                .max()
+                .orElse(0) + 1;
+    }
+
+    /**
+     * Создание миллиона фильмов подряд в пустом хранилище.
+     */
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Warmup(iterations = 1)
+    @Measurement(iterations = 3)
+    public InMemoryFilmStorage createMillionFilms() {
+        InMemoryFilmStorage storage = new InMemoryFilmStorage(BenchmarkData.idGeneratorFactory(), MutationJournal.DISABLED);
+        for (int i = 0; i < 1_000_000; i++) {
+            storage.createFilm(BenchmarkData.film(i));
+        }
+        return storage;
+    }
+}
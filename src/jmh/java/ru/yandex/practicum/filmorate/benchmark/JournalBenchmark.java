@@ -0,0 +1,76 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import ru.yandex.practicum.filmorate.storage.film.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.persistence.DurabilityMode;
+import ru.yandex.practicum.filmorate.storage.persistence.FileMutationJournal;
+import ru.yandex.practicum.filmorate.storage.user.InMemoryUserStorage;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Пропускная способность лайков с журналом изменений в каждом режиме надёжности.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(8)
+public class JournalBenchmark {
+    private static final int FILMS = 1_000;
+    private static final int USERS = 10_000;
+
+    @Param({"SYNC", "BATCH", "ASYNC"})
+    DurabilityMode durability;
+
+    private Path directory;
+    private FileMutationJournal journal;
+    private InMemoryFilmStorage filmStorage;
+    private InMemoryUserStorage userStorage;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("journal-benchmark");
+        journal = new FileMutationJournal(directory, durability, Duration.ofMillis(200));
+        userStorage = new InMemoryUserStorage(BenchmarkData.idGeneratorFactory(), journal);
+        filmStorage = new InMemoryFilmStorage(BenchmarkData.idGeneratorFactory(), journal);
+        for (int i = 0; i < USERS; i++) {
+            userStorage.createUser(BenchmarkData.user(i));
+        }
+        for (int i = 0; i < FILMS; i++) {
+            filmStorage.createFilm(BenchmarkData.film(i));
+        }
+        journal.start(1);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        journal.close();
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path path : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.deleteIfExists(path);
+            }
+        }
+    }
+
+    @Benchmark
+    public void like(ThreadState state) {
+        long filmId = 1L + state.random.nextInt(FILMS);
+        long userId = 1L + state.random.nextInt(USERS);
+        filmStorage.addLike(filmId, userId);
+    }
+
+    @State(Scope.Thread)
+    public static class ThreadState {
+        final SplittableRandom random = new SplittableRandom(Thread.currentThread().threadId());
+    }
+}
@@ -0,0 +1,68 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import ru.yandex.practicum.filmorate.service.LikeIngestionPipeline;
+import ru.yandex.practicum.filmorate.storage.film.InMemoryFilmStorage;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Лайки с сильным перекосом (почти все — нескольким «вирусным» фильмам): синхронная запись
+ * в потоке запроса против асинхронной очереди с пачками и схлопыванием.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(8)
+public class LikeIngestionBenchmark {
+    private static final int FILMS = 10_000;
+    private static final int USERS = 100_000;
+
+    @Param({"1.2"})
+    double skew;
+
+    private InMemoryFilmStorage filmStorage;
+    private LikeIngestionPipeline pipeline;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        filmStorage = BenchmarkData.films(FILMS);
+        pipeline = new LikeIngestionPipeline(filmStorage, 4, 65_536, 1024);
+        pipeline.start();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws InterruptedException {
+        pipeline.stop();
+    }
+
+    @Benchmark
+    public void syncLike(ThreadState state) {
+        filmStorage.addLike((long) state.filmRanks.next(), 1L + state.random.nextInt(USERS));
+    }
+
+    /**
+     * Поток ждёт применения своего лайка, как при read-your-writes.
+     */
+    @Benchmark
+    public Object pipelineLikeAwaited(ThreadState state) {
+        return pipeline.submit(state.filmRanks.next(), 1L + state.random.nextInt(USERS), true).join();
+    }
+
+    @State(Scope.Thread)
+    public static class ThreadState {
+        BenchmarkData.Zipf filmRanks;
+        SplittableRandom random;
+
+        @Setup(Level.Trial)
+        public void setUp(LikeIngestionBenchmark benchmark) {
+            long seed = Thread.currentThread().threadId();
+            filmRanks = new BenchmarkData.Zipf(FILMS, benchmark.skew, seed);
+            random = new SplittableRandom(seed);
+        }
+    }
+}
@@ -0,0 +1,202 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import ru.yandex.practicum.filmorate.model.FilmLike;
+import ru.yandex.practicum.filmorate.model.Friendship;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.function.IntFunction;
+import java.util.function.Supplier;
+
+/**
+ * Данные нагрузочного прогона со степенными распределениями, как в продакшене: лайки фильмам
+ * распределены по закону Ципфа (немного фильмов собирают большую часть лайков), а у дружбы степенное
+ * распределение числа друзей: один конец связи выбирается по Ципфу, другой — равномерно, поэтому
+ * у немногих «звёзд» друзей на порядки больше, чем у остальных.
+ *
+ * <p>Ранг 1 — самый популярный фильм и самый известный пользователь. Ранг совпадает с порядком создания:
+ * фильмы и пользователи создаются пачками по очереди, и их id растут вместе с рангом. Поэтому уже
+ * загруженный набор восстанавливается постраничным чтением id, без повторной загрузки.
+ */
+final class LoadDataset {
+    private static final int BATCH = 1000;
+    // пачки лайков и дружбы отправляются параллельно, но не больше стольких сразу
+    private static final int PARALLEL_BATCHES = 8;
+    private static final Duration TIMEOUT = Duration.ofMinutes(2);
+    private static final ObjectMapper MAPPER = new ObjectMapper().findAndRegisterModules()
+            .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+
+    private final long[] userIds;
+    private final long[] filmIds;
+    private final BenchmarkData.Zipf userRanks;
+    private final BenchmarkData.Zipf filmRanks;
+
+    private LoadDataset(long[] userIds, long[] filmIds, double exponent) {
+        this.userIds = userIds;
+        this.filmIds = filmIds;
+        this.userRanks = new BenchmarkData.Zipf(userIds.length, exponent, BenchmarkData.SEED);
+        this.filmRanks = new BenchmarkData.Zipf(filmIds.length, exponent, BenchmarkData.SEED);
+    }
+
+    /**
+     * Создаёт пользователей и фильмы через пакетные эндпоинты, затем ставит {@code likes} лайков
+     * и {@code friendships} дружеских связей.
+     */
+    static LoadDataset seed(HttpClient client, String baseUrl, int users, int films, long likes,
+                            long friendships, double exponent) throws Exception {
+        long started = System.nanoTime();
+        long[] userIds = create(client, baseUrl + "/users/batch", users, BenchmarkData::user);
+        long[] filmIds = create(client, baseUrl + "/films/batch", films, BenchmarkData::film);
+        LoadDataset dataset = new LoadDataset(userIds, filmIds, exponent);
+        System.out.printf("Создано пользователей: %d, фильмов: %d%n", users, films);
+
+        SplittableRandom likeRandom = new SplittableRandom(BenchmarkData.SEED);
+        send(client, baseUrl + "/films/likes/batch", likes, () -> new FilmLike(
+                dataset.popularFilm(likeRandom.nextDouble()), dataset.anyUser(likeRandom.nextDouble())));
+        System.out.printf("Поставлено лайков: %d%n", likes);
+
+        SplittableRandom friendRandom = new SplittableRandom(BenchmarkData.SEED + 1);
+        send(client, baseUrl + "/users/friends/batch", friendships, () -> {
+            long celebrity = dataset.celebrity(friendRandom.nextDouble());
+            long other = dataset.anyUser(friendRandom.nextDouble());
+            // петля сделала бы пользователя другом самому себе; вместо неё берётся другая связь
+            return new Friendship(celebrity, other != celebrity ? other : dataset.anyUser(friendRandom.nextDouble()));
+        });
+        System.out.printf("Добавлено дружеских связей: %d, загрузка заняла %d с%n",
+                friendships, Duration.ofNanos(System.nanoTime() - started).toSeconds());
+        return dataset;
+    }
+
+    /**
+     * Набор, уже загруженный в приложение: id читаются страницами по возрастанию, то есть по рангу.
+     */
+    static LoadDataset discover(HttpClient client, String baseUrl, double exponent) throws Exception {
+        LoadDataset dataset = new LoadDataset(ids(client, baseUrl + "/users"), ids(client, baseUrl + "/films"),
+                exponent);
+        System.out.printf("Найдено пользователей: %d, фильмов: %d%n",
+                dataset.userIds.length, dataset.filmIds.length);
+        return dataset;
+    }
+
+    long popularFilm(double uniform) {
+        return filmIds[filmRanks.rank(uniform) - 1];
+    }
+
+    long hottestFilm() {
+        return filmIds[0];
+    }
+
+    long celebrity(double uniform) {
+        return userIds[userRanks.rank(uniform) - 1];
+    }
+
+    long anyUser(double uniform) {
+        return userIds[(int) (uniform * userIds.length)];
+    }
+
+    /**
+     * Пачки создания отправляются по одной: id следующей пачки должны быть больше id предыдущей.
+     */
+    private static long[] create(HttpClient client, String url, int count, IntFunction<Object> item)
+            throws Exception {
+        long[] ids = new long[count];
+        for (int from = 0; from < count; from += BATCH) {
+            List<Object> batch = new ArrayList<>(BATCH);
+            for (int i = from; i < Math.min(count, from + BATCH); i++) {
+                batch.add(item.apply(i));
+            }
+            JsonNode results = MAPPER.readTree(call(client, HttpRequest.newBuilder(URI.create(url))
+                    .POST(HttpRequest.BodyPublishers.ofByteArray(MAPPER.writeValueAsBytes(batch)))));
+            for (JsonNode result : results) {
+                if (!"CREATED".equals(result.path("status").asText())) {
+                    throw new IllegalStateException("Элемент пачки не создан: " + result);
+                }
+                ids[from + result.get("index").asInt()] = result.get("id").asLong();
+            }
+        }
+        return ids;
+    }
+
+    /**
+     * Элементы генерируются в вызывающем потоке, по порядку, — так набор детерминирован; отправка
+     * пачек идёт параллельно.
+     */
+    private static void send(HttpClient client, String url, long count, Supplier<Object> item) throws Exception {
+        Semaphore inFlight = new Semaphore(PARALLEL_BATCHES);
+        List<Future<?>> sent = new ArrayList<>();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (long from = 0; from < count; from += BATCH) {
+                List<Object> batch = new ArrayList<>(BATCH);
+                for (long i = from; i < Math.min(count, from + BATCH); i++) {
+                    batch.add(item.get());
+                }
+                byte[] body = MAPPER.writeValueAsBytes(batch);
+                inFlight.acquire();
+                sent.add(executor.submit(() -> {
+                    try {
+                        return call(client, HttpRequest.newBuilder(URI.create(url))
+                                .PUT(HttpRequest.BodyPublishers.ofByteArray(body)));
+                    } finally {
+                        inFlight.release();
+                    }
+                }));
+            }
+            for (Future<?> future : sent) {
+                future.get();
+            }
+        }
+    }
+
+    private static byte[] call(HttpClient client, HttpRequest.Builder request) throws IOException,
+            InterruptedException {
+        HttpResponse<byte[]> response = client.send(request
+                .header("Content-Type", "application/json")
+                .timeout(TIMEOUT)
+                .build(), HttpResponse.BodyHandlers.ofByteArray());
+        if (response.statusCode() != 200) {
+            throw new IllegalStateException(response.uri() + " ответил " + response.statusCode());
+        }
+        return response.body();
+    }
+
+    private static long[] ids(HttpClient client, String url) throws Exception {
+        long[] ids = new long[BATCH];
+        int count = 0;
+        String cursor = "0";
+        while (cursor != null) {
+            HttpResponse<byte[]> response = client.send(HttpRequest.newBuilder(
+                            URI.create(url + "?limit=" + BATCH + "&after=" + cursor))
+                    .timeout(TIMEOUT)
+                    .build(), HttpResponse.BodyHandlers.ofByteArray());
+            if (response.statusCode() != 200) {
+                throw new IllegalStateException(response.uri() + " ответил " + response.statusCode());
+            }
+            for (JsonNode item : MAPPER.readTree(response.body())) {
+                if (count == ids.length) {
+                    ids = Arrays.copyOf(ids, count * 2);
+                }
+                ids[count++] = item.get("id").asLong();
+            }
+            cursor = response.headers().firstValue("X-Next-Cursor").orElse(null);
+        }
+        if (count == 0) {
+            throw new IllegalStateException(url + ": данных нет, запустите прогон с --seed true");
+        }
+        return Arrays.copyOf(ids, count);
+    }
+}
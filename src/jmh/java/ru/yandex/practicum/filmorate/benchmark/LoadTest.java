@@ -0,0 +1,236 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Нагрузочный прогон запущенного приложения: для каждого уровня параллелизма держит заданное число
+ * одновременных запросов и печатает пропускную способность, перцентили задержки и долю ошибок.
+ * Клиент работает на виртуальных потоках, поэтому сам не ограничивает параллелизм.
+ *
+ * <p>Наибольший уровень, на котором нет ошибок и p99 укладывается в {@code --slo-ms}, выводится как
+ * максимальный выдерживаемый параллелизм. Для сравнения режимов приложение запускается с профилем
+ * {@code virtual-threads} и без него.
+ *
+ * <p>Сценарий {@code path} обстреливает один адрес {@code --path}. Остальные сценарии работают с набором
+ * {@link LoadDataset}: с {@code --seed true} он загружается в приложение, иначе читается из него.
+ * <ul>
+ *     <li>{@code popular} — популярные фильмы;</li>
+ *     <li>{@code like-storm} — лайки одному, самому популярному фильму от случайных пользователей;</li>
+ *     <li>{@code celebrity-friends} — списки друзей пользователей, выбранных по Ципфу, то есть в основном «звёзд»;</li>
+ *     <li>{@code common-friends} — общие друзья двух таких пользователей;</li>
+ *     <li>{@code mixed} — все четыре вперемешку, с отчётом по каждой операции.</li>
+ * </ul>
+ *
+ * <pre>
+ * --url http://localhost:8080  --scenario mixed  --concurrency 50,200,1000,4000  --requests 20000  --slo-ms 500
+ * --seed true  --users 1000000  --films 200000  --likes 5000000  --friendships 3000000  --zipf 1.1
+ * --scenario path  --path /films/popular?count=10
+ * </pre>
+ */
+public final class LoadTest {
+    private LoadTest() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = parse(args);
+        String baseUrl = options.getOrDefault("url", "http://localhost:8080");
+        String scenario = options.getOrDefault("scenario", options.containsKey("path") ? "path" : "mixed");
+        int[] levels = Arrays.stream(options.getOrDefault("concurrency", "50,200,1000,4000").split(","))
+                .mapToInt(Integer::parseInt)
+                .toArray();
+        int requests = Integer.parseInt(options.getOrDefault("requests", "20000"));
+        long sloNanos = Duration.ofMillis(Long.parseLong(options.getOrDefault("slo-ms", "500"))).toNanos();
+
+        HttpClient client = HttpClient.newBuilder()
+                .executor(Executors.newVirtualThreadPerTaskExecutor())
+                .connectTimeout(Duration.ofSeconds(10))
+                .build();
+        List<Operation> operations = operations(scenario, baseUrl, options, client);
+
+        System.out.printf("%s %s%n%20s %12s %10s %10s %10s %10s %10s %8s%n", baseUrl, scenario,
+                "operation", "concurrency", "req/s", "p50 ms", "p99 ms", "p999 ms", "max ms", "errors");
+        int sustained = 0;
+        for (int concurrency : levels) {
+            Samples samples = run(client, operations, concurrency, Math.max(requests, concurrency));
+            Result total = samples.result(-1);
+            print("all", concurrency, total);
+            if (operations.size() > 1) {
+                for (int op = 0; op < operations.size(); op++) {
+                    print(operations.get(op).name(), concurrency, samples.result(op));
+                }
+            }
+            if (total.errors() == 0 && total.percentile(0.99) <= sloNanos) {
+                sustained = concurrency;
+            }
+        }
+        System.out.printf("Максимальный параллелизм в пределах SLO: %d%n", sustained);
+    }
+
+    private static List<Operation> operations(String scenario, String baseUrl, Map<String, String> options,
+                                              HttpClient client) throws Exception {
+        if ("path".equals(scenario)) {
+            HttpRequest request = get(baseUrl + options.getOrDefault("path", "/films/popular?count=10"));
+            return List.of(new Operation("path", 1, () -> request));
+        }
+        double exponent = Double.parseDouble(options.getOrDefault("zipf", "1.1"));
+        LoadDataset data = Boolean.parseBoolean(options.getOrDefault("seed", "false"))
+                ? LoadDataset.seed(client, baseUrl,
+                        Integer.parseInt(options.getOrDefault("users", "1000000")),
+                        Integer.parseInt(options.getOrDefault("films", "200000")),
+                        Long.parseLong(options.getOrDefault("likes", "5000000")),
+                        Long.parseLong(options.getOrDefault("friendships", "3000000")),
+                        exponent)
+                : LoadDataset.discover(client, baseUrl, exponent);
+
+        HttpRequest popular = get(baseUrl + "/films/popular?count=10");
+        Operation popularFilms = new Operation("popular", 50, () -> popular);
+        Operation likeStorm = new Operation("like-storm", 10, () -> HttpRequest.newBuilder(URI.create(
+                        baseUrl + "/films/" + data.hottestFilm() + "/like/" + data.anyUser(random())))
+                .timeout(Duration.ofSeconds(30))
+                .PUT(HttpRequest.BodyPublishers.noBody())
+                .build());
+        Operation celebrityFriends = new Operation("celebrity-friends", 20,
+                () -> get(baseUrl + "/users/" + data.celebrity(random()) + "/friends"));
+        Operation commonFriends = new Operation("common-friends", 20, () -> get(baseUrl + "/users/"
+                + data.celebrity(random()) + "/friends/common/" + data.celebrity(random())));
+        return switch (scenario) {
+            case "popular" -> List.of(popularFilms);
+            case "like-storm" -> List.of(likeStorm);
+            case "celebrity-friends" -> List.of(celebrityFriends);
+            case "common-friends" -> List.of(commonFriends);
+            case "mixed" -> List.of(popularFilms, likeStorm, celebrityFriends, commonFriends);
+            default -> throw new IllegalArgumentException("Неизвестный сценарий: " + scenario);
+        };
+    }
+
+    /**
+     * Запускает {@code concurrency} потоков, которые вместе выполняют {@code requests} запросов подряд.
+     * Операция каждого запроса выбирается случайно с учётом веса.
+     */
+    private static Samples run(HttpClient client, List<Operation> operations, int concurrency, int requests)
+            throws Exception {
+        int[] weights = operations.stream().mapToInt(Operation::weight).toArray();
+        int totalWeight = Arrays.stream(weights).sum();
+        long[] latencies = new long[requests];
+        int[] kinds = new int[requests];
+        boolean[] failed = new boolean[requests];
+        AtomicInteger next = new AtomicInteger();
+        long started = System.nanoTime();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            List<Future<?>> workers = new ArrayList<>(concurrency);
+            for (int i = 0; i < concurrency; i++) {
+                workers.add(executor.submit(() -> {
+                    for (int index = next.getAndIncrement(); index < requests; index = next.getAndIncrement()) {
+                        int kind = pick(weights, ThreadLocalRandom.current().nextInt(totalWeight));
+                        HttpRequest request = operations.get(kind).request().get();
+                        long sent = System.nanoTime();
+                        try {
+                            HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+                            failed[index] = response.statusCode() >= 500;
+                        } catch (Exception e) {
+                            failed[index] = true;
+                        }
+                        latencies[index] = System.nanoTime() - sent;
+                        kinds[index] = kind;
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> worker : workers) {
+                worker.get();
+            }
+        }
+        return new Samples(latencies, kinds, failed, System.nanoTime() - started);
+    }
+
+    private static int pick(int[] weights, int point) {
+        int kind = 0;
+        while (point >= weights[kind]) {
+            point -= weights[kind++];
+        }
+        return kind;
+    }
+
+    private static HttpRequest get(String url) {
+        return HttpRequest.newBuilder(URI.create(url)).timeout(Duration.ofSeconds(30)).GET().build();
+    }
+
+    private static double random() {
+        return ThreadLocalRandom.current().nextDouble();
+    }
+
+    private static void print(String operation, int concurrency, Result result) {
+        if (result.sortedLatencies().length == 0) {
+            return;
+        }
+        System.out.printf("%20s %12d %10.0f %10.1f %10.1f %10.1f %10.1f %8d%n", operation, concurrency,
+                result.throughput(), millis(result.percentile(0.50)), millis(result.percentile(0.99)),
+                millis(result.percentile(0.999)), millis(result.percentile(1.0)), result.errors());
+    }
+
+    private static Map<String, String> parse(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            options.put(args[i].replaceFirst("^--", ""), args[i + 1]);
+        }
+        return options;
+    }
+
+    private static double millis(long nanos) {
+        return nanos / 1e6;
+    }
+
+    /**
+     * @param weight доля операции в смешанном сценарии относительно остальных
+     */
+    private record Operation(String name, int weight, Supplier<HttpRequest> request) {
+    }
+
+    /**
+     * Задержки, операции и ошибки по индексу запроса; {@code elapsed} — время всего прогона.
+     */
+    private record Samples(long[] latencies, int[] kinds, boolean[] failed, long elapsed) {
+        /**
+         * Итоги по операции {@code kind} или по всем запросам, если {@code kind} отрицателен. Пропускная
+         * способность операции считается за время всего прогона.
+         */
+        Result result(int kind) {
+            long[] selected = new long[latencies.length];
+            int count = 0;
+            int errors = 0;
+            for (int i = 0; i < latencies.length; i++) {
+                if (kind < 0 || kinds[i] == kind) {
+                    selected[count++] = latencies[i];
+                    if (failed[i]) {
+                        errors++;
+                    }
+                }
+            }
+            selected = Arrays.copyOf(selected, count);
+            Arrays.sort(selected);
+            return new Result(selected, errors, count * 1e9 / elapsed);
+        }
+    }
+
+    private record Result(long[] sortedLatencies, int errors, double throughput) {
+        long percentile(double quantile) {
+            int index = (int) Math.ceil(quantile * sortedLatencies.length) - 1;
+            return sortedLatencies[Math.max(0, Math.min(index, sortedLatencies.length - 1))];
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import io.micrometer.prometheus.PrometheusConfig;
+import io.micrometer.prometheus.PrometheusMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.aop.aspectj.annotation.AspectJProxyFactory;
+import ru.yandex.practicum.filmorate.metrics.MetricsAspect;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.film.InMemoryFilmStorage;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Стоимость таймеров {@link MetricsAspect}: одна и та же операция хранилища напрямую и через прокси
+ * с аспектом и реестром Prometheus.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MetricsOverheadBenchmark {
+    private static final int FILMS = 10_000;
+    private static final int USERS = 100_000;
+
+    private InMemoryFilmStorage plain;
+    private FilmStorage instrumented;
+    private final SplittableRandom random = new SplittableRandom(BenchmarkData.SEED);
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        plain = BenchmarkData.films(FILMS);
+        AspectJProxyFactory factory = new AspectJProxyFactory(plain);
+        factory.setProxyTargetClass(true);
+        factory.addAspect(new MetricsAspect(new PrometheusMeterRegistry(PrometheusConfig.DEFAULT)));
+        instrumented = factory.getProxy();
+    }
+
+    @Benchmark
+    public void addLikePlain() {
+        plain.addLike(1L + random.nextInt(FILMS), 1L + random.nextInt(USERS));
+    }
+
+    @Benchmark
+    public void addLikeInstrumented() {
+        instrumented.addLike(1L + random.nextInt(FILMS), 1L + random.nextInt(USERS));
+    }
+
+    @Benchmark
+    public Film getByIdPlain() {
+        return plain.getFilmById(1L + random.nextInt(FILMS));
+    }
+
+    @Benchmark
+    public Film getByIdInstrumented() {
+        return instrumented.getFilmById(1L + random.nextInt(FILMS));
+    }
+}
@@ -0,0 +1,86 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.film.OffHeapFilmStorage;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Хранилище фильмов в куче и вне кучи на одном каталоге. После загрузки печатается занятая куча
+ * после полной сборки и память вне кучи; паузы и объём сборок показывает {@code -prof gc}.
+ * На больших каталогах нужен {@code -XX:MaxDirectMemorySize} не меньше объёма записей.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx8g", "-XX:MaxDirectMemorySize=8g"})
+public class OffHeapFootprintBenchmark {
+    private static final int BATCH = 100_000;
+
+    @Param({"memory", "offheap"})
+    String storage;
+
+    @Param({"1000000"})
+    int films;
+
+    @Param({"100"})
+    int pageSize;
+
+    private FilmStorage filmStorage;
+    private final SplittableRandom random = new SplittableRandom(BenchmarkData.SEED);
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        filmStorage = "offheap".equals(storage)
+                ? new OffHeapFilmStorage(BenchmarkData.idGeneratorFactory(), 64 << 20)
+                : BenchmarkData.films(0);
+        for (int from = 0; from < films; from += BATCH) {
+            List<Film> batch = new ArrayList<>(BATCH);
+            for (int i = from; i < Math.min(films, from + BATCH); i++) {
+                batch.add(BenchmarkData.film(i));
+            }
+            filmStorage.createFilms(batch);
+        }
+        BenchmarkData.Zipf filmRanks = new BenchmarkData.Zipf(films, 1.1, BenchmarkData.SEED);
+        for (int i = 0; i < films; i++) {
+            filmStorage.addLike((long) filmRanks.next(), 1L + random.nextInt(100_000));
+        }
+
+        System.gc();
+        long heap = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+        long offHeap = filmStorage instanceof OffHeapFilmStorage offHeapStorage ? offHeapStorage.allocatedBytes() : 0;
+        System.out.printf("%nstorage=%s films=%d: куча после сборки %d МиБ, вне кучи %d МиБ%n",
+                storage, films, heap >> 20, offHeap >> 20);
+    }
+
+    @Benchmark
+    public Film getById() {
+        return filmStorage.getFilmById(1L + random.nextInt(films));
+    }
+
+    @Benchmark
+    public List<Film> page() {
+        return filmStorage.getPage(random.nextInt(films), pageSize);
+    }
+
+    @Benchmark
+    public List<Film> popularFilms() {
+        return filmStorage.getPopularFilms(10L);
+    }
+
+    @Benchmark
+    public Film update() {
+        long filmId = 1L + random.nextInt(films);
+        Film film = BenchmarkData.film((int) filmId);
+        film.setId(filmId);
+        return filmStorage.updateFilm(film);
+    }
+}
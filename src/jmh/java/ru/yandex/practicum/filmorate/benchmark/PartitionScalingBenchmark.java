@@ -0,0 +1,79 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.storage.film.InMemoryFilmStorage;
+
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Хранилище фильмов с разным числом партиций: лайки (точечная запись в одну партицию), страницы
+ * каталога (слияние партиций по id) и популярные фильмы (слияние первых N каждой партиции).
+ *
+ * <p>Число потоков задаётся аргументом JMH {@code -t}, масштабирование снимается прогонами
+ * с {@code -t 1} … {@code -t 32}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PartitionScalingBenchmark {
+    private static final int FILMS = 100_000;
+    private static final int USERS = 100_000;
+    private static final int PAGE = 20;
+
+    @Param({"1", "4", "16"})
+    int partitions;
+
+    private InMemoryFilmStorage filmStorage;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        filmStorage = BenchmarkData.films(FILMS, partitions);
+        BenchmarkData.Zipf filmRanks = new BenchmarkData.Zipf(FILMS, 1.1, BenchmarkData.SEED);
+        SplittableRandom random = new SplittableRandom(BenchmarkData.SEED);
+        for (int i = 0; i < FILMS * 5; i++) {
+            filmStorage.addLike((long) filmRanks.next(), 1L + random.nextInt(USERS));
+        }
+    }
+
+    @Benchmark
+    public void like(ThreadState state) {
+        filmStorage.addLike((long) state.filmRanks.next(), 1L + state.random.nextInt(USERS));
+    }
+
+    @Benchmark
+    public List<Film> page(ThreadState state) {
+        return filmStorage.getPage(state.random.nextInt(FILMS), PAGE);
+    }
+
+    @Benchmark
+    public List<Film> popularTop10() {
+        return filmStorage.getPopularFilms(10L);
+    }
+
+    /**
+     * Достаточно большая выборка, чтобы партиции читались параллельно.
+     */
+    @Benchmark
+    public List<Film> popularTop1000() {
+        return filmStorage.getPopularFilms(1000L);
+    }
+
+    @State(Scope.Thread)
+    public static class ThreadState {
+        BenchmarkData.Zipf filmRanks;
+        SplittableRandom random;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            long seed = Thread.currentThread().threadId();
+            filmRanks = new BenchmarkData.Zipf(FILMS, 1.1, seed);
+            random = new SplittableRandom(seed);
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.*;
+import ru.yandex.practicum.filmorate.service.PopularFilmsCache;
+import ru.yandex.practicum.filmorate.storage.film.InMemoryFilmStorage;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Ответ /films/popular: выборка и сериализация на каждый запрос против готового JSON из кеша.
+ * В группе {@code cachedUnderTailLikes} параллельно ставятся лайки фильмам из хвоста распределения,
+ * которые не могут попасть в выдачу и не должны сбрасывать кеш.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PopularFilmsCacheBenchmark {
+    private static final int FILMS = 100_000;
+    private static final int USERS = 10_000;
+
+    @Param({"10", "100"})
+    long count;
+
+    private InMemoryFilmStorage filmStorage;
+    private ObjectMapper objectMapper;
+    private PopularFilmsCache cache;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        filmStorage = BenchmarkData.films(FILMS);
+        BenchmarkData.Zipf filmRanks = new BenchmarkData.Zipf(FILMS, 1.1, BenchmarkData.SEED);
+        SplittableRandom random = new SplittableRandom(BenchmarkData.SEED);
+        for (int i = 0; i < FILMS * 5; i++) {
+            filmStorage.addLike((long) filmRanks.next(), 1L + random.nextInt(USERS));
+        }
+        objectMapper = new ObjectMapper().findAndRegisterModules();
+        cache = new PopularFilmsCache(filmStorage, objectMapper);
+    }
+
+    @Benchmark
+    public byte[] uncached() throws Exception {
+        return objectMapper.writeValueAsBytes(filmStorage.getPopularFilms(count));
+    }
+
+    @Benchmark
+    public byte[] cached() {
+        return cache.get(count).body();
+    }
+
+    @Benchmark
+    @Group("cachedUnderTailLikes")
+    @GroupThreads(3)
+    public byte[] cachedReader() {
+        return cache.get(count).body();
+    }
+
+    @Benchmark
+    @Group("cachedUnderTailLikes")
+    public void tailLiker(LikerState state) {
+        filmStorage.addLike(FILMS - (long) state.random.nextInt(FILMS / 2), 1L + state.random.nextInt(USERS));
+    }
+
+    @State(Scope.Thread)
+    public static class LikerState {
+        SplittableRandom random;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            random = new SplittableRandom(Thread.currentThread().threadId());
+        }
+    }
+}
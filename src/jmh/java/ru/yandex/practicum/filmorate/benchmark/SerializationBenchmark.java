@@ -0,0 +1,53 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.*;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SerializationBenchmark {
+    @Param({"0", "100", "10000"})
+    int setSize;
+
+    private final ObjectMapper mapper = new ObjectMapper().findAndRegisterModules();
+    private Film film;
+    private User user;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        film = BenchmarkData.film(1);
+        film.setId(1L);
+        user = BenchmarkData.user(1);
+        user.setId(1L);
+        for (long id = 1; id <= setSize; id++) {
+            film.getLikes().add(id);
+            user.getFriends().add(id);
+        }
+    }
+
+    @Benchmark
+    public byte[] serializeFilm() throws Exception {
+        return mapper.writeValueAsBytes(film);
+    }
+
+    /**
+     * Цена копии, которую хранилище отдаёт читателю вместо самого объекта.
+     */
+    @Benchmark
+    public byte[] snapshotAndSerializeFilm() throws Exception {
+        return mapper.writeValueAsBytes(film.snapshot());
+    }
+
+    @Benchmark
+    public byte[] serializeUser() throws Exception {
+        return mapper.writeValueAsBytes(user);
+    }
+}
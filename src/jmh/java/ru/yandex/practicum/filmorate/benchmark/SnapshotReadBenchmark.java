@@ -0,0 +1,75 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.*;
+import ru.yandex.practicum.filmorate.storage.film.InMemoryFilmStorage;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Смешанная нагрузка: читатели сериализуют страницы каталога (копии фильмов), писатели ставят лайки
+ * с перекосом Ципфа. {@code readOnly} — те же чтения без писателей, для сравнения.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SnapshotReadBenchmark {
+    private static final int FILMS = 10_000;
+    private static final int USERS = 100_000;
+    private static final int PAGE = 20;
+
+    private final ObjectMapper mapper = new ObjectMapper().findAndRegisterModules();
+    private InMemoryFilmStorage filmStorage;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        filmStorage = BenchmarkData.films(FILMS);
+        BenchmarkData.Zipf filmRanks = new BenchmarkData.Zipf(FILMS, 1.1, BenchmarkData.SEED);
+        SplittableRandom random = new SplittableRandom(BenchmarkData.SEED);
+        for (int i = 0; i < FILMS * 20; i++) {
+            filmStorage.addLike((long) filmRanks.next(), 1L + random.nextInt(USERS));
+        }
+    }
+
+    @Benchmark
+    @Threads(4)
+    public byte[] readOnly(ThreadState state) throws Exception {
+        return readPage(state);
+    }
+
+    @Benchmark
+    @Group("mixed")
+    @GroupThreads(3)
+    public byte[] mixedReader(ThreadState state) throws Exception {
+        return readPage(state);
+    }
+
+    @Benchmark
+    @Group("mixed")
+    public void mixedWriter(ThreadState state) {
+        filmStorage.addLike((long) state.filmRanks.next(), 1L + state.random.nextInt(USERS));
+    }
+
+    private byte[] readPage(ThreadState state) throws Exception {
+        // первые страницы — самые лайкаемые фильмы, на них гонка с писателями сильнее всего
+        long after = state.filmRanks.next() - 1L;
+        return mapper.writeValueAsBytes(filmStorage.getPage(after, PAGE));
+    }
+
+    @State(Scope.Thread)
+    public static class ThreadState {
+        BenchmarkData.Zipf filmRanks;
+        SplittableRandom random;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            long seed = Thread.currentThread().threadId();
+            filmRanks = new BenchmarkData.Zipf(FILMS, 1.1, seed);
+            random = new SplittableRandom(seed);
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.film.JdbcFilmStorage;
+import ru.yandex.practicum.filmorate.storage.user.JdbcUserStorage;
+import ru.yandex.practicum.filmorate.storage.user.UserStorage;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Сравнение хранилища в памяти и JDBC-хранилища на встроенной H2 на одинаковых данных.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class StorageComparisonBenchmark {
+    @Param({"memory", "jdbc"})
+    String storage;
+
+    @Param({"10000"})
+    int films;
+
+    @Param({"100"})
+    int pageSize;
+
+    private EmbeddedDatabase database;
+    private UserStorage userStorage;
+    private FilmStorage filmStorage;
+    private int users;
+    private final SplittableRandom random = new SplittableRandom(BenchmarkData.SEED);
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        users = Math.max(1_000, films / 10);
+        if ("jdbc".equals(storage)) {
+            database = new EmbeddedDatabaseBuilder()
+                    .generateUniqueName(true)
+                    .setType(EmbeddedDatabaseType.H2)
+                    .addScript("schema.sql")
+                    .build();
+            NamedParameterJdbcTemplate jdbc = new NamedParameterJdbcTemplate(database);
+            userStorage = new JdbcUserStorage(jdbc, BenchmarkData.idGeneratorFactory());
+            filmStorage = new JdbcFilmStorage(jdbc, BenchmarkData.idGeneratorFactory());
+        } else {
+            userStorage = BenchmarkData.users(0);
+            filmStorage = BenchmarkData.films(0);
+        }
+        List<User> newUsers = new ArrayList<>(users);
+        for (int i = 0; i < users; i++) {
+            newUsers.add(BenchmarkData.user(i));
+        }
+        userStorage.createUsers(newUsers);
+        List<Film> newFilms = new ArrayList<>(films);
+        for (int i = 0; i < films; i++) {
+            newFilms.add(BenchmarkData.film(i));
+        }
+        filmStorage.createFilms(newFilms);
+        BenchmarkData.Zipf filmRanks = new BenchmarkData.Zipf(films, 1.1, BenchmarkData.SEED);
+        for (int i = 0; i < films; i++) {
+            filmStorage.addLike((long) filmRanks.next(), 1L + random.nextInt(users));
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        if (database != null) {
+            database.shutdown();
+        }
+    }
+
+    @Benchmark
+    public Film getById() {
+        return filmStorage.getFilmById(1L + random.nextInt(films));
+    }
+
+    @Benchmark
+    public List<Film> page() {
+        return filmStorage.getPage(random.nextInt(films), pageSize);
+    }
+
+    @Benchmark
+    public List<Film> popularFilms() {
+        return filmStorage.getPopularFilms(10L);
+    }
+
+    @Benchmark
+    public void addAndRemoveLike() {
+        long filmId = 1L + random.nextInt(films);
+        long userId = 1L + random.nextInt(users);
+        filmStorage.addLike(filmId, userId);
+        filmStorage.removeLike(filmId, userId);
+    }
+}
@@ -0,0 +1,57 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import ru.yandex.practicum.filmorate.storage.film.TrendWindow;
+import ru.yandex.practicum.filmorate.storage.film.TrendingIndex;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Лайк в индексе трендов и выдача первых 10 за каждое окно. Лайки распределены по Ципфу между
+ * {@value #FILMS} фильмами и уже лежат в разных часах недели: выдача пересчитывает выпавшие корзины
+ * у тех, кто встречается в голове порядка.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TrendingIndexBenchmark {
+    private static final int FILMS = 100_000;
+    private static final long HOUR_MILLIS = 3_600_000;
+
+    @Param({"1h", "24h", "7d"})
+    String window;
+
+    private TrendWindow trendWindow;
+    private TrendingIndex index;
+    private BenchmarkData.Zipf filmRanks;
+    // часы в прошлом, в которые раскладываются лайки подготовки
+    private long offset;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        trendWindow = TrendWindow.of(window);
+        long start = System.currentTimeMillis();
+        index = new TrendingIndex(() -> start - offset);
+        filmRanks = new BenchmarkData.Zipf(FILMS, 1.1, BenchmarkData.SEED);
+        for (int hour = 7 * 24; hour >= 0; hour--) {
+            offset = hour * HOUR_MILLIS;
+            for (int i = 0; i < 10_000; i++) {
+                index.record(filmRanks.next(), 1);
+            }
+        }
+    }
+
+    @Benchmark
+    public void like() {
+        index.record(filmRanks.next(), 1);
+    }
+
+    @Benchmark
+    public List<Long> top10() {
+        return index.top(trendWindow, 10);
+    }
+}
@@ -0,0 +1,72 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.user.InMemoryUserStorage;
+
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Друзья и общие друзья при степенном распределении числа друзей: пользователь с id 1 — «звезда».
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class UserStorageBenchmark {
+    @Param({"10000", "100000"})
+    int users;
+
+    @Param({"0.0", "1.1"})
+    double skew;
+
+    @Param({"20"})
+    int averageDegree;
+
+    private InMemoryUserStorage userStorage;
+    private SplittableRandom random;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        userStorage = BenchmarkData.users(users);
+        BenchmarkData.Zipf ranks = new BenchmarkData.Zipf(users, skew, BenchmarkData.SEED);
+        random = new SplittableRandom(BenchmarkData.SEED);
+        long edges = (long) users * averageDegree / 2;
+        for (long i = 0; i < edges; i++) {
+            long userId = ranks.next();
+            long friendId = 1L + random.nextInt(users);
+            if (userId != friendId) {
+                userStorage.addFriend(userId, friendId);
+            }
+        }
+    }
+
+    @Benchmark
+    public List<User> friendsOfCelebrity() {
+        return userStorage.getFriends(1L);
+    }
+
+    @Benchmark
+    public List<User> friendsOfRandomUser() {
+        return userStorage.getFriends(1L + random.nextInt(users));
+    }
+
+    @Benchmark
+    public List<User> commonFriendsWithCelebrity() {
+        return userStorage.getCommonFriends(1L, List.of(2L + random.nextInt(users - 1)));
+    }
+
+    @Benchmark
+    public int commonFriendsCountWithCelebrity() {
+        return userStorage.countCommonFriends(1L, List.of(2L + random.nextInt(users - 1)));
+    }
+
+    @Benchmark
+    public List<User> commonFriendsOfTopThree() {
+        return userStorage.getCommonFriends(1L, List.of(2L, 3L));
+    }
+}
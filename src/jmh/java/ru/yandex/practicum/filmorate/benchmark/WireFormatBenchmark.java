@@ -0,0 +1,101 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import org.openjdk.jmh.annotations.*;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.serialization.FilmJsonSerializer;
+import ru.yandex.practicum.filmorate.serialization.UserJsonSerializer;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Время сериализации одного ответа в JSON, CBOR и Smile сериализацией по умолчанию и собственными
+ * сериализаторами. Размер ответа в байтах печатается при подготовке; выделение памяти на ответ
+ * показывает {@code -prof gc}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class WireFormatBenchmark {
+    @Param({"json", "cbor", "smile"})
+    String format;
+
+    @Param({"reflective", "custom"})
+    String serializers;
+
+    @Param({"0", "100", "10000"})
+    int setSize;
+
+    private ObjectMapper mapper;
+    private Film film;
+    private User user;
+    private List<Film> popular;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        JsonFactory factory = switch (format) {
+            case "cbor" -> new CBORFactory();
+            case "smile" -> new SmileFactory();
+            default -> new JsonFactory();
+        };
+        mapper = new ObjectMapper(factory).findAndRegisterModules()
+                .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+        if ("custom".equals(serializers)) {
+            mapper.registerModule(new SimpleModule()
+                    .addSerializer(new FilmJsonSerializer())
+                    .addSerializer(new UserJsonSerializer()));
+        }
+
+        film = film(1);
+        user = BenchmarkData.user(1);
+        user.setId(1L);
+        user.setVersion(1L);
+        for (long id = 1; id <= setSize; id++) {
+            user.getFriends().add(id);
+        }
+        popular = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            popular.add(film(i));
+        }
+
+        System.out.printf("%n%s/%s, %d id в множестве: фильм %d Б, пользователь %d Б, 10 популярных %d Б%n",
+                format, serializers, setSize, mapper.writeValueAsBytes(film).length,
+                mapper.writeValueAsBytes(user).length, mapper.writeValueAsBytes(popular).length);
+    }
+
+    @Benchmark
+    public byte[] serializeFilm() throws Exception {
+        return mapper.writeValueAsBytes(film);
+    }
+
+    @Benchmark
+    public byte[] serializeUser() throws Exception {
+        return mapper.writeValueAsBytes(user);
+    }
+
+    @Benchmark
+    public byte[] serializePopular() throws Exception {
+        return mapper.writeValueAsBytes(popular);
+    }
+
+    private Film film(int i) {
+        Film result = BenchmarkData.film(i);
+        result.setId(i + 1L);
+        result.setVersion(1L);
+        for (long id = 1; id <= setSize; id++) {
+            result.getLikes().add(id);
+        }
+        return result;
+    }
+}
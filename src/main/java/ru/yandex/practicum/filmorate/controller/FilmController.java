@@ -1,11 +1,25 @@
 package ru.yandex.practicum.filmorate.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import jakarta.validation.Valid;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.Pattern;
+import jakarta.validation.constraints.Size;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import ru.yandex.practicum.filmorate.model.BatchItemResult;
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmLike;
 import ru.yandex.practicum.filmorate.service.FilmService;
+import ru.yandex.practicum.filmorate.serialization.BinaryFormatsConfig;
+import ru.yandex.practicum.filmorate.service.PopularFilmsCache;
+import ru.yandex.practicum.filmorate.storage.film.TrendWindow;
 
 import java.util.Collection;
 import java.util.List;
@@ -14,17 +28,35 @@ import java.util.List;
 @RequestMapping("/films")
 @Slf4j
 public class FilmController {
+    private static final String RESPOND_ASYNC = "respond-async";
 
     private final FilmService filmService;
+    private final ObjectMapper objectMapper;
 
     @Autowired
-    public FilmController(FilmService filmService) {
+    public FilmController(FilmService filmService, ObjectMapper objectMapper) {
         this.filmService = filmService;
+        this.objectMapper = objectMapper;
     }
 
+    /**
+     * Без параметров возвращает весь каталог; с {@code limit} или {@code after} — одну страницу по id.
+     */
     @GetMapping
-    public Collection<Film> getFilms() {
-        return filmService.getAllFilms();
+    public ResponseEntity<? extends Collection<Film>> getFilms(
+            @RequestParam(required = false) Long after,
+            @RequestParam(required = false) @Min(1) @Max(Pagination.MAX_LIMIT) Integer limit) {
+        if (after == null && limit == null) {
+            return ResponseEntity.ok(filmService.getAllFilms());
+        }
+        int pageSize = limit == null ? Pagination.DEFAULT_LIMIT : limit;
+        List<Film> page = filmService.getFilmsPage(after == null ? 0 : after, pageSize);
+        return Pagination.page(page, pageSize, Film::getId);
+    }
+
+    @GetMapping(produces = Pagination.NDJSON)
+    public StreamingResponseBody streamFilms(@RequestParam(defaultValue = "0") long after) {
+        return Pagination.ndjson(objectMapper, after, filmService::getFilmsPage, Film::getId);
     }
 
     @PostMapping
@@ -32,9 +64,28 @@ public class FilmController {
         return filmService.createFilm(film);
     }
 
+    @PostMapping("/batch")
+    public List<BatchItemResult> createFilms(@RequestBody @Size(max = Pagination.MAX_BATCH) List<Film> films) {
+        return filmService.createFilms(films);
+    }
+
+    @PutMapping("/likes/batch")
+    public List<BatchItemResult> likeFilms(@RequestBody @Size(max = Pagination.MAX_BATCH) List<FilmLike> likes) {
+        return filmService.addLikes(likes);
+    }
+
+    /**
+     * Без {@code If-Match} и версии в теле фильм обновляется безусловно; при несовпадении версии — 409.
+     * Лайки из тела не применяются.
+     */
     @PutMapping
-    public Film updateFilm(@Valid @RequestBody(required = false) Film film) {
-        return filmService.updateFilm(film);
+    public ResponseEntity<Film> updateFilm(@Valid @RequestBody(required = false) Film film,
+                                           @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        if (film != null) {
+            film.setVersion(Versions.expected(ifMatch, film.getVersion()));
+        }
+        Film updated = filmService.updateFilm(film);
+        return Versions.tagged(updated, updated.getVersion());
     }
 
     @DeleteMapping("/{id}")
@@ -42,18 +93,58 @@ public class FilmController {
         return filmService.deleteFilm(id);
     }
 
+    /**
+     * При асинхронной записи лайков заголовок {@code Prefer: respond-async} возвращает 202 сразу после
+     * постановки в очередь; без него ответ приходит после применения лайка.
+     */
     @PutMapping("/{id}/like/{userId}")
-    public Film likeFilm(@PathVariable Long id, @PathVariable Long userId) {
-        return filmService.addLike(id, userId);
+    public ResponseEntity<Film> likeFilm(@PathVariable Long id, @PathVariable Long userId,
+                                         @RequestHeader(value = "Prefer", required = false) String prefer) {
+        return likeResponse(filmService.addLike(id, userId, !RESPOND_ASYNC.equalsIgnoreCase(prefer)));
     }
 
     @DeleteMapping("/{id}/like/{userId}")
-    public Film removeLike(@PathVariable Long id, @PathVariable Long userId) {
-        return filmService.removeLike(id, userId);
+    public ResponseEntity<Film> removeLike(@PathVariable Long id, @PathVariable Long userId,
+                                           @RequestHeader(value = "Prefer", required = false) String prefer) {
+        return likeResponse(filmService.removeLike(id, userId, !RESPOND_ASYNC.equalsIgnoreCase(prefer)));
     }
 
+    /**
+     * Отдаёт закешированный JSON с ETag и Last-Modified; на совпавший If-None-Match или
+     * If-Modified-Since Spring отвечает 304 без тела.
+     */
     @GetMapping("/popular")
-    public List<Film> getPopularFilms(@RequestParam(value = "count", defaultValue = "10") Long count) {
+    public ResponseEntity<byte[]> getPopularFilms(
+            @RequestParam(value = "count", defaultValue = "10") @Min(1) @Max(Pagination.MAX_LIMIT) Long count) {
+        PopularFilmsCache.Response popular = filmService.getPopularFilmsJson(count);
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .eTag(Long.toString(popular.version()))
+                .lastModified(popular.lastModified())
+                .body(popular.body());
+    }
+
+    /**
+     * Для клиентов CBOR и Smile: кеш хранит готовый JSON, поэтому выдача сериализуется при каждом запросе.
+     */
+    @GetMapping(value = "/popular", produces = {MediaType.APPLICATION_CBOR_VALUE, BinaryFormatsConfig.SMILE})
+    public List<Film> getPopularFilmsBinary(
+            @RequestParam(value = "count", defaultValue = "10") @Min(1) @Max(Pagination.MAX_LIMIT) Long count) {
         return filmService.getPopularFilms(count);
     }
+
+    /**
+     * Фильмы с наибольшим числом лайков за последний час ({@code 1h}), сутки ({@code 24h})
+     * или неделю ({@code 7d}).
+     */
+    @GetMapping("/trending")
+    public List<Film> getTrendingFilms(
+            @RequestParam(defaultValue = "24h") @Pattern(regexp = "1h|24h|7d") String window,
+            @RequestParam(defaultValue = "10") @Min(1) @Max(Pagination.MAX_LIMIT) int count) {
+        return filmService.getTrendingFilms(TrendWindow.of(window), count);
+    }
+
+    private static ResponseEntity<Film> likeResponse(Film film) {
+        return film == null ? ResponseEntity.accepted().build() : ResponseEntity.ok(film);
+    }
 }
@@ -0,0 +1,61 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.util.List;
+import java.util.function.BiFunction;
+import java.util.function.ToLongFunction;
+
+/**
+ * Постраничная выдача по ключу: клиент передаёт id последнего полученного элемента в {@code after},
+ * следующий курсор возвращается в заголовке {@code X-Next-Cursor}. Если заголовка нет — страница последняя.
+ */
+final class Pagination {
+    static final String NDJSON = "application/x-ndjson";
+    static final String NEXT_CURSOR = "X-Next-Cursor";
+    static final int DEFAULT_LIMIT = 100;
+    static final int MAX_LIMIT = 1000;
+    // пакетный запрос проверяется и применяется целиком в памяти, поэтому его размер тоже ограничен
+    static final int MAX_BATCH = 10_000;
+    private static final int STREAM_CHUNK = 500;
+
+    private Pagination() {
+    }
+
+    static <T> ResponseEntity<List<T>> page(List<T> page, int limit, ToLongFunction<T> id) {
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (page.size() == limit) {
+            response.header(NEXT_CURSOR, String.valueOf(id.applyAsLong(page.get(page.size() - 1))));
+        }
+        return response.body(page);
+    }
+
+    /**
+     * Пишет все элементы после {@code afterId} по одному JSON-объекту в строке. Элементы читаются
+     * страницами, и в памяти одновременно держится не больше одной страницы.
+     */
+    static <T> StreamingResponseBody ndjson(ObjectMapper mapper, long afterId,
+                                            BiFunction<Long, Integer, List<T>> source, ToLongFunction<T> id) {
+        return out -> {
+            try (JsonGenerator generator = mapper.getFactory().createGenerator(out)) {
+                generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+                // разделитель строк пишем сами, пробел между корневыми значениями не нужен
+                generator.setRootValueSeparator(null);
+                long cursor = afterId;
+                List<T> page;
+                do {
+                    page = source.apply(cursor, STREAM_CHUNK);
+                    for (T item : page) {
+                        mapper.writeValue(generator, item);
+                        generator.writeRaw('\n');
+                        cursor = id.applyAsLong(item);
+                    }
+                    generator.flush();
+                } while (page.size() == STREAM_CHUNK);
+            }
+        };
+    }
+}
@@ -1,14 +1,24 @@
 package ru.yandex.practicum.filmorate.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import jakarta.validation.Valid;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.Size;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import ru.yandex.practicum.filmorate.model.BatchItemResult;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Friendship;
 import ru.yandex.practicum.filmorate.model.User;
 import ru.yandex.practicum.filmorate.service.UserService;
 
 import java.util.Collection;
-import java.util.Set;
+import java.util.List;
 
 
 @RestController
@@ -17,15 +27,32 @@ import java.util.Set;
 public class UserController {
 
     private final UserService userService;
+    private final ObjectMapper objectMapper;
 
     @Autowired
-    public UserController(final UserService userService) {
+    public UserController(final UserService userService, final ObjectMapper objectMapper) {
         this.userService = userService;
+        this.objectMapper = objectMapper;
     }
 
+    /**
+     * Без параметров возвращает весь каталог; с {@code limit} или {@code after} — одну страницу по id.
+     */
     @GetMapping
-    public Collection<User> getUsers() {
-        return userService.getAllUsers();
+    public ResponseEntity<? extends Collection<User>> getUsers(
+            @RequestParam(required = false) Long after,
+            @RequestParam(required = false) @Min(1) @Max(Pagination.MAX_LIMIT) Integer limit) {
+        if (after == null && limit == null) {
+            return ResponseEntity.ok(userService.getAllUsers());
+        }
+        int pageSize = limit == null ? Pagination.DEFAULT_LIMIT : limit;
+        List<User> page = userService.getUsersPage(after == null ? 0 : after, pageSize);
+        return Pagination.page(page, pageSize, User::getId);
+    }
+
+    @GetMapping(produces = Pagination.NDJSON)
+    public StreamingResponseBody streamUsers(@RequestParam(defaultValue = "0") long after) {
+        return Pagination.ndjson(objectMapper, after, userService::getUsersPage, User::getId);
     }
 
     @PostMapping
@@ -33,9 +60,27 @@ public class UserController {
         return userService.createUser(user);
     }
 
+    @PostMapping("/batch")
+    public List<BatchItemResult> createUsers(@RequestBody @Size(max = Pagination.MAX_BATCH) List<User> users) {
+        return userService.createUsers(users);
+    }
+
+    @PutMapping("/friends/batch")
+    public List<BatchItemResult> addFriends(@RequestBody @Size(max = Pagination.MAX_BATCH) List<Friendship> friendships) {
+        return userService.addFriends(friendships);
+    }
+
+    /**
+     * Версия проверяется так же, как в {@link FilmController#updateFilm}; друзья из тела не применяются.
+     */
     @PutMapping
-    public User updateUser(@Valid @RequestBody(required = false) User user) {
-        return userService.updateUser(user);
+    public ResponseEntity<User> updateUser(@Valid @RequestBody(required = false) User user,
+                                           @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        if (user != null) {
+            user.setVersion(Versions.expected(ifMatch, user.getVersion()));
+        }
+        User updated = userService.updateUser(user);
+        return Versions.tagged(updated, updated.getVersion());
     }
 
     @DeleteMapping("/{id}")
@@ -44,8 +89,20 @@ public class UserController {
     }
 
     @GetMapping("/{id}")
-    public User getUserFilms(@PathVariable Long id) {
-        return userService.getFavouriteFilms(id);
+    public ResponseEntity<User> getUser(@PathVariable Long id) {
+        User user = userService.getUser(id);
+        return Versions.tagged(user, user.getVersion());
+    }
+
+    /**
+     * Фильмы, лайкнутые пользователем, страницами по id фильма.
+     */
+    @GetMapping("/{id}/films")
+    public ResponseEntity<List<Film>> getFavouriteFilms(
+            @PathVariable Long id,
+            @RequestParam(defaultValue = "0") long after,
+            @RequestParam(defaultValue = "" + Pagination.DEFAULT_LIMIT) @Min(1) @Max(Pagination.MAX_LIMIT) int limit) {
+        return Pagination.page(userService.getFavouriteFilms(id, after, limit), limit, Film::getId);
     }
 
     @PutMapping("/{id}/friends/{friendId}")
@@ -59,12 +116,22 @@ public class UserController {
     }
 
     @GetMapping("{id}/friends")
-    public Set<User> getFriends(@PathVariable Long id) {
+    public List<User> getFriends(@PathVariable Long id) {
         return userService.getAllFriends(id);
     }
 
     @GetMapping("/{id}/friends/common/{otherId}")
-    public Set<User> getCommonFriends(@PathVariable Long id, @PathVariable Long otherId) {
+    public List<User> getCommonFriends(@PathVariable Long id, @PathVariable Long otherId) {
         return userService.getCommonFriends(id, otherId);
     }
+
+    @GetMapping("/{id}/friends/common")
+    public List<User> getCommonFriends(@PathVariable Long id, @RequestParam List<Long> with) {
+        return userService.getCommonFriends(id, with);
+    }
+
+    @GetMapping("/{id}/friends/common/count")
+    public int countCommonFriends(@PathVariable Long id, @RequestParam List<Long> with) {
+        return userService.countCommonFriends(id, with);
+    }
 }
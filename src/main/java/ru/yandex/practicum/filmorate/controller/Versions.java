@@ -0,0 +1,38 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import org.springframework.http.ResponseEntity;
+import ru.yandex.practicum.filmorate.exceptions.ConflictException;
+
+/**
+ * Версия записи в HTTP: ответ несёт её в {@code ETag}, запрос на изменение передаёт ожидаемую
+ * версию в {@code If-Match} или в поле {@code version} тела.
+ */
+final class Versions {
+    private Versions() {
+    }
+
+    /**
+     * Ожидаемая версия: из {@code If-Match}, а без него (или при {@code *}) — из тела запроса.
+     * Чужой ETag не совпадёт ни с одной версией, поэтому сразу даёт конфликт.
+     */
+    static Long expected(String ifMatch, Long fromBody) {
+        if (ifMatch == null || ifMatch.isBlank() || ifMatch.trim().equals("*")) {
+            return fromBody;
+        }
+        String tag = ifMatch.trim();
+        if (tag.length() >= 2 && tag.startsWith("\"") && tag.endsWith("\"")) {
+            tag = tag.substring(1, tag.length() - 1);
+        }
+        try {
+            return Long.parseLong(tag);
+        } catch (NumberFormatException e) {
+            throw new ConflictException("If-Match не совпадает с версией записи");
+        }
+    }
+
+    static <T> ResponseEntity<T> tagged(T body, Long version) {
+        return ResponseEntity.ok()
+                .eTag(String.valueOf(version))
+                .body(body);
+    }
+}
@@ -0,0 +1,10 @@
+package ru.yandex.practicum.filmorate.exceptions;
+
+/**
+ * Обновление основано на устаревшей версии записи: её уже изменил другой запрос.
+ */
+public class ConflictException extends RuntimeException {
+    public ConflictException(String message) {
+        super(message);
+    }
+}
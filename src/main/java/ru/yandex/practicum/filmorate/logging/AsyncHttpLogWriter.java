@@ -0,0 +1,99 @@
+package ru.yandex.practicum.filmorate.logging;
+
+import lombok.extern.slf4j.Slf4j;
+import org.zalando.logbook.Correlation;
+import org.zalando.logbook.HttpLogWriter;
+import org.zalando.logbook.Precorrelation;
+
+import java.io.IOException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Пишет журнал HTTP в отдельном потоке. Поток запроса только кладёт готовую строку в ограниченную
+ * очередь; если очередь заполнена, запись отбрасывается и учитывается в {@link #dropped()}, так что
+ * медленный вывод журнала не задерживает ответы.
+ */
+@Slf4j
+public class AsyncHttpLogWriter implements HttpLogWriter, AutoCloseable {
+    private static final long POLL_MILLIS = 100;
+
+    private final HttpLogWriter delegate;
+    private final BlockingQueue<Entry> queue;
+    private final LongAdder dropped = new LongAdder();
+    private final Thread worker;
+    private volatile boolean running = true;
+
+    public AsyncHttpLogWriter(HttpLogWriter delegate, int queueSize) {
+        this.delegate = delegate;
+        this.queue = new ArrayBlockingQueue<>(queueSize);
+        this.worker = new Thread(this::run, "http-log-writer");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    @Override
+    public boolean isActive() {
+        return delegate.isActive();
+    }
+
+    @Override
+    public void write(Precorrelation precorrelation, String request) {
+        enqueue(new Entry(precorrelation, request, false));
+    }
+
+    @Override
+    public void write(Correlation correlation, String response) {
+        enqueue(new Entry(correlation, response, true));
+    }
+
+    /**
+     * Число записей, отброшенных из-за заполненной очереди.
+     */
+    public long dropped() {
+        return dropped.sum();
+    }
+
+    /**
+     * Дописывает уже принятые записи и останавливает поток.
+     */
+    @Override
+    public void close() throws InterruptedException {
+        running = false;
+        worker.join();
+    }
+
+    private void enqueue(Entry entry) {
+        if (!queue.offer(entry)) {
+            dropped.increment();
+        }
+    }
+
+    private void run() {
+        while (running || !queue.isEmpty()) {
+            try {
+                Entry entry = queue.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+                if (entry != null) {
+                    entry.writeTo(delegate);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (IOException | RuntimeException e) {
+                log.warn("Не удалось записать журнал HTTP: {}", e.getMessage());
+            }
+        }
+    }
+
+    private record Entry(Precorrelation correlation, String message, boolean response) {
+        void writeTo(HttpLogWriter writer) throws IOException {
+            if (response) {
+                writer.write((Correlation) correlation, message);
+            } else {
+                writer.write(correlation, message);
+            }
+        }
+    }
+}
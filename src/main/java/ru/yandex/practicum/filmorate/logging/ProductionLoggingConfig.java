@@ -0,0 +1,44 @@
+package ru.yandex.practicum.filmorate.logging;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.zalando.logbook.HttpLogWriter;
+import org.zalando.logbook.HttpRequest;
+import org.zalando.logbook.core.DefaultHttpLogWriter;
+
+import java.util.List;
+import java.util.function.Predicate;
+
+/**
+ * Журнал HTTP в профиле {@code production}: пишется только выборка запросов, горячие эндпоинты чтения
+ * исключены, а запись идёт в отдельном потоке. Тела обрезает сам Logbook
+ * по свойству {@code logbook.write.max-body-size}.
+ *
+ * <p>Бины подменяют одноимённые бины автоконфигурации Logbook.
+ */
+@Configuration
+@Profile("production")
+public class ProductionLoggingConfig {
+
+    @Bean
+    public Predicate<HttpRequest> requestCondition(
+            @Value("${filmorate.http-log.exclude:}") List<String> excluded,
+            @Value("${filmorate.http-log.endpoint-sample-rates:}") List<String> endpointRates,
+            @Value("${filmorate.http-log.sample-rate:0.01}") double sampleRate) {
+        return new SamplingRequestCondition(excluded, endpointRates, sampleRate);
+    }
+
+    @Bean
+    public AsyncHttpLogWriter writer(@Value("${filmorate.http-log.queue-size:4096}") int queueSize,
+                                     MeterRegistry registry) {
+        AsyncHttpLogWriter writer = new AsyncHttpLogWriter(new DefaultHttpLogWriter(), queueSize);
+        FunctionCounter.builder("filmorate.http.log.dropped", writer, AsyncHttpLogWriter::dropped)
+                .description("Записи журнала HTTP, отброшенные из-за заполненной очереди")
+                .register(registry);
+        return writer;
+    }
+}
@@ -0,0 +1,88 @@
+package ru.yandex.practicum.filmorate.logging;
+
+import org.springframework.util.AntPathMatcher;
+import org.zalando.logbook.HttpRequest;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Predicate;
+
+/**
+ * Решает, попадёт ли запрос в журнал HTTP. Запросы к исключённым эндпоинтам не пишутся никогда,
+ * для эндпоинтов с собственной долей используется она, для остальных — общая доля.
+ *
+ * <p>Эндпоинт задаётся шаблоном пути, перед которым можно указать метод: {@code GET /films/popular}.
+ * Решение принимается один раз на запрос: ответ пишется, только если был записан запрос.
+ */
+public class SamplingRequestCondition implements Predicate<HttpRequest> {
+    private static final AntPathMatcher MATCHER = new AntPathMatcher();
+
+    private final List<Endpoint> excluded;
+    private final List<Rate> rates;
+    private final double defaultRate;
+
+    /**
+     * @param excluded      эндпоинты, которые не пишутся, например {@code /actuator/**}
+     * @param endpointRates пары {@code эндпоинт=доля}, проверяются в порядке объявления
+     * @param defaultRate   доля для всех остальных запросов, от 0 до 1
+     */
+    public SamplingRequestCondition(List<String> excluded, List<String> endpointRates, double defaultRate) {
+        this.excluded = excluded.stream().map(Endpoint::parse).toList();
+        this.rates = new ArrayList<>(endpointRates.size());
+        for (String pair : endpointRates) {
+            int separator = pair.lastIndexOf('=');
+            if (separator <= 0) {
+                throw new IllegalArgumentException("Ожидается пара эндпоинт=доля: " + pair);
+            }
+            rates.add(new Rate(Endpoint.parse(pair.substring(0, separator)),
+                    Double.parseDouble(pair.substring(separator + 1).trim())));
+        }
+        this.defaultRate = defaultRate;
+    }
+
+    @Override
+    public boolean test(HttpRequest request) {
+        for (Endpoint endpoint : excluded) {
+            if (endpoint.matches(request)) {
+                return false;
+            }
+        }
+        return sample(rateFor(request));
+    }
+
+    private double rateFor(HttpRequest request) {
+        for (Rate rate : rates) {
+            if (rate.endpoint().matches(request)) {
+                return rate.value();
+            }
+        }
+        return defaultRate;
+    }
+
+    private static boolean sample(double rate) {
+        if (rate >= 1) {
+            return true;
+        }
+        return rate > 0 && ThreadLocalRandom.current().nextDouble() < rate;
+    }
+
+    private record Endpoint(String method, String pattern) {
+        static Endpoint parse(String value) {
+            String trimmed = value.trim();
+            int space = trimmed.indexOf(' ');
+            if (space < 0) {
+                return new Endpoint(null, trimmed);
+            }
+            return new Endpoint(trimmed.substring(0, space), trimmed.substring(space + 1).trim());
+        }
+
+        boolean matches(HttpRequest request) {
+            return (method == null || method.equalsIgnoreCase(request.getMethod()))
+                    && MATCHER.match(pattern, request.getPath());
+        }
+    }
+
+    private record Rate(Endpoint endpoint, double value) {
+    }
+}
@@ -0,0 +1,79 @@
+package ru.yandex.practicum.filmorate.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.springframework.stereotype.Component;
+
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Таймеры на все публичные методы сервисов и хранилищ: {@code filmorate.service} и
+ * {@code filmorate.storage} с тегами {@code class}, {@code method} и {@code outcome}.
+ *
+ * <p>Таймеры создаются один раз на метод и кешируются, поэтому на горячем пути остаются только
+ * поиск в {@link ConcurrentHashMap}, два вызова {@link System#nanoTime()} и запись в гистограмму.
+ */
+@Aspect
+@Component
+public class MetricsAspect {
+    private final MeterRegistry registry;
+    private final Map<Method, Timers> timers = new ConcurrentHashMap<>();
+
+    public MetricsAspect(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    @Around("execution(public * ru.yandex.practicum.filmorate.service.*Service.*(..))")
+    public Object timeService(ProceedingJoinPoint joinPoint) throws Throwable {
+        return time(joinPoint, "filmorate.service");
+    }
+
+    @Around("execution(public * ru.yandex.practicum.filmorate.storage..*Storage.*(..))")
+    public Object timeStorage(ProceedingJoinPoint joinPoint) throws Throwable {
+        return time(joinPoint, "filmorate.storage");
+    }
+
+    private Object time(ProceedingJoinPoint joinPoint, String name) throws Throwable {
+        Method method = ((MethodSignature) joinPoint.getSignature()).getMethod();
+        Timers methodTimers = timers.get(method);
+        if (methodTimers == null) {
+            methodTimers = timers.computeIfAbsent(method,
+                    key -> new Timers(name, joinPoint.getTarget().getClass().getSimpleName(), key.getName()));
+        }
+        long started = System.nanoTime();
+        try {
+            Object result = joinPoint.proceed();
+            methodTimers.success.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+            return result;
+        } catch (Throwable e) {
+            methodTimers.error.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+            throw e;
+        }
+    }
+
+    private final class Timers {
+        private final Timer success;
+        private final Timer error;
+
+        private Timers(String name, String className, String methodName) {
+            success = timer(name, className, methodName, "success");
+            error = timer(name, className, methodName, "error");
+        }
+
+        private Timer timer(String name, String className, String methodName, String outcome) {
+            return Timer.builder(name)
+                    .tag("class", className)
+                    .tag("method", methodName)
+                    .tag("outcome", outcome)
+                    .publishPercentileHistogram()
+                    .register(registry);
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package ru.yandex.practicum.filmorate.metrics;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.user.UserStorage;
+
+/**
+ * Размеры хранилищ: число фильмов, пользователей, лайков и дружеских связей. Значения читаются
+ * из счётчиков хранилищ при сборе метрик.
+ */
+@Component
+public class StorageMetrics implements MeterBinder {
+    private final FilmStorage filmStorage;
+    private final UserStorage userStorage;
+
+    public StorageMetrics(FilmStorage filmStorage, UserStorage userStorage) {
+        this.filmStorage = filmStorage;
+        this.userStorage = userStorage;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("filmorate.films", filmStorage, FilmStorage::size)
+                .description("Число фильмов")
+                .register(registry);
+        Gauge.builder("filmorate.users", userStorage, UserStorage::size)
+                .description("Число пользователей")
+                .register(registry);
+        Gauge.builder("filmorate.likes", filmStorage, FilmStorage::totalLikes)
+                .description("Число лайков")
+                .register(registry);
+        Gauge.builder("filmorate.friendships", userStorage, UserStorage::totalFriendships)
+                .description("Число дружеских связей")
+                .register(registry);
+    }
+}
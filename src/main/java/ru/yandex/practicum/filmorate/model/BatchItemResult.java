@@ -0,0 +1,35 @@
+package ru.yandex.practicum.filmorate.model;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.Builder;
+import lombok.Data;
+
+import java.util.Map;
+
+/**
+ * Результат обработки одного элемента пакетного запроса; {@code index} — позиция элемента в запросе.
+ */
+@Data
+@Builder
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class BatchItemResult {
+    int index;
+    Status status;
+    Long id;
+    Map<String, String> errors;
+
+    public enum Status {
+        CREATED,
+        APPLIED,
+        INVALID,
+        NOT_FOUND
+    }
+
+    public static BatchItemResult invalid(int index, Map<String, String> errors) {
+        return BatchItemResult.builder().index(index).status(Status.INVALID).errors(errors).build();
+    }
+
+    public static BatchItemResult notFound(int index, String error) {
+        return BatchItemResult.builder().index(index).status(Status.NOT_FOUND).errors(Map.of("error", error)).build();
+    }
+}
@@ -5,11 +5,10 @@ import jakarta.validation.constraints.Positive;
 import jakarta.validation.constraints.Size;
 import lombok.Builder;
 import lombok.Data;
+import ru.yandex.practicum.filmorate.utils.LongHashSet;
 import ru.yandex.practicum.filmorate.validation.ReleaseDateAfter;
 
 import java.time.LocalDate;
-import java.util.HashSet;
-import java.util.Set;
 
 /**
  * Film.
@@ -18,6 +17,8 @@ import java.util.Set;
 @Builder
 public class Film {
     Long id;
+    // номер правки полей, назначается хранилищем; лайки его не меняют
+    Long version;
     @NotBlank(message = "Название не может быть пустым")
     String name;
     @Size(max = 200, message = "Максимальная длина описания — 200 символов")
@@ -27,12 +28,28 @@ public class Film {
     @Positive(message = "Продолжительность должна быть положительной")
     Integer duration;
     @Builder.Default
-    private Set<Long> likes = new HashSet<>();
+    private LongHashSet likes = new LongHashSet();
 
-    public Set<Long> getLikes() {
+    public LongHashSet getLikes() {
         if (likes == null) {
-            likes = new HashSet<>();
+            likes = new LongHashSet();
         }
         return likes;
     }
+
+    /**
+     * Копия фильма с собственным множеством лайков: её можно отдавать читателю и сериализовать,
+     * пока хранилище меняет оригинал.
+     */
+    public Film snapshot() {
+        return Film.builder()
+                .id(id)
+                .version(version)
+                .name(name)
+                .description(description)
+                .releaseDate(releaseDate)
+                .duration(duration)
+                .likes(getLikes().snapshot())
+                .build();
+    }
 }
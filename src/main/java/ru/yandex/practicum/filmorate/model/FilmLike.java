@@ -0,0 +1,19 @@
+package ru.yandex.practicum.filmorate.model;
+
+import jakarta.validation.constraints.NotNull;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Лайк фильму от пользователя — элемент пакетного запроса.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class FilmLike {
+    @NotNull(message = "Не указан фильм")
+    Long filmId;
+    @NotNull(message = "Не указан пользователь")
+    Long userId;
+}
@@ -0,0 +1,19 @@
+package ru.yandex.practicum.filmorate.model;
+
+import jakarta.validation.constraints.NotNull;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Дружба двух пользователей — элемент пакетного запроса.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class Friendship {
+    @NotNull(message = "Не указан пользователь")
+    Long userId;
+    @NotNull(message = "Не указан друг")
+    Long friendId;
+}
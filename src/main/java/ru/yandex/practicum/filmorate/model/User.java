@@ -6,15 +6,16 @@ import jakarta.validation.constraints.PastOrPresent;
 import jakarta.validation.constraints.Pattern;
 import lombok.Builder;
 import lombok.Data;
+import ru.yandex.practicum.filmorate.utils.LongHashSet;
 
 import java.time.LocalDate;
-import java.util.HashSet;
-import java.util.Set;
 
 @Data
 @Builder
 public class User {
     Long id;
+    // номер правки полей, назначается хранилищем; друзья его не меняют
+    Long version;
     String name;
     @NotBlank(message = "Email не может быть пустым")
     @Email(message = "Неверный формат email")
@@ -25,12 +26,27 @@ public class User {
     @PastOrPresent(message = "Дата рождения не может быть в будущем")
     LocalDate birthday;
     @Builder.Default
-    private Set<Long> friends = new HashSet<>();
+    private LongHashSet friends = new LongHashSet();
 
-    public Set<Long> getFriends() {
+    public LongHashSet getFriends() {
         if (friends == null) {
-            friends = new HashSet<>();
+            friends = new LongHashSet();
         }
         return friends;
     }
+
+    /**
+     * Копия пользователя с собственным множеством друзей, см. {@link Film#snapshot()}.
+     */
+    public User snapshot() {
+        return User.builder()
+                .id(id)
+                .version(version)
+                .name(name)
+                .email(email)
+                .login(login)
+                .birthday(birthday)
+                .friends(getFriends().snapshot())
+                .build();
+    }
 }
@@ -0,0 +1,32 @@
+package ru.yandex.practicum.filmorate.serialization;
+
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+
+/**
+ * Двоичные форматы для клиентов-сервисов: CBOR ({@code application/cbor}) и Smile
+ * ({@code application/x-jackson-smile}) по заголовку {@code Accept} или {@code Content-Type}.
+ * Без заголовка или с {@code *}{@code /*} ответ остаётся JSON: конвертер JSON стоит раньше.
+ *
+ * <p>Маппер строится тем же {@link Jackson2ObjectMapperBuilder}, что и для JSON, поэтому в двоичных
+ * форматах действуют те же сериализаторы и настройки {@code spring.jackson.*}.
+ */
+@Configuration
+public class BinaryFormatsConfig {
+    public static final String SMILE = "application/x-jackson-smile";
+
+    @Bean
+    public MappingJackson2CborHttpMessageConverter cborHttpMessageConverter(Jackson2ObjectMapperBuilder builder) {
+        return new MappingJackson2CborHttpMessageConverter(builder.factory(new CBORFactory()).build());
+    }
+
+    @Bean
+    public MappingJackson2SmileHttpMessageConverter smileHttpMessageConverter(Jackson2ObjectMapperBuilder builder) {
+        return new MappingJackson2SmileHttpMessageConverter(builder.factory(new SmileFactory()).build());
+    }
+}
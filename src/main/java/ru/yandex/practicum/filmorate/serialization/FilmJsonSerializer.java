@@ -0,0 +1,38 @@
+package ru.yandex.practicum.filmorate.serialization;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+import org.springframework.boot.jackson.JsonComponent;
+import ru.yandex.practicum.filmorate.model.Film;
+
+import java.io.IOException;
+
+/**
+ * Сериализатор {@link Film} без обхода свойств через рефлексию: поля пишутся напрямую, лайки —
+ * из примитивного массива, без итератора и упаковки в {@code Long}.
+ *
+ * <p>Результат совпадает с сериализацией по умолчанию: те же поля в том же порядке, {@code null}
+ * пишется явно, дата — сериализатором, настроенным в {@code ObjectMapper}. Новое поле {@link Film}
+ * нужно добавить и сюда.
+ */
+@JsonComponent
+public class FilmJsonSerializer extends StdSerializer<Film> {
+
+    public FilmJsonSerializer() {
+        super(Film.class);
+    }
+
+    @Override
+    public void serialize(Film film, JsonGenerator gen, SerializerProvider provider) throws IOException {
+        gen.writeStartObject(film);
+        JsonFields.writeLong(gen, "id", film.getId());
+        JsonFields.writeLong(gen, "version", film.getVersion());
+        gen.writeStringField("name", film.getName());
+        gen.writeStringField("description", film.getDescription());
+        provider.defaultSerializeField("releaseDate", film.getReleaseDate(), gen);
+        JsonFields.writeInteger(gen, "duration", film.getDuration());
+        JsonFields.writeIds(gen, "likes", film.getLikes().toLongArray());
+        gen.writeEndObject();
+    }
+}
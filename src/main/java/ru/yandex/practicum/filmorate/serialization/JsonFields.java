@@ -0,0 +1,37 @@
+package ru.yandex.practicum.filmorate.serialization;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+
+import java.io.IOException;
+
+/**
+ * Запись полей-оберток: {@code null} пишется явно, как у сериализации Jackson по умолчанию.
+ */
+final class JsonFields {
+    private JsonFields() {
+    }
+
+    static void writeLong(JsonGenerator gen, String name, Long value) throws IOException {
+        if (value == null) {
+            gen.writeNullField(name);
+        } else {
+            gen.writeNumberField(name, value.longValue());
+        }
+    }
+
+    static void writeInteger(JsonGenerator gen, String name, Integer value) throws IOException {
+        if (value == null) {
+            gen.writeNullField(name);
+        } else {
+            gen.writeNumberField(name, value.intValue());
+        }
+    }
+
+    /**
+     * Массив пишется из примитивов, без упаковки каждого элемента в {@code Long}.
+     */
+    static void writeIds(JsonGenerator gen, String name, long[] ids) throws IOException {
+        gen.writeFieldName(name);
+        gen.writeArray(ids, 0, ids.length);
+    }
+}
@@ -0,0 +1,33 @@
+package ru.yandex.practicum.filmorate.serialization;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+import org.springframework.boot.jackson.JsonComponent;
+import ru.yandex.practicum.filmorate.model.User;
+
+import java.io.IOException;
+
+/**
+ * Сериализатор {@link User}, устроенный как {@link FilmJsonSerializer}; друзья пишутся из примитивного массива.
+ */
+@JsonComponent
+public class UserJsonSerializer extends StdSerializer<User> {
+
+    public UserJsonSerializer() {
+        super(User.class);
+    }
+
+    @Override
+    public void serialize(User user, JsonGenerator gen, SerializerProvider provider) throws IOException {
+        gen.writeStartObject(user);
+        JsonFields.writeLong(gen, "id", user.getId());
+        JsonFields.writeLong(gen, "version", user.getVersion());
+        gen.writeStringField("name", user.getName());
+        gen.writeStringField("email", user.getEmail());
+        gen.writeStringField("login", user.getLogin());
+        provider.defaultSerializeField("birthday", user.getBirthday(), gen);
+        JsonFields.writeIds(gen, "friends", user.getFriends().toLongArray());
+        gen.writeEndObject();
+    }
+}
@@ -0,0 +1,50 @@
+package ru.yandex.practicum.filmorate.service;
+
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.stream.IntStream;
+
+/**
+ * Параллельная проверка элементов пакетного запроса. Для каждого элемента возвращается карта
+ * «поле → сообщение» в том же виде, что и у обработчика ошибок одиночных запросов; пустая карта —
+ * элемент корректен.
+ *
+ * <p>Проверка идёт в собственном пуле по числу процессоров, а не в общем {@link ForkJoinPool#commonPool()}:
+ * большой пакет не занимает потоки, нужные остальному приложению.
+ */
+final class BatchValidation {
+    private static final ForkJoinPool POOL = new ForkJoinPool(Runtime.getRuntime().availableProcessors(), pool -> {
+        ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+        thread.setName("batch-validation-" + thread.getPoolIndex());
+        thread.setDaemon(true);
+        return thread;
+    }, null, false);
+
+    private BatchValidation() {
+    }
+
+    static <T> List<Map<String, String>> validate(Validator validator, List<T> items) {
+        // параллельный поток, запущенный из задачи пула, выполняется в этом пуле
+        return POOL.submit(() -> IntStream.range(0, items.size())
+                .parallel()
+                .mapToObj(i -> errors(validator, items.get(i)))
+                .toList()).join();
+    }
+
+    private static <T> Map<String, String> errors(Validator validator, T item) {
+        if (item == null) {
+            return Map.of("error", "Пустой элемент");
+        }
+        Map<String, String> errors = new HashMap<>();
+        for (ConstraintViolation<T> violation : validator.validate(item)) {
+            errors.put(violation.getPropertyPath().toString(), violation.getMessage());
+        }
+        return errors;
+    }
+}
@@ -1,48 +1,246 @@
 package ru.yandex.practicum.filmorate.service;
 
+import jakarta.validation.Validator;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.stereotype.Service;
+import ru.yandex.practicum.filmorate.exceptions.NotFoundException;
+import ru.yandex.practicum.filmorate.exceptions.OverloadedException;
+import ru.yandex.practicum.filmorate.model.BatchItemResult;
 import ru.yandex.practicum.filmorate.model.Film;
-import ru.yandex.practicum.filmorate.storage.film.InMemoryFilmStorage;
-import ru.yandex.practicum.filmorate.storage.user.InMemoryUserStorage;
+import ru.yandex.practicum.filmorate.model.FilmLike;
+import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.film.TrendWindow;
+import ru.yandex.practicum.filmorate.storage.user.UserStorage;
 
-import java.util.Collection;
-import java.util.List;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 @Service
 public class FilmService {
-    private final InMemoryFilmStorage inMemoryFilmStorage;
-    private final InMemoryUserStorage inMemoryUserStorage;
+    private final FilmStorage filmStorage;
+    private final UserStorage userStorage;
+    private final Validator validator;
+    private final PopularFilmsCache popularFilmsCache;
+    // null — лайки пишутся в хранилище синхронно
+    private final LikeIngestionPipeline likePipeline;
 
-    public FilmService(InMemoryFilmStorage inMemoryFilmStorage, InMemoryUserStorage inMemoryUserStorage) {
-        this.inMemoryFilmStorage = inMemoryFilmStorage;
-        this.inMemoryUserStorage = inMemoryUserStorage;
+    public FilmService(FilmStorage filmStorage, UserStorage userStorage, Validator validator,
+                       PopularFilmsCache popularFilmsCache, ObjectProvider<LikeIngestionPipeline> likePipeline) {
+        this.filmStorage = filmStorage;
+        this.userStorage = userStorage;
+        this.validator = validator;
+        this.popularFilmsCache = popularFilmsCache;
+        this.likePipeline = likePipeline.getIfAvailable();
     }
 
+    /**
+     * Пользователи из лайков нового фильма должны существовать, иначе — 404, как при лайке.
+     */
     public Film createFilm(final Film film) {
-        return inMemoryFilmStorage.createFilm(film);
+        Set<Long> userIds = likedUserIds(film);
+        if (userStorage.findExistingIds(userIds).size() != userIds.size()) {
+            throw new NotFoundException("Пользователь не найден");
+        }
+        return filmStorage.createFilm(film);
+    }
+
+    /**
+     * Проверяет фильмы параллельно и сохраняет корректные одной операцией хранилища. Пользователи
+     * из лайков всех фильмов проверяются одним запросом.
+     */
+    public List<BatchItemResult> createFilms(final List<Film> films) {
+        List<Map<String, String>> errors = BatchValidation.validate(validator, films);
+        Set<Long> userIds = new HashSet<>();
+        for (int i = 0; i < films.size(); i++) {
+            if (errors.get(i).isEmpty()) {
+                userIds.addAll(likedUserIds(films.get(i)));
+            }
+        }
+        Set<Long> existingUsers = userStorage.findExistingIds(userIds);
+
+        List<Film> valid = new ArrayList<>(films.size());
+        boolean[] unknownUsers = new boolean[films.size()];
+        for (int i = 0; i < films.size(); i++) {
+            if (!errors.get(i).isEmpty()) {
+                continue;
+            }
+            unknownUsers[i] = !existingUsers.containsAll(likedUserIds(films.get(i)));
+            if (!unknownUsers[i]) {
+                valid.add(films.get(i));
+            }
+        }
+        filmStorage.createFilms(valid);
+
+        List<BatchItemResult> results = new ArrayList<>(films.size());
+        for (int i = 0; i < films.size(); i++) {
+            if (!errors.get(i).isEmpty()) {
+                results.add(BatchItemResult.invalid(i, errors.get(i)));
+            } else if (unknownUsers[i]) {
+                results.add(BatchItemResult.notFound(i, "Пользователь не найден"));
+            } else {
+                results.add(BatchItemResult.builder().index(i).status(BatchItemResult.Status.CREATED)
+                        .id(films.get(i).getId()).build());
+            }
+        }
+        return results;
     }
 
     public Film updateFilm(final Film film) {
-        return inMemoryFilmStorage.updateFilm(film);
+        return filmStorage.updateFilm(film);
     }
 
     public Film deleteFilm(final Long filmId) {
-        return inMemoryFilmStorage.deleteFilm(filmId);
+        return filmStorage.deleteFilm(filmId);
     }
 
     public Collection<Film> getAllFilms() {
-        return inMemoryFilmStorage.getAll();
+        return filmStorage.getAll();
+    }
+
+    public List<Film> getFilmsPage(final long afterId, final int limit) {
+        return filmStorage.getPage(afterId, limit);
     }
 
     public List<Film> getPopularFilms(Long count) {
-        return inMemoryFilmStorage.getPopularFilms(count);
+        return filmStorage.getPopularFilms(count);
+    }
+
+    public List<Film> getTrendingFilms(final TrendWindow window, final long count) {
+        return filmStorage.getTrendingFilms(window, count);
+    }
+
+    /**
+     * Выдача популярных фильмов, уже сериализованная в JSON; повторные запросы без значимых изменений
+     * лайков отдаются из кеша.
+     */
+    public PopularFilmsCache.Response getPopularFilmsJson(long count) {
+        return popularFilmsCache.get(count);
     }
 
     public Film addLike(final Long filmId, final Long userId) {
-        return inMemoryFilmStorage.addLike(filmId, userId, inMemoryUserStorage);
+        return addLike(filmId, userId, true);
+    }
+
+    /**
+     * При асинхронной записи лайков {@code awaitWrite=false} возвращает {@code null}, не дожидаясь
+     * применения; иначе возвращается фильм уже с этим лайком.
+     */
+    public Film addLike(final Long filmId, final Long userId, final boolean awaitWrite) {
+        requireFilm(filmId);
+        requireUser(userId);
+        if (likePipeline == null) {
+            filmStorage.addLike(filmId, userId);
+        } else if (!submitLike(filmId, userId, true, awaitWrite)) {
+            return null;
+        }
+        // копия фильма снимается один раз — для тела ответа
+        return filmStorage.getFilmById(filmId);
+    }
+
+    /**
+     * Существование всех фильмов и пользователей проверяется двумя запросами к хранилищам,
+     * затем корректные лайки добавляются одной операцией.
+     */
+    public List<BatchItemResult> addLikes(final List<FilmLike> likes) {
+        List<Map<String, String>> errors = BatchValidation.validate(validator, likes);
+        Set<Long> filmIds = new HashSet<>();
+        Set<Long> userIds = new HashSet<>();
+        for (int i = 0; i < likes.size(); i++) {
+            if (errors.get(i).isEmpty()) {
+                filmIds.add(likes.get(i).getFilmId());
+                userIds.add(likes.get(i).getUserId());
+            }
+        }
+        Set<Long> existingFilms = filmStorage.findExistingIds(filmIds);
+        Set<Long> existingUsers = userStorage.findExistingIds(userIds);
+
+        List<FilmLike> valid = new ArrayList<>(likes.size());
+        List<BatchItemResult> results = new ArrayList<>(likes.size());
+        for (int i = 0; i < likes.size(); i++) {
+            FilmLike like = likes.get(i);
+            if (!errors.get(i).isEmpty()) {
+                results.add(BatchItemResult.invalid(i, errors.get(i)));
+            } else if (!existingFilms.contains(like.getFilmId())) {
+                results.add(BatchItemResult.notFound(i, "Фильм не найден"));
+            } else if (!existingUsers.contains(like.getUserId())) {
+                results.add(BatchItemResult.notFound(i, "Пользователь не найден"));
+            } else {
+                valid.add(like);
+                results.add(BatchItemResult.builder().index(i).status(BatchItemResult.Status.APPLIED)
+                        .id(like.getFilmId()).build());
+            }
+        }
+        // фильм мог быть удалён после проверки: его лайки хранилище пропустило
+        Set<Long> deleted = filmStorage.addLikes(valid);
+        for (int i = 0; i < likes.size() && !deleted.isEmpty(); i++) {
+            if (results.get(i).getStatus() == BatchItemResult.Status.APPLIED
+                    && deleted.contains(likes.get(i).getFilmId())) {
+                results.set(i, BatchItemResult.notFound(i, "Фильм не найден"));
+            }
+        }
+        return results;
     }
 
     public Film removeLike(final Long filmId, final Long userId) {
-        return inMemoryFilmStorage.removeLike(filmId, userId, inMemoryUserStorage);
+        return removeLike(filmId, userId, true);
+    }
+
+    public Film removeLike(final Long filmId, final Long userId, final boolean awaitWrite) {
+        requireFilm(filmId);
+        requireUser(userId);
+        if (likePipeline == null) {
+            filmStorage.removeLike(filmId, userId);
+        } else if (!submitLike(filmId, userId, false, awaitWrite)) {
+            return null;
+        }
+        return filmStorage.getFilmById(filmId);
+    }
+
+    /**
+     * @return {@code false}, если лайк поставлен в очередь без ожидания записи
+     */
+    private boolean submitLike(Long filmId, Long userId, boolean like, boolean awaitWrite) {
+        CompletableFuture<Void> applied = likePipeline.submit(filmId, userId, like);
+        if (!awaitWrite) {
+            return false;
+        }
+        try {
+            applied.get(likePipeline.applyTimeout().toMillis(), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            throw new OverloadedException("Лайк не записан вовремя, повторите запрос позже");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IllegalStateException(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new OverloadedException("Ожидание записи лайка прервано");
+        }
+        return true;
+    }
+
+    /**
+     * Проверка существования без копирования фильма.
+     */
+    private void requireFilm(Long filmId) {
+        if (!filmStorage.exists(filmId)) {
+            throw new NotFoundException("Фильм не найден");
+        }
+    }
+
+    private void requireUser(Long userId) {
+        if (!userStorage.exists(userId)) {
+            throw new NotFoundException("Пользователь не найден");
+        }
+    }
+
+    private static Set<Long> likedUserIds(Film film) {
+        Set<Long> userIds = new HashSet<>();
+        film.getLikes().forEachLong(userIds::add);
+        return userIds;
     }
 }
@@ -0,0 +1,29 @@
+package ru.yandex.practicum.filmorate.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
+
+import java.time.Duration;
+
+/**
+ * Асинхронная запись лайков включается свойством {@code filmorate.likes.ingestion=async};
+ * по умолчанию лайк записывается в хранилище прямо в потоке запроса.
+ */
+@Configuration
+public class LikeIngestionConfig {
+
+    @Bean
+    @ConditionalOnProperty(name = "filmorate.likes.ingestion", havingValue = "async")
+    public LikeIngestionPipeline likeIngestionPipeline(
+            FilmStorage filmStorage,
+            @Value("${filmorate.likes.partitions:0}") int partitions,
+            @Value("${filmorate.likes.buffer-size:8192}") int bufferSize,
+            @Value("${filmorate.likes.max-batch:1024}") int maxBatch,
+            @Value("${filmorate.likes.apply-timeout:5s}") Duration applyTimeout) {
+        int writers = partitions > 0 ? partitions : Runtime.getRuntime().availableProcessors();
+        return new LikeIngestionPipeline(filmStorage, writers, bufferSize, maxBatch, applyTimeout);
+    }
+}
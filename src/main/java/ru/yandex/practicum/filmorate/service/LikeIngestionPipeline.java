@@ -0,0 +1,201 @@
+package ru.yandex.practicum.filmorate.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import ru.yandex.practicum.filmorate.exceptions.NotFoundException;
+import ru.yandex.practicum.filmorate.exceptions.OverloadedException;
+import ru.yandex.practicum.filmorate.model.FilmLike;
+import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Асинхронная запись лайков. События «лайк»/«снятие лайка» попадают в ограниченную очередь партиции
+ * (партиция выбирается по id фильма), и единственный поток-писатель партиции забирает их пачками.
+ *
+ * <p>Внутри пачки события одной пары «фильм — пользователь» схлопываются до последнего: операции над
+ * множеством лайков идемпотентны, поэтому результат тот же, а повторные лайки и пары «лайк — снятие»
+ * не доходят до хранилища. Лайки одного фильма применяются одним вызовом {@link FilmStorage#addLikes}
+ * и {@link FilmStorage#removeLikes}, так что популярный фильм обновляется раз на пачку, а не на лайк.
+ *
+ * <p>Когда очередь партиции заполнена или запись остановлена, {@link #submit} сразу бросает
+ * {@link OverloadedException}.
+ *
+ * <p>Существование пользователя проверяет вызывающий до постановки в очередь, и пользователь, удалённый
+ * до применения события, оставит висячий лайк. Повторно он здесь не проверяется — удаление всё равно
+ * может вклиниться между проверкой и записью. Такие лайки в памяти снимает
+ * {@link ru.yandex.practicum.filmorate.storage.ConsistencyChecker}, при повторе журнала они пропускаются,
+ * а в профиле {@code jdbc} их не пропускает внешний ключ.
+ */
+@Slf4j
+public class LikeIngestionPipeline {
+    private static final long POLL_MILLIS = 100;
+    private static final Duration DEFAULT_APPLY_TIMEOUT = Duration.ofSeconds(5);
+
+    private final FilmStorage filmStorage;
+    private final int maxBatch;
+    private final List<BlockingQueue<LikeEvent>> partitions;
+    private final Duration applyTimeout;
+    private final List<Thread> writers = new ArrayList<>();
+    private volatile boolean running;
+    private volatile boolean stopped;
+
+    public LikeIngestionPipeline(FilmStorage filmStorage, int partitions, int bufferSize, int maxBatch) {
+        this(filmStorage, partitions, bufferSize, maxBatch, DEFAULT_APPLY_TIMEOUT);
+    }
+
+    public LikeIngestionPipeline(FilmStorage filmStorage, int partitions, int bufferSize, int maxBatch,
+                                 Duration applyTimeout) {
+        this.filmStorage = filmStorage;
+        this.maxBatch = maxBatch;
+        this.applyTimeout = applyTimeout;
+        this.partitions = new ArrayList<>(partitions);
+        for (int i = 0; i < partitions; i++) {
+            this.partitions.add(new ArrayBlockingQueue<>(bufferSize));
+        }
+    }
+
+    @PostConstruct
+    public void start() {
+        running = true;
+        for (int i = 0; i < partitions.size(); i++) {
+            BlockingQueue<LikeEvent> queue = partitions.get(i);
+            Thread writer = new Thread(() -> runWriter(queue), "like-writer-" + i);
+            writer.setDaemon(true);
+            writer.start();
+            writers.add(writer);
+        }
+        log.info("Асинхронная запись лайков запущена: партиций {}", partitions.size());
+    }
+
+    /**
+     * Останавливает писателей; уже принятые события применяются до выхода. События, попавшие в очередь
+     * после выхода писателей, завершаются с {@link OverloadedException}.
+     */
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        stopped = true;
+        running = false;
+        for (Thread writer : writers) {
+            writer.join();
+        }
+        List<LikeEvent> stranded = new ArrayList<>();
+        partitions.forEach(queue -> queue.drainTo(stranded));
+        stranded.forEach(event -> event.applied().completeExceptionally(stoppedException()));
+    }
+
+    /**
+     * Ставит событие в очередь. Возвращённый future завершается, когда изменение применено к хранилищу,
+     * — на нём вызывающий ждёт, если ему нужно прочитать собственную запись.
+     */
+    public CompletableFuture<Void> submit(long filmId, long userId, boolean like) {
+        if (stopped) {
+            throw stoppedException();
+        }
+        LikeEvent event = new LikeEvent(filmId, userId, like, new CompletableFuture<>());
+        BlockingQueue<LikeEvent> queue = partitions.get(partition(filmId));
+        if (!queue.offer(event)) {
+            throw new OverloadedException("Очередь лайков заполнена, повторите запрос позже");
+        }
+        // остановка могла начаться после проверки: если событие ещё в очереди, его уже никто не заберёт,
+        // иначе его завершит писатель или stop()
+        if (stopped && queue.remove(event)) {
+            throw stoppedException();
+        }
+        return event.applied();
+    }
+
+    /**
+     * Сколько вызывающему ждать применения события, прежде чем ответить перегрузкой.
+     */
+    public Duration applyTimeout() {
+        return applyTimeout;
+    }
+
+    private static OverloadedException stoppedException() {
+        return new OverloadedException("Запись лайков остановлена, повторите запрос позже");
+    }
+
+    private int partition(long filmId) {
+        return (int) Math.floorMod(filmId ^ (filmId >>> 32), (long) partitions.size());
+    }
+
+    private void runWriter(BlockingQueue<LikeEvent> queue) {
+        List<LikeEvent> batch = new ArrayList<>(maxBatch);
+        while (running || !queue.isEmpty()) {
+            try {
+                LikeEvent first = queue.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, maxBatch - 1);
+                apply(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void apply(List<LikeEvent> batch) {
+        Map<Long, List<LikeEvent>> byFilm = new HashMap<>();
+        for (LikeEvent event : batch) {
+            byFilm.computeIfAbsent(event.filmId(), id -> new ArrayList<>()).add(event);
+        }
+        byFilm.forEach((filmId, events) -> {
+            // последнее событие пары побеждает, порядок внутри фильма сохраняется очередью
+            Map<Long, Boolean> finalState = new LinkedHashMap<>();
+            for (LikeEvent event : events) {
+                finalState.put(event.userId(), event.like());
+            }
+            List<FilmLike> added = new ArrayList<>();
+            List<FilmLike> removed = new ArrayList<>();
+            finalState.forEach((userId, like) -> (like ? added : removed).add(new FilmLike(filmId, userId)));
+            RuntimeException addFailure = applyGroup(filmId, added, filmStorage::addLikes);
+            RuntimeException removeFailure = applyGroup(filmId, removed, filmStorage::removeLikes);
+            for (LikeEvent event : events) {
+                // схлопнутое событие разделяет судьбу итоговой операции своего пользователя
+                RuntimeException failure = finalState.get(event.userId()) ? addFailure : removeFailure;
+                if (failure == null) {
+                    event.applied().complete(null);
+                } else {
+                    event.applied().completeExceptionally(failure);
+                }
+            }
+            if (events.size() > finalState.size()) {
+                log.debug("Фильм {}: {} событий схлопнуто до {}", filmId, events.size(), finalState.size());
+            }
+        });
+    }
+
+    /**
+     * @return ошибка записи группы или {@code null}, если группа применена
+     */
+    private RuntimeException applyGroup(long filmId, List<FilmLike> likes, Function<List<FilmLike>, Set<Long>> write) {
+        if (likes.isEmpty()) {
+            return null;
+        }
+        try {
+            if (write.apply(likes).contains(filmId)) {
+                return new NotFoundException("Фильм не найден");
+            }
+            return null;
+        } catch (RuntimeException e) {
+            log.warn("Не удалось применить лайки фильма {}: {}", filmId, e.getMessage());
+            return e;
+        }
+    }
+
+    private record LikeEvent(long filmId, long userId, boolean like, CompletableFuture<Void> applied) {
+    }
+}
@@ -0,0 +1,125 @@
+package ru.yandex.practicum.filmorate.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
+
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Готовый JSON выдачи {@code /films/popular} для каждого запрошенного {@code count}.
+ *
+ * <p>Запись устаревает, только если изменение могло поменять её содержимое: изменился или удалён фильм
+ * из выдачи, либо у другого фильма стало столько лайков, что он попадает в первые {@code count}.
+ * Лайки фильмов далеко за пределами выдачи запись не трогают. Пересчёт выполняется лениво, при
+ * следующем запросе.
+ *
+ * <p>Версия хранилища, при которой построена запись, служит ETag ответа, время построения —
+ * Last-Modified.
+ */
+@Component
+public class PopularFilmsCache {
+    // защита от неограниченного роста: остальные значения count считаются без кеша
+    private static final int MAX_ENTRIES = 64;
+
+    private final FilmStorage filmStorage;
+    private final ObjectMapper objectMapper;
+    private final Map<Long, Entry> entries = new ConcurrentHashMap<>();
+
+    public PopularFilmsCache(FilmStorage filmStorage, ObjectMapper objectMapper) {
+        this.filmStorage = filmStorage;
+        this.objectMapper = objectMapper;
+        filmStorage.addChangeListener(this::filmChanged);
+    }
+
+    public Response get(long count) {
+        Entry cached = entries.get(count);
+        if (cached != null && !cached.stale) {
+            return cached.response;
+        }
+        long version = filmStorage.version();
+        List<Film> films = filmStorage.getPopularFilms(count);
+        Entry computed = new Entry(count, films, serialize(films), version, lastModified(cached));
+        boolean stored = cached != null
+                ? entries.replace(count, cached, computed)
+                : count > 0 && entries.size() < MAX_ENTRIES && entries.putIfAbsent(count, computed) == null;
+        // изменение между чтением версии и сохранением записи могло пройти мимо неё
+        if (stored && filmStorage.version() != version) {
+            computed.stale = true;
+        }
+        return computed.response;
+    }
+
+    private void filmChanged(long filmId, int likes) {
+        for (Entry entry : entries.values()) {
+            if (!entry.stale && entry.affectedBy(filmId, likes)) {
+                entry.stale = true;
+            }
+        }
+    }
+
+    private byte[] serialize(List<Film> films) {
+        try {
+            return objectMapper.writeValueAsBytes(films);
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * HTTP-даты хранят секунды, поэтому пересчитанная запись получает время хотя бы на секунду позже
+     * прежней — иначе клиент с If-Modified-Since получил бы 304 на изменённую выдачу.
+     */
+    private static long lastModified(Entry previous) {
+        long now = System.currentTimeMillis() / 1000 * 1000;
+        return previous == null ? now : Math.max(now, previous.response.lastModified() + 1000);
+    }
+
+    /**
+     * @param body         JSON-массив фильмов
+     * @param version      версия хранилища, при которой построена выдача
+     * @param lastModified время построения в миллисекундах, кратное секунде
+     */
+    public record Response(byte[] body, long version, long lastModified) {
+    }
+
+    private static final class Entry {
+        final Response response;
+        // id фильмов выдачи по возрастанию, для двоичного поиска
+        final long[] filmIds;
+        final boolean full;
+        // последний фильм выдачи: чтобы попасть в неё, нужно его обогнать
+        final int minLikes;
+        final long minLikesFilmId;
+        volatile boolean stale;
+
+        Entry(long count, List<Film> films, byte[] body, long version, long lastModified) {
+            this.response = new Response(body, version, lastModified);
+            this.filmIds = films.stream().mapToLong(Film::getId).sorted().toArray();
+            this.full = films.size() >= count;
+            Film last = films.isEmpty() ? null : films.get(films.size() - 1);
+            this.minLikes = last == null ? 0 : last.getLikes().size();
+            this.minLikesFilmId = last == null ? 0 : last.getId();
+        }
+
+        boolean affectedBy(long filmId, int likes) {
+            if (Arrays.binarySearch(filmIds, filmId) >= 0) {
+                return true;
+            }
+            if (likes <= 0) {
+                return false;
+            }
+            if (!full) {
+                return true;
+            }
+            // порядок выдачи: лайки по убыванию, при равенстве id по возрастанию
+            return likes > minLikes || likes == minLikes && filmId < minLikesFilmId;
+        }
+    }
+}
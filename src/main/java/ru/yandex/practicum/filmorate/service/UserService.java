@@ -1,53 +1,168 @@
 package ru.yandex.practicum.filmorate.service;
 
+import jakarta.validation.Validator;
 import org.springframework.stereotype.Service;
+import ru.yandex.practicum.filmorate.exceptions.NotFoundException;
+import ru.yandex.practicum.filmorate.model.BatchItemResult;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Friendship;
 import ru.yandex.practicum.filmorate.model.User;
-import ru.yandex.practicum.filmorate.storage.user.InMemoryUserStorage;
+import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.user.UserStorage;
 
-import java.util.Collection;
-import java.util.Set;
+import java.util.*;
 
 @Service
 public class UserService {
-    private final InMemoryUserStorage inMemoryUserStorage;
+    private final UserStorage userStorage;
+    private final FilmStorage filmStorage;
+    private final Validator validator;
 
-    public UserService(InMemoryUserStorage inMemoryUserStorage) {
-        this.inMemoryUserStorage = inMemoryUserStorage;
+    public UserService(UserStorage userStorage, FilmStorage filmStorage, Validator validator) {
+        this.userStorage = userStorage;
+        this.filmStorage = filmStorage;
+        this.validator = validator;
     }
 
     public User createUser(final User user) {
-        return inMemoryUserStorage.createUser(user);
+        defaultName(user);
+        return userStorage.createUser(user);
+    }
+
+    /**
+     * Проверяет пользователей параллельно и сохраняет корректных одной операцией хранилища.
+     */
+    public List<BatchItemResult> createUsers(final List<User> users) {
+        List<Map<String, String>> errors = BatchValidation.validate(validator, users);
+        List<User> valid = new ArrayList<>(users.size());
+        for (int i = 0; i < users.size(); i++) {
+            if (errors.get(i).isEmpty()) {
+                defaultName(users.get(i));
+                valid.add(users.get(i));
+            }
+        }
+        userStorage.createUsers(valid);
+
+        List<BatchItemResult> results = new ArrayList<>(users.size());
+        for (int i = 0; i < users.size(); i++) {
+            results.add(errors.get(i).isEmpty()
+                    ? BatchItemResult.builder().index(i).status(BatchItemResult.Status.CREATED)
+                            .id(users.get(i).getId()).build()
+                    : BatchItemResult.invalid(i, errors.get(i)));
+        }
+        return results;
     }
 
     public User updateUser(final User user) {
-        return inMemoryUserStorage.updateUser(user);
+        return userStorage.updateUser(user);
     }
 
+    /**
+     * Лайки пользователя снимаются через хранилище фильмов, чтобы обновились индекс популярности и кеш
+     * популярных фильмов; ссылки из друзей убирает хранилище пользователей (в БД — внешние ключи).
+     */
     public User deleteUser(final Long userId) {
-        return inMemoryUserStorage.deleteUser(userId);
+        requireUser(userId);
+        filmStorage.removeLikesOfUser(userId);
+        return userStorage.deleteUser(userId);
     }
 
     public Collection<User> getAllUsers() {
-        return inMemoryUserStorage.getAll();
+        return userStorage.getAll();
+    }
+
+    public List<User> getUsersPage(final long afterId, final int limit) {
+        return userStorage.getPage(afterId, limit);
     }
 
+    /**
+     * Оба пользователя проверяются до записи, как в {@code FilmService#addLike}: хранилище в БД
+     * иначе ответило бы нарушением внешнего ключа.
+     */
     public User addFriend(final Long userId, final Long friendId) {
-        return inMemoryUserStorage.addFriend(userId, friendId);
+        requireUser(userId);
+        requireUser(friendId);
+        userStorage.addFriend(userId, friendId);
+        // копия пользователя снимается один раз — для тела ответа
+        return userStorage.getUserById(userId);
+    }
+
+    public List<BatchItemResult> addFriends(final List<Friendship> friendships) {
+        List<Map<String, String>> errors = BatchValidation.validate(validator, friendships);
+        Set<Long> userIds = new HashSet<>();
+        for (int i = 0; i < friendships.size(); i++) {
+            if (errors.get(i).isEmpty()) {
+                userIds.add(friendships.get(i).getUserId());
+                userIds.add(friendships.get(i).getFriendId());
+            }
+        }
+        Set<Long> existing = userStorage.findExistingIds(userIds);
+
+        List<Friendship> valid = new ArrayList<>(friendships.size());
+        List<BatchItemResult> results = new ArrayList<>(friendships.size());
+        for (int i = 0; i < friendships.size(); i++) {
+            Friendship friendship = friendships.get(i);
+            if (!errors.get(i).isEmpty()) {
+                results.add(BatchItemResult.invalid(i, errors.get(i)));
+            } else if (!existing.contains(friendship.getUserId()) || !existing.contains(friendship.getFriendId())) {
+                results.add(BatchItemResult.notFound(i, "Пользователь не найден"));
+            } else {
+                valid.add(friendship);
+                results.add(BatchItemResult.builder().index(i).status(BatchItemResult.Status.APPLIED)
+                        .id(friendship.getUserId()).build());
+            }
+        }
+        userStorage.addFriends(valid);
+        return results;
     }
 
     public User removeFriend(final Long userId, final Long friendId) {
-        return inMemoryUserStorage.removeFriend(userId, friendId);
+        requireUser(userId);
+        requireUser(friendId);
+        userStorage.removeFriend(userId, friendId);
+        return userStorage.getUserById(userId);
+    }
+
+    public User getUser(final Long userId) {
+        return userStorage.getUserById(userId);
+    }
+
+    /**
+     * Фильмы, лайкнутые пользователем, страницами по id фильма; читаются из обратного индекса лайков.
+     */
+    public List<Film> getFavouriteFilms(final Long userId, final long afterId, final int limit) {
+        requireUser(userId);
+        return filmStorage.getLikedFilms(userId, afterId, limit);
+    }
+
+    public List<User> getCommonFriends(final Long userId, final Long otherId) {
+        return userStorage.getCommonFriends(userId, List.of(otherId));
+    }
+
+    public List<User> getCommonFriends(final Long userId, final Collection<Long> otherIds) {
+        return userStorage.getCommonFriends(userId, otherIds);
+    }
+
+    public int countCommonFriends(final Long userId, final Collection<Long> otherIds) {
+        return userStorage.countCommonFriends(userId, otherIds);
     }
 
-    public User getFavouriteFilms(final Long userId) {
-        return null;
+    public List<User> getAllFriends(final Long userId) {
+        return userStorage.getFriends(userId);
     }
 
-    public Set<User> getCommonFriends(final Long userId, final Long otherId) {
-        return inMemoryUserStorage.getCommonFriend(userId, otherId);
+    /**
+     * Проверка существования без копирования пользователя и его друзей.
+     */
+    private void requireUser(Long userId) {
+        if (!userStorage.exists(userId)) {
+            throw new NotFoundException("Пользователь не найден");
+        }
     }
 
-    public Set<User> getAllFriends(final Long userId) {
-        return inMemoryUserStorage.getFriends(userId);
+    private static void defaultName(User user) {
+        if (user.getName() == null || user.getName().isBlank()) {
+            user.setName(user.getLogin());
+        }
     }
 }
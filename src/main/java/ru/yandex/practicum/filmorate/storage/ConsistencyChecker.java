@@ -0,0 +1,208 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import ru.yandex.practicum.filmorate.exceptions.NotFoundException;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmLike;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.film.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.user.InMemoryUserStorage;
+
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Фоновая проверка целостности хранилищ в памяти. За шаг проверяется порция пользователей и фильмов
+ * после курсора, дойдя до конца, обход начинается сначала. Ищутся:
+ * <ul>
+ *     <li>друзья, которых нет в хранилище, и односторонняя дружба;</li>
+ *     <li>лайки несуществующих пользователей;</li>
+ *     <li>расхождения обратного индекса лайков с лайками фильмов.</li>
+ * </ul>
+ *
+ * <p>Нарушение может быть промежуточным состоянием изменения, которое выполняется прямо сейчас,
+ * поэтому исправляется только на следующем шаге и только если всё ещё есть.
+ */
+@Slf4j
+public class ConsistencyChecker {
+    private final InMemoryFilmStorage filmStorage;
+    private final InMemoryUserStorage userStorage;
+    private final int batchSize;
+    private final Duration interval;
+    private ScheduledExecutorService scheduler;
+    // состояние обхода меняется только в step() под stepLock
+    private long userCursor;
+    private long filmCursor;
+    private Set<Issue> suspected = new HashSet<>();
+    // ReentrantLock, а не synchronized: шаг пишет в журнал и может ждать диска, не закрепляя виртуальный поток
+    private final ReentrantLock stepLock = new ReentrantLock();
+
+    public ConsistencyChecker(InMemoryFilmStorage filmStorage, InMemoryUserStorage userStorage,
+                              int batchSize, Duration interval) {
+        this.filmStorage = filmStorage;
+        this.userStorage = userStorage;
+        this.batchSize = batchSize;
+        this.interval = interval;
+    }
+
+    @PostConstruct
+    public void start() {
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "consistency-checker");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long period = interval.toMillis();
+        scheduler.scheduleWithFixedDelay(this::stepQuietly, period, period, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+    }
+
+    /**
+     * Исправляет нарушения, найденные на прошлом шаге и не исчезнувшие, и проверяет следующую порцию.
+     * Возвращает число исправлений.
+     */
+    public int step() {
+        stepLock.lock();
+        try {
+            return checkNextBatch();
+        } finally {
+            stepLock.unlock();
+        }
+    }
+
+    private int checkNextBatch() {
+        int repaired = 0;
+        for (Issue issue : suspected) {
+            if (isPresent(issue)) {
+                repair(issue);
+                repaired++;
+            }
+        }
+        Set<Issue> found = new HashSet<>();
+        List<User> users = userStorage.getPage(userCursor, batchSize);
+        checkUsers(users, found);
+        userCursor = users.size() < batchSize ? 0 : users.get(users.size() - 1).getId();
+        List<Film> films = filmStorage.getPage(filmCursor, batchSize);
+        checkFilms(films, found);
+        filmCursor = films.size() < batchSize ? 0 : films.get(films.size() - 1).getId();
+        suspected = found;
+
+        if (repaired > 0) {
+            log.warn("Исправлено нарушений целостности хранилищ: {}", repaired);
+        }
+        return repaired;
+    }
+
+    private void stepQuietly() {
+        try {
+            step();
+        } catch (RuntimeException e) {
+            log.error("Проверка целостности хранилищ завершилась ошибкой", e);
+        }
+    }
+
+    private void checkUsers(List<User> users, Set<Issue> found) {
+        Set<Long> friendIds = new HashSet<>();
+        users.forEach(user -> user.getFriends().forEachLong(friendIds::add));
+        Set<Long> existing = userStorage.findExistingIds(friendIds);
+        for (User user : users) {
+            long userId = user.getId();
+            user.getFriends().forEachLong(friendId -> {
+                if (!existing.contains(friendId)) {
+                    found.add(new DanglingFriend(userId, friendId));
+                } else if (!isFriend(friendId, userId)) {
+                    found.add(new OneSidedFriendship(userId, friendId));
+                }
+            });
+            for (long filmId : filmStorage.getLikedFilmIds(userId)) {
+                if (!isLiked(filmId, userId)) {
+                    found.add(new IndexMismatch(filmId, userId));
+                }
+            }
+        }
+    }
+
+    private void checkFilms(List<Film> films, Set<Issue> found) {
+        Set<Long> userIds = new HashSet<>();
+        films.forEach(film -> film.getLikes().forEachLong(userIds::add));
+        Set<Long> existing = userStorage.findExistingIds(userIds);
+        for (Film film : films) {
+            long filmId = film.getId();
+            film.getLikes().forEachLong(userId -> {
+                if (!existing.contains(userId)) {
+                    found.add(new DanglingLike(filmId, userId));
+                } else if (!filmStorage.isLikeIndexed(filmId, userId)) {
+                    found.add(new IndexMismatch(filmId, userId));
+                }
+            });
+        }
+    }
+
+    private boolean isPresent(Issue issue) {
+        return switch (issue) {
+            case DanglingFriend dangling -> isFriend(dangling.userId(), dangling.friendId())
+                    && userStorage.findExistingIds(List.of(dangling.friendId())).isEmpty();
+            case OneSidedFriendship oneSided -> isFriend(oneSided.userId(), oneSided.friendId())
+                    && userStorage.findExistingIds(List.of(oneSided.friendId())).size() == 1
+                    && !isFriend(oneSided.friendId(), oneSided.userId());
+            case DanglingLike dangling -> isLiked(dangling.filmId(), dangling.userId())
+                    && userStorage.findExistingIds(List.of(dangling.userId())).isEmpty();
+            case IndexMismatch mismatch -> filmStorage.isLikeIndexed(mismatch.filmId(), mismatch.userId())
+                    != isLiked(mismatch.filmId(), mismatch.userId());
+        };
+    }
+
+    private void repair(Issue issue) {
+        log.debug("Исправляется нарушение целостности: {}", issue);
+        try {
+            switch (issue) {
+                case DanglingFriend dangling -> userStorage.removeDanglingFriend(dangling.userId(), dangling.friendId());
+                case OneSidedFriendship oneSided -> userStorage.addFriend(oneSided.userId(), oneSided.friendId());
+                case DanglingLike dangling ->
+                        filmStorage.removeLikes(List.of(new FilmLike(dangling.filmId(), dangling.userId())));
+                case IndexMismatch mismatch -> filmStorage.reindexLike(mismatch.filmId(), mismatch.userId());
+            }
+        } catch (NotFoundException e) {
+            // участник удалён после проверки — нарушение исчезло вместе с ним
+            log.debug("Нарушение {} исчезло: {}", issue, e.getMessage());
+        }
+    }
+
+    // сущности не копируются; отсутствие сущности здесь — обычный исход, а не ошибка
+    private boolean isFriend(long userId, long friendId) {
+        return userStorage.hasFriend(userId, friendId);
+    }
+
+    private boolean isLiked(long filmId, long userId) {
+        return filmStorage.hasLike(filmId, userId);
+    }
+
+    private sealed interface Issue {
+    }
+
+    private record DanglingFriend(long userId, long friendId) implements Issue {
+    }
+
+    private record OneSidedFriendship(long userId, long friendId) implements Issue {
+    }
+
+    private record DanglingLike(long filmId, long userId) implements Issue {
+    }
+
+    private record IndexMismatch(long filmId, long userId) implements Issue {
+    }
+}
@@ -0,0 +1,30 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import ru.yandex.practicum.filmorate.storage.film.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.user.InMemoryUserStorage;
+
+import java.time.Duration;
+
+/**
+ * Фоновая проверка целостности хранилищ в памяти; отключается свойством
+ * {@code filmorate.consistency.enabled=false}. В БД целостность обеспечивают внешние ключи.
+ */
+@Configuration
+@Profile("!jdbc & !offheap")
+public class ConsistencyConfig {
+
+    @Bean
+    @ConditionalOnProperty(name = "filmorate.consistency.enabled", havingValue = "true", matchIfMissing = true)
+    public ConsistencyChecker consistencyChecker(
+            InMemoryFilmStorage filmStorage,
+            InMemoryUserStorage userStorage,
+            @Value("${filmorate.consistency.batch-size:1000}") int batchSize,
+            @Value("${filmorate.consistency.interval:1m}") Duration interval) {
+        return new ConsistencyChecker(filmStorage, userStorage, batchSize, interval);
+    }
+}
@@ -0,0 +1,14 @@
+package ru.yandex.practicum.filmorate.storage.film;
+
+/**
+ * Получает уведомления об изменении фильма или его лайков после того, как изменение стало видно читателям.
+ */
+@FunctionalInterface
+public interface FilmChangeListener {
+    int DELETED = -1;
+
+    /**
+     * @param likes текущее число лайков фильма или {@link #DELETED}, если фильм удалён
+     */
+    void filmChanged(long filmId, int likes);
+}
@@ -0,0 +1,30 @@
+package ru.yandex.practicum.filmorate.storage.film;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Счётчик версий и подписчики на изменения фильмов, общие для реализаций {@link FilmStorage}.
+ * Версия увеличивается до вызова подписчиков, так что читатель, увидевший прежнюю версию,
+ * мог не увидеть и само изменение.
+ */
+class FilmChanges {
+    private final AtomicLong version = new AtomicLong();
+    private final List<FilmChangeListener> listeners = new CopyOnWriteArrayList<>();
+
+    long version() {
+        return version.get();
+    }
+
+    void addListener(FilmChangeListener listener) {
+        listeners.add(listener);
+    }
+
+    void changed(long filmId, int likes) {
+        version.incrementAndGet();
+        for (FilmChangeListener listener : listeners) {
+            listener.filmChanged(filmId, likes);
+        }
+    }
+}
@@ -1,15 +1,98 @@
 package ru.yandex.practicum.filmorate.storage.film;
 
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmLike;
 
 import java.util.Collection;
+import java.util.List;
+import java.util.Set;
 
 public interface FilmStorage {
     Film createFilm(Film film);
 
+    /**
+     * Пакетное создание: id резервируются одним блоком, фильмы сохраняются одной операцией.
+     */
+    List<Film> createFilms(List<Film> films);
+
     Film updateFilm(Film film);
 
     Film deleteFilm(Long filmId);
 
     Collection<Film> getAll();
+
+    /**
+     * Страница фильмов с id больше {@code afterId}, упорядоченная по id.
+     */
+    List<Film> getPage(long afterId, int limit);
+
+    Film getFilmById(Long filmId);
+
+    /**
+     * Те из {@code filmIds}, что есть в хранилище.
+     */
+    Set<Long> findExistingIds(Collection<Long> filmIds);
+
+    /**
+     * Есть ли фильм в хранилище; в отличие от {@link #getFilmById(Long)}, фильм не копируется.
+     */
+    boolean exists(Long filmId);
+
+    void addLike(Long filmId, Long userId);
+
+    /**
+     * Пакетное добавление лайков одной операцией хранилища; пользователи должны существовать. Фильм,
+     * удалённый после проверки вызывающим, пропускается вместе со своими лайками.
+     *
+     * @return id фильмов, которых не оказалось в хранилище
+     */
+    Set<Long> addLikes(Collection<FilmLike> likes);
+
+    void removeLike(Long filmId, Long userId);
+
+    /**
+     * Пакетное удаление лайков одной операцией хранилища. Фильм, удалённый после проверки вызывающим,
+     * пропускается, как в {@link #addLikes(Collection)}.
+     *
+     * @return id фильмов, которых не оказалось в хранилище
+     */
+    Set<Long> removeLikes(Collection<FilmLike> likes);
+
+    /**
+     * Снимает все лайки пользователя перед его удалением; затрагивает только лайкнутые им фильмы.
+     */
+    void removeLikesOfUser(Long userId);
+
+    List<Film> getPopularFilms(Long count);
+
+    /**
+     * Первые {@code count} фильмов по числу лайков, поставленных за окно {@code window}.
+     */
+    List<Film> getTrendingFilms(TrendWindow window, long count);
+
+    /**
+     * Страница фильмов, лайкнутых пользователем, с id больше {@code afterId}, упорядоченная по id.
+     */
+    List<Film> getLikedFilms(Long userId, long afterId, int limit);
+
+    /**
+     * Число фильмов; используется метриками, поэтому должно быть дешёвым.
+     */
+    long size();
+
+    /**
+     * Общее число лайков по всем фильмам.
+     */
+    long totalLikes();
+
+    /**
+     * Версия данных: растёт при каждом изменении фильмов и лайков. Выдача, построенная при версии v,
+     * актуальна, пока версия не изменилась.
+     */
+    long version();
+
+    /**
+     * Подписывает на изменения фильмов; уведомление приходит после того, как изменение стало видно.
+     */
+    void addChangeListener(FilmChangeListener listener);
 }
@@ -0,0 +1,88 @@
+package ru.yandex.practicum.filmorate.storage.film;
+
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.utils.LongHashSet;
+import ru.yandex.practicum.filmorate.utils.ShardedLongSet;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * «Горячие» фильмы — те, лайки которых ставят одновременно много потоков. Фильм становится горячим,
+ * когда за блокировкой его множества лайков набирается {@code contentionThreshold} ожидавших
+ * записей: множество заменяется на {@link ShardedLongSet}, и лайки разных пользователей перестают
+ * ждать друг друга.
+ *
+ * <p>Позиция горячего фильма в индексе популярности пересчитывается одним потоком за раз: остальные
+ * только просят пересчитать ещё раз и сразу возвращаются, а не выстраиваются за блокировкой ключа
+ * индекса. Подписчики на изменения узнают о лайке от того же потока, то есть чуть позже, чем лайк
+ * становится виден.
+ */
+class HotFilms {
+    private final int contentionThreshold;
+    private final int shards;
+    // число запросов на пересчёт, пришедших с начала текущего пересчёта; 0 — пересчёт не идёт
+    private final Map<Long, AtomicInteger> pendingUpdates = new ConcurrentHashMap<>();
+
+    /**
+     * @param contentionThreshold ожиданий блокировки до перевода фильма в горячие; 0 — не переводить
+     */
+    HotFilms(int contentionThreshold, int shards) {
+        this.contentionThreshold = contentionThreshold;
+        this.shards = shards;
+    }
+
+    static boolean isHot(Film film) {
+        // правка фильма могла унаследовать ссылку на множество, уже перенесённое в шарды
+        return film.getLikes().resolve() instanceof ShardedLongSet;
+    }
+
+    /**
+     * Переводит фильм в горячие, если за его лайками выстроилась очередь.
+     *
+     * @return {@code true}, если фильм стал горячим этим вызовом
+     */
+    boolean promoteIfContended(Film film) {
+        LongHashSet likes = film.getLikes().resolve();
+        if (contentionThreshold <= 0 || likes instanceof ShardedLongSet
+                || likes.contendedWrites() < contentionThreshold) {
+            return false;
+        }
+        film.setLikes(likes.shard(shards));
+        return true;
+    }
+
+    /**
+     * Выполняет {@code update} сам или поручает его потоку, который уже пересчитывает этот фильм.
+     * Поток-исполнитель повторяет пересчёт, пока во время очередного прохода приходят новые запросы,
+     * поэтому последний пересчёт всегда начинается после последнего запроса.
+     */
+    void coalesce(long filmId, Runnable update) {
+        AtomicInteger pending = pendingUpdates.get(filmId);
+        if (pending == null) {
+            pending = pendingUpdates.computeIfAbsent(filmId, id -> new AtomicInteger());
+        }
+        if (pending.getAndIncrement() > 0) {
+            return;
+        }
+        int seen = 1;
+        while (true) {
+            try {
+                update.run();
+            } catch (RuntimeException e) {
+                // иначе фильм остался бы «занятым» и больше не пересчитывался
+                pending.set(0);
+                throw e;
+            }
+            if (pending.compareAndSet(seen, 0)) {
+                return;
+            }
+            seen = pending.get();
+        }
+    }
+
+    void forget(long filmId) {
+        pendingUpdates.remove(filmId);
+    }
+}
@@ -1,89 +1,512 @@
 package ru.yandex.practicum.filmorate.storage.film;
 
-import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
 import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.exceptions.ConflictException;
 import ru.yandex.practicum.filmorate.exceptions.NotFoundException;
 import ru.yandex.practicum.filmorate.model.Film;
-import ru.yandex.practicum.filmorate.model.User;
-import ru.yandex.practicum.filmorate.storage.user.InMemoryUserStorage;
+import ru.yandex.practicum.filmorate.model.FilmLike;
+import ru.yandex.practicum.filmorate.storage.persistence.Mutation;
+import ru.yandex.practicum.filmorate.storage.persistence.MutationJournal;
+import ru.yandex.practicum.filmorate.utils.IdGenerator;
+import ru.yandex.practicum.filmorate.utils.IdGeneratorFactory;
+import ru.yandex.practicum.filmorate.utils.PartitionedMap;
 
 import java.util.*;
-import java.util.stream.Collectors;
-
-import static ru.yandex.practicum.filmorate.utils.UtilMethods.getNextId;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
 
 @Component
-@RequiredArgsConstructor
+@Profile("!jdbc & !offheap")
 @Slf4j
 public class InMemoryFilmStorage implements FilmStorage {
-    private final Map<Long, Film> films = new HashMap<>();
+    static final int DEFAULT_HOT_CONTENTION = 128;
+    private static final int HOT_FILM_SHARDS = Math.min(64, 2 * Runtime.getRuntime().availableProcessors());
+
+    private final PartitionedMap<Film> films;
+    private final PopularityIndex popularityIndex;
+    private final TrendingIndex trending = new TrendingIndex();
+    private final UserLikesIndex userLikes = new UserLikesIndex();
+    private final FilmChanges changes = new FilmChanges();
+    // size() у ConcurrentSkipListMap обходит всю карту, поэтому счётчики для метрик ведутся отдельно
+    private final LongAdder filmCount = new LongAdder();
+    private final LongAdder likeCount = new LongAdder();
+    private final IdGenerator idGenerator;
+    private final MutationJournal journal;
+    private final HotFilms hotFilms;
+
+    public InMemoryFilmStorage(IdGeneratorFactory idGeneratorFactory, MutationJournal journal) {
+        this(idGeneratorFactory, journal, 1);
+    }
+
+    public InMemoryFilmStorage(IdGeneratorFactory idGeneratorFactory, MutationJournal journal, int partitions) {
+        this(idGeneratorFactory, journal, partitions, DEFAULT_HOT_CONTENTION);
+    }
+
+    /**
+     * @param partitions    число партиций карты фильмов и индекса популярности
+     * @param hotContention сколько записей лайков должны прождать блокировку множества лайков фильма,
+     *                      чтобы оно было разбито на шарды; 0 отключает разбиение
+     */
+    @Autowired
+    public InMemoryFilmStorage(IdGeneratorFactory idGeneratorFactory, MutationJournal journal,
+                               @Value("${filmorate.storage.partitions:1}") int partitions,
+                               @Value("${filmorate.storage.hot-film-contention:" + DEFAULT_HOT_CONTENTION + "}")
+                               int hotContention) {
+        this.idGenerator = idGeneratorFactory.create();
+        this.journal = journal;
+        this.films = new PartitionedMap<>(partitions);
+        this.popularityIndex = new PopularityIndex(partitions);
+        this.hotFilms = new HotFilms(hotContention, HOT_FILM_SHARDS);
+    }
 
     @Override
     public Film createFilm(Film film) {
-        film.setId(getNextId(films));
-        films.put(film.getId(), film);
+        film.setId(idGenerator.nextId());
+        film.setVersion(1L);
+        journal.write(film.getId(), new Mutation.FilmSaved(film), () -> {
+            put(film);
+            updatePopularity(film);
+        });
         log.info("Создан фильм с id={}", film.getId());
-        return film;
+        return film.snapshot();
     }
 
+    @Override
+    public List<Film> createFilms(List<Film> newFilms) {
+        long[] ids = idGenerator.reserve(newFilms.size());
+        for (int i = 0; i < ids.length; i++) {
+            Film film = newFilms.get(i);
+            film.setId(ids[i]);
+            film.setVersion(1L);
+            journal.write(film.getId(), new Mutation.FilmSaved(film), () -> {
+                put(film);
+                updatePopularity(film);
+            });
+        }
+        log.info("Создано фильмов: {}", ids.length);
+        return newFilms.stream().map(Film::snapshot).toList();
+    }
+
+    /**
+     * Новая правка фильма заменяет прежнюю сравнением с обменом в карте, без общей блокировки. Лайки
+     * из запроса не берутся: правка получает то же множество лайков, что и прежняя, поэтому параллельно
+     * поставленный лайк не теряется. Если в запросе указана версия, а хранится уже другая, бросается
+     * {@link ConflictException}; обновление без версии повторяется поверх актуальной правки.
+     */
     @Override
     public Film updateFilm(Film film) {
         if (film == null) {
             log.error("Попытка обновить null фильм");
             throw new NotFoundException("Фильм не может быть null");
         }
-        if (!films.containsKey(film.getId())) {
-            log.error("Фильм с id {} не найден", film.getId());
-            throw new NotFoundException("Фильм не найден");
+        while (true) {
+            Film current = find(film.getId());
+            if (film.getVersion() != null && !film.getVersion().equals(current.getVersion())) {
+                log.warn("Фильм с id {}: ожидалась версия {}, текущая {}",
+                        film.getId(), film.getVersion(), current.getVersion());
+                throw new ConflictException("Фильм изменён другим запросом");
+            }
+            Film revision = nextRevision(film, current);
+            boolean replaced = journal.writeIf(film.getId(), () -> films.get(film.getId()) == current,
+                    new Mutation.FilmSaved(revision), () -> {
+                        if (!films.replace(film.getId(), current, revision)) {
+                            return false;
+                        }
+                        updatePopularity(revision);
+                        return true;
+                    });
+            if (!replaced) {
+                if (film.getVersion() != null) {
+                    throw new ConflictException("Фильм изменён другим запросом");
+                }
+                continue;
+            }
+            log.info("Обновлён фильм с id={}, версия {}", film.getId(), revision.getVersion());
+            return revision.snapshot();
         }
-        films.put(film.getId(), film);
-        log.info("Обновлён фильм с id={}", film.getId());
-        return film;
     }
 
     @Override
     public Film deleteFilm(Long filmId) {
-        Film film = getFilmById(filmId);
-        films.remove(film.getId());
+        Film film = writeToFilm(filmId, new Mutation.FilmDeleted(filmId), removed -> {
+            films.remove(filmId);
+            filmCount.decrement();
+            likeCount.add(-removed.getLikes().size());
+            userLikes.removeAll(filmId, removed.getLikes());
+            popularityIndex.remove(filmId);
+            hotFilms.forget(filmId);
+            trending.remove(filmId);
+            changes.changed(filmId, FilmChangeListener.DELETED);
+        });
+        if (film == null) {
+            throw notFound(filmId);
+        }
         log.info("Удален фильм с id={}", filmId);
-        return film;
+        return film.snapshot();
     }
 
+    /**
+     * Копии снимаются по мере обхода: в памяти не появляется второй экземпляр каталога,
+     * а каждый фильм сериализуется в согласованном состоянии. Партиции сливаются по возрастанию id.
+     */
     @Override
     public Collection<Film> getAll() {
-        return films.values();
+        return new AbstractCollection<>() {
+            @Override
+            public Iterator<Film> iterator() {
+                return films.valuesAfter(Long.MIN_VALUE).map(Film::snapshot).iterator();
+            }
+
+            @Override
+            public int size() {
+                return (int) filmCount.sum();
+            }
+        };
     }
 
-    public Film addLike(Long filmId, Long userId, InMemoryUserStorage userStorage) {
-        Film film = getFilmById(filmId);
-        User user = userStorage.getUserById(userId);
-        film.getLikes().add(user.getId());
-        updateFilm(film);
-        return film;
+    @Override
+    public List<Film> getPage(long afterId, int limit) {
+        return films.valuesAfter(afterId)
+                .limit(limit)
+                .map(Film::snapshot)
+                .toList();
     }
 
-    public Film removeLike(Long filmId, Long userId, InMemoryUserStorage userStorage) {
-        Film film = getFilmById(filmId);
-        User user = userStorage.getUserById(userId);
-        film.getLikes().remove(user.getId());
-        updateFilm(film);
-        return film;
+    /**
+     * Копия фильма не снимается: тело ответа, если оно нужно, читает вызывающий.
+     */
+    @Override
+    public void addLike(Long filmId, Long userId) {
+        Film film = writeToFilm(filmId, new Mutation.LikeAdded(filmId, userId), current -> {
+            like(current, userId);
+            updatePopularity(current);
+        });
+        if (film == null) {
+            throw notFound(filmId);
+        }
+        promoteIfHot(film);
     }
 
+    /**
+     * Лайки группируются по фильму, и индекс популярности обновляется один раз на фильм, а не на лайк.
+     */
+    @Override
+    public Set<Long> addLikes(Collection<FilmLike> likes) {
+        Set<Long> missing = new HashSet<>();
+        groupByFilm(likes).forEach((filmId, userIds) -> {
+            Film film = null;
+            for (int i = 0; i < userIds.size(); i++) {
+                Long userId = userIds.get(i);
+                boolean last = i == userIds.size() - 1;
+                film = writeToFilm(filmId, new Mutation.LikeAdded(filmId, userId), current -> {
+                    like(current, userId);
+                    if (last) {
+                        updatePopularity(current);
+                    }
+                });
+                if (film == null) {
+                    missing.add(filmId);
+                    return;
+                }
+            }
+            promoteIfHot(film);
+        });
+        log.info("Добавлено лайков: {}", likes.size());
+        return missing;
+    }
+
+    @Override
+    public void removeLike(Long filmId, Long userId) {
+        Film film = writeToFilm(filmId, new Mutation.LikeRemoved(filmId, userId), current -> {
+            unlike(current, userId);
+            updatePopularity(current);
+        });
+        if (film == null) {
+            throw notFound(filmId);
+        }
+        promoteIfHot(film);
+    }
+
+    @Override
+    public Set<Long> removeLikes(Collection<FilmLike> likes) {
+        Set<Long> missing = new HashSet<>();
+        groupByFilm(likes).forEach((filmId, userIds) -> {
+            for (int i = 0; i < userIds.size(); i++) {
+                Long userId = userIds.get(i);
+                boolean last = i == userIds.size() - 1;
+                Film film = writeToFilm(filmId, new Mutation.LikeRemoved(filmId, userId), current -> {
+                    unlike(current, userId);
+                    if (last) {
+                        updatePopularity(current);
+                    }
+                });
+                if (film == null) {
+                    missing.add(filmId);
+                    return;
+                }
+            }
+        });
+        log.info("Удалено лайков: {}", likes.size());
+        return missing;
+    }
+
+    /**
+     * Фильмы берутся из обратного индекса, поэтому стоимость — O(лайков пользователя), а не обход каталога.
+     */
+    @Override
+    public void removeLikesOfUser(Long userId) {
+        for (long filmId : userLikes.filmIds(userId)) {
+            writeToFilm(filmId, new Mutation.LikeRemoved(filmId, userId), current -> {
+                if (current.getLikes().remove(userId.longValue())) {
+                    likeCount.decrement();
+                    trending.record(filmId, -1);
+                }
+                updatePopularity(current);
+            });
+        }
+        userLikes.removeUser(userId);
+        log.info("Сняты лайки пользователя {}", userId);
+    }
+
+    /**
+     * Проверка лайка без копирования фильма.
+     */
+    public boolean hasLike(long filmId, long userId) {
+        Film film = films.get(filmId);
+        return film != null && film.getLikes().contains(userId);
+    }
+
+    /**
+     * Разбито ли множество лайков фильма на шарды.
+     */
+    public boolean isHot(long filmId) {
+        Film film = films.get(filmId);
+        return film != null && HotFilms.isHot(film);
+    }
+
+    /**
+     * Id фильмов пользователя по обратному индексу лайков, без проверки самих фильмов.
+     */
+    public long[] getLikedFilmIds(long userId) {
+        return userLikes.filmIds(userId);
+    }
+
+    public boolean isLikeIndexed(long filmId, long userId) {
+        return userLikes.contains(filmId, userId);
+    }
+
+    /**
+     * Приводит запись обратного индекса в соответствие с лайками фильма.
+     */
+    public void reindexLike(long filmId, long userId) {
+        Film film = films.get(filmId);
+        if (film != null && film.getLikes().contains(userId)) {
+            userLikes.add(filmId, userId);
+        } else {
+            userLikes.remove(filmId, userId);
+        }
+    }
+
+    /**
+     * Загружает фильм с уже назначенным id при восстановлении с диска.
+     */
+    public void loadFilm(Film film) {
+        put(film);
+        idGenerator.advanceTo(film.getId());
+        updatePopularity(film);
+    }
+
+    /**
+     * Добавляет лайк при повторе журнала. В тренды он не попадает: время лайка в журнале не хранится,
+     * и всё, что лайкали до остановки, оказалось бы в трендах последнего часа.
+     */
+    public void loadLike(Long filmId, Long userId) {
+        Film film = find(filmId);
+        if (film.getLikes().add(userId.longValue())) {
+            likeCount.increment();
+            userLikes.add(filmId, userId);
+        }
+        updatePopularity(film);
+    }
+
+    @Override
     public Film getFilmById(Long filmId) {
-        if (!films.containsKey(filmId) || filmId == 0) {
-            log.error("Фильм с id {} не найден", filmId);
-            throw new NotFoundException("Фильм не найден");
+        return find(filmId).snapshot();
+    }
+
+    @Override
+    public boolean exists(Long filmId) {
+        return filmId != null && films.containsKey(filmId);
+    }
+
+    @Override
+    public Set<Long> findExistingIds(Collection<Long> filmIds) {
+        Set<Long> existing = new HashSet<>();
+        for (Long filmId : filmIds) {
+            if (filmId != null && films.containsKey(filmId)) {
+                existing.add(filmId);
+            }
         }
-        return films.get(filmId);
+        return existing;
     }
 
+    @Override
     public List<Film> getPopularFilms(Long count) {
-        return films.values().stream()
-                .filter(film -> !film.getLikes().isEmpty())
-                .sorted(Comparator.comparing(film -> -film.getLikes().size()))
-                .limit(count)
-                .collect(Collectors.toList());
+        return popularityIndex.top(count).stream()
+                .map(films::get)
+                .filter(Objects::nonNull)
+                .map(Film::snapshot)
+                .toList();
+    }
+
+    @Override
+    public List<Film> getTrendingFilms(TrendWindow window, long count) {
+        return trending.top(window, count).stream()
+                .map(films::get)
+                .filter(Objects::nonNull)
+                .map(Film::snapshot)
+                .toList();
+    }
+
+    @Override
+    public List<Film> getLikedFilms(Long userId, long afterId, int limit) {
+        return Arrays.stream(userLikes.page(userId, afterId, limit))
+                .mapToObj(films::get)
+                .filter(Objects::nonNull)
+                .map(Film::snapshot)
+                .toList();
+    }
+
+    @Override
+    public long size() {
+        return filmCount.sum();
+    }
+
+    @Override
+    public long totalLikes() {
+        return likeCount.sum();
+    }
+
+    @Override
+    public long version() {
+        return changes.version();
+    }
+
+    @Override
+    public void addChangeListener(FilmChangeListener listener) {
+        changes.addListener(listener);
+    }
+
+    /**
+     * Сам хранимый объект, а не копия: его меняют методы записи.
+     */
+    private Film find(Long filmId) {
+        Film film = filmId == null ? null : films.get(filmId);
+        if (film == null) {
+            throw notFound(filmId);
+        }
+        return film;
+    }
+
+    private static Film nextRevision(Film update, Film current) {
+        return Film.builder()
+                .id(current.getId())
+                .version(current.getVersion() + 1)
+                .name(update.getName())
+                .description(update.getDescription())
+                .releaseDate(update.getReleaseDate())
+                .duration(update.getDuration())
+                // ссылка могла остаться от множества, уже перенесённого в шарды
+                .likes(current.getLikes().resolve())
+                .build();
+    }
+
+    private void put(Film film) {
+        Film previous = films.put(film.getId(), film);
+        if (previous == null) {
+            filmCount.increment();
+        } else {
+            userLikes.removeAll(previous.getId(), previous.getLikes());
+        }
+        likeCount.add(film.getLikes().size() - (previous == null ? 0 : previous.getLikes().size()));
+        userLikes.addAll(film.getId(), film.getLikes());
+    }
+
+    private void promoteIfHot(Film film) {
+        if (hotFilms.promoteIfContended(film)) {
+            log.info("Лайки фильма с id={} разбиты на шарды: за ними выстроилась очередь", film.getId());
+        }
+    }
+
+    private void updatePopularity(Film film) {
+        if (HotFilms.isHot(film)) {
+            hotFilms.coalesce(film.getId(), () -> refreshPopularity(film));
+        } else {
+            refreshPopularity(film);
+        }
+    }
+
+    private void refreshPopularity(Film film) {
+        // читаем актуальный объект: фильм могли заменить или удалить параллельно
+        popularityIndex.update(film.getId(), () -> {
+            Film current = films.get(film.getId());
+            return current == null ? 0 : current.getLikes().size();
+        });
+        Film current = films.get(film.getId());
+        changes.changed(film.getId(), current == null ? FilmChangeListener.DELETED : current.getLikes().size());
+    }
+
+    private static NotFoundException notFound(Long filmId) {
+        log.error("Фильм с id {} не найден", filmId);
+        return new NotFoundException("Фильм не найден");
+    }
+
+    /**
+     * Применяет изменение к хранимому фильму под блокировкой ключа журнала. Под блокировкой проверяется,
+     * что фильм всё ещё в хранилище: если его удалили, ничего не пишется и возвращается {@code null},
+     * а если заменили новой правкой, изменение применяется к ней.
+     */
+    private Film writeToFilm(long filmId, Mutation mutation, Consumer<Film> change) {
+        while (true) {
+            Film film = films.get(filmId);
+            if (film == null) {
+                return null;
+            }
+            boolean applied = journal.writeIf(filmId, () -> films.get(filmId) == film, mutation, () -> {
+                change.accept(film);
+                return true;
+            });
+            if (applied) {
+                return film;
+            }
+        }
+    }
+
+    private void like(Film film, long userId) {
+        if (film.getLikes().add(userId)) {
+            likeCount.increment();
+            userLikes.add(film.getId(), userId);
+            trending.record(film.getId(), 1);
+        }
+    }
+
+    private void unlike(Film film, long userId) {
+        if (film.getLikes().remove(userId)) {
+            likeCount.decrement();
+            userLikes.remove(film.getId(), userId);
+            trending.record(film.getId(), -1);
+        }
+    }
+
+    private static Map<Long, List<Long>> groupByFilm(Collection<FilmLike> likes) {
+        Map<Long, List<Long>> byFilm = new HashMap<>();
+        for (FilmLike like : likes) {
+            byFilm.computeIfAbsent(like.getFilmId(), id -> new ArrayList<>()).add(like.getUserId());
+        }
+        return byFilm;
     }
 }
@@ -0,0 +1,439 @@
+package ru.yandex.practicum.filmorate.storage.film;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import ru.yandex.practicum.filmorate.exceptions.ConflictException;
+import ru.yandex.practicum.filmorate.exceptions.NotFoundException;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmLike;
+import ru.yandex.practicum.filmorate.utils.IdGenerator;
+import ru.yandex.practicum.filmorate.utils.IdGeneratorFactory;
+
+import java.sql.Date;
+import java.util.*;
+
+/**
+ * Хранилище фильмов в реляционной БД (профиль {@code jdbc}).
+ *
+ * <p>Популярные фильмы выбираются по денормализованному счётчику {@code likes_count} с индексом,
+ * страницы — по ключу {@code id > :after}, без {@code OFFSET}. Лайки загружаются одним запросом
+ * {@code IN (...)} на всю выборку, а не по запросу на фильм. Подписчики на изменения уведомляются
+ * после фиксации транзакции.
+ */
+@Component
+@Profile("jdbc")
+@Slf4j
+public class JdbcFilmStorage implements FilmStorage {
+    private static final String SELECT_FILMS =
+            "SELECT id, version, name, description, release_date, duration FROM films";
+
+    private static final RowMapper<Film> FILM_MAPPER = (rs, rowNum) -> {
+        Date releaseDate = rs.getDate("release_date");
+        return Film.builder()
+                .id(rs.getLong("id"))
+                .version(rs.getLong("version"))
+                .name(rs.getString("name"))
+                .description(rs.getString("description"))
+                .releaseDate(releaseDate == null ? null : releaseDate.toLocalDate())
+                .duration(rs.getObject("duration", Integer.class))
+                .build();
+    };
+
+    private final NamedParameterJdbcTemplate jdbc;
+    private final IdGenerator idGenerator;
+    private final FilmChanges changes = new FilmChanges();
+    // тренды считаются в памяти процесса: лайки, поставленные через другие экземпляры, в них не попадают
+    private final TrendingIndex trending = new TrendingIndex();
+
+    public JdbcFilmStorage(NamedParameterJdbcTemplate jdbc, IdGeneratorFactory idGeneratorFactory) {
+        this.jdbc = jdbc;
+        this.idGenerator = idGeneratorFactory.create();
+        Long maxId = jdbc.getJdbcTemplate().queryForObject("SELECT MAX(id) FROM films", Long.class);
+        if (maxId != null) {
+            idGenerator.advanceTo(maxId);
+        }
+    }
+
+    @Override
+    @Transactional
+    public Film createFilm(Film film) {
+        film.setId(idGenerator.nextId());
+        film.setVersion(1L);
+        jdbc.update("INSERT INTO films (id, name, description, release_date, duration) "
+                + "VALUES (:id, :name, :description, :releaseDate, :duration)", filmParams(film));
+        insertLikes(film);
+        changedAfterCommit(film.getId(), film.getLikes().size());
+        log.info("Создан фильм с id={}", film.getId());
+        return film;
+    }
+
+    @Override
+    @Transactional
+    public List<Film> createFilms(List<Film> newFilms) {
+        long[] ids = idGenerator.reserve(newFilms.size());
+        SqlParameterSource[] batch = new SqlParameterSource[ids.length];
+        for (int i = 0; i < ids.length; i++) {
+            Film film = newFilms.get(i);
+            film.setId(ids[i]);
+            film.setVersion(1L);
+            batch[i] = filmParams(film);
+        }
+        jdbc.batchUpdate("INSERT INTO films (id, name, description, release_date, duration) "
+                + "VALUES (:id, :name, :description, :releaseDate, :duration)", batch);
+        for (Film film : newFilms) {
+            insertLikes(film);
+            changedAfterCommit(film.getId(), film.getLikes().size());
+        }
+        log.info("Создано фильмов: {}", ids.length);
+        return newFilms;
+    }
+
+    /**
+     * Версия сравнивается и увеличивается тем же {@code UPDATE}, так что блокируется только строка фильма.
+     * Лайки не меняются: их множество ведут только запросы лайков.
+     */
+    @Override
+    @Transactional
+    public Film updateFilm(Film film) {
+        if (film == null) {
+            log.error("Попытка обновить null фильм");
+            throw new NotFoundException("Фильм не может быть null");
+        }
+        int updated = jdbc.update("UPDATE films SET name = :name, description = :description, "
+                + "release_date = :releaseDate, duration = :duration, version = version + 1 WHERE id = :id"
+                + (film.getVersion() == null ? "" : " AND version = :version"),
+                filmParams(film).addValue("version", film.getVersion()));
+        if (updated == 0) {
+            Film current = getFilmById(film.getId());
+            log.warn("Фильм с id {}: ожидалась версия {}, текущая {}",
+                    film.getId(), film.getVersion(), current.getVersion());
+            throw new ConflictException("Фильм изменён другим запросом");
+        }
+        Film revision = getFilmById(film.getId());
+        changedAfterCommit(revision.getId(), revision.getLikes().size());
+        log.info("Обновлён фильм с id={}, версия {}", revision.getId(), revision.getVersion());
+        return revision;
+    }
+
+    @Override
+    @Transactional
+    public Film deleteFilm(Long filmId) {
+        Film film = getFilmById(filmId);
+        // лайки удаляются каскадно
+        jdbc.update("DELETE FROM films WHERE id = :id", Map.of("id", filmId));
+        afterCommit(() -> trending.remove(filmId));
+        changedAfterCommit(filmId, FilmChangeListener.DELETED);
+        log.info("Удален фильм с id={}", filmId);
+        return film;
+    }
+
+    @Override
+    public Collection<Film> getAll() {
+        return withLikes(jdbc.query(SELECT_FILMS + " ORDER BY id", FILM_MAPPER));
+    }
+
+    @Override
+    public List<Film> getPage(long afterId, int limit) {
+        return withLikes(jdbc.query(SELECT_FILMS + " WHERE id > :after ORDER BY id LIMIT :limit",
+                Map.of("after", afterId, "limit", limit), FILM_MAPPER));
+    }
+
+    @Override
+    public Film getFilmById(Long filmId) {
+        List<Film> found = filmId == null ? List.of()
+                : jdbc.query(SELECT_FILMS + " WHERE id = :id", Map.of("id", filmId), FILM_MAPPER);
+        if (found.isEmpty()) {
+            log.error("Фильм с id {} не найден", filmId);
+            throw new NotFoundException("Фильм не найден");
+        }
+        return withLikes(found).get(0);
+    }
+
+    @Override
+    @Transactional
+    public void addLike(Long filmId, Long userId) {
+        Map<String, Long> params = Map.of("filmId", filmId, "userId", userId);
+        int likes = lockFilm(filmId);
+        try {
+            // счётчик меняется только если строка лайка действительно вставлена
+            int inserted = jdbc.update("INSERT INTO film_likes (film_id, user_id) "
+                    + "SELECT :filmId, :userId WHERE NOT EXISTS "
+                    + "(SELECT 1 FROM film_likes WHERE film_id = :filmId AND user_id = :userId)", params);
+            if (inserted > 0) {
+                jdbc.update("UPDATE films SET likes_count = likes_count + 1 WHERE id = :filmId", params);
+                afterCommit(() -> trending.record(filmId, 1));
+                likes++;
+            }
+        } catch (DuplicateKeyException e) {
+            log.debug("Лайк пользователя {} фильму {} уже поставлен", userId, filmId);
+        }
+        changedAfterCommit(filmId, likes);
+    }
+
+    /**
+     * Вставляет лайки одним пакетом и пересчитывает счётчики затронутых фильмов. Строки фильмов
+     * блокируются до конца транзакции, чтобы параллельное удаление не привело к нарушению внешнего ключа.
+     */
+    @Override
+    @Transactional
+    public Set<Long> addLikes(Collection<FilmLike> newLikes) {
+        if (newLikes.isEmpty()) {
+            return Set.of();
+        }
+        Set<Long> filmIds = new HashSet<>();
+        newLikes.forEach(like -> filmIds.add(like.getFilmId()));
+        Set<Long> existing = new HashSet<>(jdbc.queryForList("SELECT id FROM films WHERE id IN (:ids) FOR UPDATE",
+                Map.of("ids", filmIds), Long.class));
+        filmIds.removeAll(existing);
+        List<FilmLike> likes = newLikes.stream().filter(like -> existing.contains(like.getFilmId())).toList();
+        if (likes.isEmpty()) {
+            return filmIds;
+        }
+        int[] inserted = jdbc.batchUpdate("INSERT INTO film_likes (film_id, user_id) "
+                + "SELECT :filmId, :userId WHERE NOT EXISTS "
+                + "(SELECT 1 FROM film_likes WHERE film_id = :filmId AND user_id = :userId)", likeParams(likes));
+        recountLikes(likes);
+        recordTrending(likes, inserted, 1);
+        log.info("Добавлено лайков: {}", likes.size());
+        return filmIds;
+    }
+
+    @Override
+    @Transactional
+    public Set<Long> removeLikes(Collection<FilmLike> oldLikes) {
+        if (oldLikes.isEmpty()) {
+            return Set.of();
+        }
+        Set<Long> filmIds = new HashSet<>();
+        oldLikes.forEach(like -> filmIds.add(like.getFilmId()));
+        Set<Long> existing = new HashSet<>(jdbc.queryForList("SELECT id FROM films WHERE id IN (:ids) FOR UPDATE",
+                Map.of("ids", filmIds), Long.class));
+        filmIds.removeAll(existing);
+        List<FilmLike> likes = oldLikes.stream().filter(like -> existing.contains(like.getFilmId())).toList();
+        if (likes.isEmpty()) {
+            return filmIds;
+        }
+        int[] deleted = jdbc.batchUpdate("DELETE FROM film_likes WHERE film_id = :filmId AND user_id = :userId",
+                likeParams(likes));
+        recountLikes(likes);
+        recordTrending(likes, deleted, -1);
+        log.info("Удалено лайков: {}", likes.size());
+        return filmIds;
+    }
+
+    @Override
+    @Transactional
+    public void removeLikesOfUser(Long userId) {
+        List<Long> filmIds = jdbc.queryForList("SELECT film_id FROM film_likes WHERE user_id = :userId",
+                Map.of("userId", userId), Long.class);
+        removeLikes(filmIds.stream().map(filmId -> new FilmLike(filmId, userId)).toList());
+    }
+
+    @Override
+    @Transactional
+    public void removeLike(Long filmId, Long userId) {
+        Map<String, Long> params = Map.of("filmId", filmId, "userId", userId);
+        int likes = lockFilm(filmId);
+        int deleted = jdbc.update("DELETE FROM film_likes WHERE film_id = :filmId AND user_id = :userId", params);
+        if (deleted > 0) {
+            jdbc.update("UPDATE films SET likes_count = likes_count - 1 WHERE id = :filmId", params);
+            afterCommit(() -> trending.record(filmId, -1));
+            likes--;
+        }
+        changedAfterCommit(filmId, likes);
+    }
+
+    @Override
+    public boolean exists(Long filmId) {
+        return filmId != null && !jdbc.queryForList("SELECT id FROM films WHERE id = :id",
+                Map.of("id", filmId), Long.class).isEmpty();
+    }
+
+    @Override
+    public Set<Long> findExistingIds(Collection<Long> filmIds) {
+        if (filmIds.isEmpty()) {
+            return Set.of();
+        }
+        return new HashSet<>(jdbc.queryForList("SELECT id FROM films WHERE id IN (:ids)",
+                Map.of("ids", filmIds), Long.class));
+    }
+
+    @Override
+    public List<Film> getPopularFilms(Long count) {
+        return withLikes(jdbc.query(SELECT_FILMS
+                        + " WHERE likes_count > 0 ORDER BY likes_count DESC, id LIMIT :count",
+                Map.of("count", count), FILM_MAPPER));
+    }
+
+    /**
+     * Порядок берётся из индекса трендов, поля фильмов — одним запросом {@code IN (...)}.
+     */
+    @Override
+    public List<Film> getTrendingFilms(TrendWindow window, long count) {
+        List<Long> ids = trending.top(window, count);
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        Map<Long, Film> byId = new HashMap<>();
+        withLikes(jdbc.query(SELECT_FILMS + " WHERE id IN (:ids)", Map.of("ids", ids), FILM_MAPPER))
+                .forEach(film -> byId.put(film.getId(), film));
+        return ids.stream().map(byId::get).filter(Objects::nonNull).toList();
+    }
+
+    /**
+     * Лайки пользователя находятся по индексу {@code film_likes(user_id)}.
+     */
+    @Override
+    public List<Film> getLikedFilms(Long userId, long afterId, int limit) {
+        return withLikes(jdbc.query("SELECT f.id, f.version, f.name, f.description, f.release_date, f.duration "
+                        + "FROM film_likes l JOIN films f ON f.id = l.film_id "
+                        + "WHERE l.user_id = :userId AND l.film_id > :after ORDER BY l.film_id LIMIT :limit",
+                Map.of("userId", userId, "after", afterId, "limit", limit), FILM_MAPPER));
+    }
+
+    @Override
+    public long size() {
+        return count("SELECT COUNT(*) FROM films");
+    }
+
+    @Override
+    public long totalLikes() {
+        return count("SELECT COALESCE(SUM(likes_count), 0) FROM films");
+    }
+
+    @Override
+    public long version() {
+        return changes.version();
+    }
+
+    @Override
+    public void addChangeListener(FilmChangeListener listener) {
+        changes.addListener(listener);
+    }
+
+    /**
+     * Блокирует строку фильма до конца транзакции, как {@link #addLikes(Collection)}, и возвращает
+     * число его лайков.
+     */
+    private int lockFilm(Long filmId) {
+        List<Integer> likes = jdbc.queryForList("SELECT likes_count FROM films WHERE id = :id FOR UPDATE",
+                Map.of("id", filmId), Integer.class);
+        if (likes.isEmpty()) {
+            log.error("Фильм с id {} не найден", filmId);
+            throw new NotFoundException("Фильм не найден");
+        }
+        return likes.get(0);
+    }
+
+    private long count(String sql) {
+        Long count = jdbc.getJdbcTemplate().queryForObject(sql, Long.class);
+        return count == null ? 0 : count;
+    }
+
+    private void insertLikes(Film film) {
+        long[] userIds = film.getLikes().toLongArray();
+        if (userIds.length == 0) {
+            jdbc.update("UPDATE films SET likes_count = 0 WHERE id = :id", Map.of("id", film.getId()));
+            return;
+        }
+        SqlParameterSource[] batch = new SqlParameterSource[userIds.length];
+        for (int i = 0; i < userIds.length; i++) {
+            batch[i] = new MapSqlParameterSource()
+                    .addValue("filmId", film.getId())
+                    .addValue("userId", userIds[i]);
+        }
+        jdbc.batchUpdate("INSERT INTO film_likes (film_id, user_id) VALUES (:filmId, :userId)", batch);
+        jdbc.update("UPDATE films SET likes_count = :count WHERE id = :id",
+                Map.of("count", userIds.length, "id", film.getId()));
+    }
+
+    private static SqlParameterSource[] likeParams(Collection<FilmLike> likes) {
+        return likes.stream()
+                .map(like -> new MapSqlParameterSource()
+                        .addValue("filmId", like.getFilmId())
+                        .addValue("userId", like.getUserId()))
+                .toArray(SqlParameterSource[]::new);
+    }
+
+    /**
+     * Пересчитывает счётчики только затронутых фильмов.
+     */
+    private void recountLikes(Collection<FilmLike> likes) {
+        Set<Long> filmIds = new HashSet<>();
+        likes.forEach(like -> filmIds.add(like.getFilmId()));
+        jdbc.update("UPDATE films SET likes_count = "
+                + "(SELECT COUNT(*) FROM film_likes WHERE film_likes.film_id = films.id) WHERE id IN (:ids)",
+                Map.of("ids", filmIds));
+        jdbc.query("SELECT id, likes_count FROM films WHERE id IN (:ids)", Map.of("ids", filmIds),
+                rs -> {
+                    changedAfterCommit(rs.getLong("id"), rs.getInt("likes_count"));
+                });
+    }
+
+    /**
+     * До фиксации изменение не видно другим транзакциям, поэтому и версия до неё не меняется.
+     */
+    private void changedAfterCommit(long filmId, int likes) {
+        afterCommit(() -> changes.changed(filmId, likes));
+    }
+
+    /**
+     * Учитывает в трендах лайки пакета, строки которых действительно вставлены или удалены.
+     */
+    private void recordTrending(Collection<FilmLike> likes, int[] affected, int delta) {
+        Iterator<FilmLike> iterator = likes.iterator();
+        for (int i = 0; i < affected.length && iterator.hasNext(); i++) {
+            long filmId = iterator.next().getFilmId();
+            if (affected[i] > 0) {
+                afterCommit(() -> trending.record(filmId, delta));
+            }
+        }
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+
+    private List<Film> withLikes(List<Film> films) {
+        if (films.isEmpty()) {
+            return films;
+        }
+        Map<Long, Film> byId = new HashMap<>();
+        for (Film film : films) {
+            byId.put(film.getId(), film);
+        }
+        jdbc.query("SELECT film_id, user_id FROM film_likes WHERE film_id IN (:ids)",
+                Map.of("ids", byId.keySet()),
+                rs -> {
+                    byId.get(rs.getLong("film_id")).getLikes().add(rs.getLong("user_id"));
+                });
+        return films;
+    }
+
+    private static MapSqlParameterSource filmParams(Film film) {
+        return new MapSqlParameterSource()
+                .addValue("id", film.getId())
+                .addValue("name", film.getName())
+                .addValue("description", film.getDescription())
+                .addValue("releaseDate", film.getReleaseDate())
+                .addValue("duration", film.getDuration());
+    }
+}
@@ -0,0 +1,429 @@
+package ru.yandex.practicum.filmorate.storage.film;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.exceptions.ConflictException;
+import ru.yandex.practicum.filmorate.exceptions.NotFoundException;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmLike;
+import ru.yandex.practicum.filmorate.storage.offheap.OffHeapRecordStore;
+import ru.yandex.practicum.filmorate.utils.IdGenerator;
+import ru.yandex.practicum.filmorate.utils.IdGeneratorFactory;
+import ru.yandex.practicum.filmorate.utils.LongHashSet;
+
+import java.nio.ByteBuffer;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
+
+/**
+ * Хранилище фильмов вне кучи (профиль {@code offheap}) для каталогов в десятки миллионов фильмов.
+ *
+ * <p>Поля фильма лежат записями в {@link OffHeapRecordStore}; объект {@link Film} собирается только
+ * при выдаче и сразу становится мусором молодого поколения. В куче остаются множества лайков — только
+ * у фильмов, которые кто-то лайкнул, — и те же индексы популярности и лайков, что у {@link InMemoryFilmStorage}.
+ *
+ * <p>Изменения не пишутся в журнал: сохранение на диск и проверка согласованности работают только
+ * с хранилищами в куче.
+ */
+@Component
+@Profile("offheap")
+@Slf4j
+public class OffHeapFilmStorage implements FilmStorage {
+    // запись: id, версия, дата выхода в днях эпохи, длительность, название, описание
+    private static final int VERSION_OFFSET = Long.BYTES;
+    private static final int FIXED_SIZE = 3 * Long.BYTES + Integer.BYTES;
+    private static final long NO_DATE = Long.MIN_VALUE;
+    private static final int NO_DURATION = Integer.MIN_VALUE;
+    private static final int SCAN_BATCH = 1024;
+
+    private final OffHeapRecordStore records;
+    // лайки меняются чаще полей и остаются в куче, но только у фильмов с лайками
+    private final Map<Long, LongHashSet> likes = new ConcurrentHashMap<>();
+    private final PopularityIndex popularityIndex = new PopularityIndex();
+    private final TrendingIndex trending = new TrendingIndex();
+    private final UserLikesIndex userLikes = new UserLikesIndex();
+    private final FilmChanges changes = new FilmChanges();
+    private final LongAdder likeCount = new LongAdder();
+    private final IdGenerator idGenerator;
+
+    /**
+     * @param chunkSize размер одного блока памяти вне кучи в байтах
+     */
+    public OffHeapFilmStorage(IdGeneratorFactory idGeneratorFactory,
+                              @Value("${filmorate.offheap.chunk-size:67108864}") int chunkSize) {
+        this.idGenerator = idGeneratorFactory.create();
+        this.records = new OffHeapRecordStore(chunkSize);
+    }
+
+    @Override
+    public Film createFilm(Film film) {
+        film.setId(idGenerator.nextId());
+        film.setVersion(1L);
+        store(film);
+        log.info("Создан фильм с id={}", film.getId());
+        return film.snapshot();
+    }
+
+    @Override
+    public List<Film> createFilms(List<Film> newFilms) {
+        long[] ids = idGenerator.reserve(newFilms.size());
+        for (int i = 0; i < ids.length; i++) {
+            Film film = newFilms.get(i);
+            film.setId(ids[i]);
+            film.setVersion(1L);
+            store(film);
+        }
+        log.info("Создано фильмов: {}", ids.length);
+        return newFilms.stream().map(Film::snapshot).toList();
+    }
+
+    /**
+     * Версия проверяется и новая запись дописывается под блокировкой записи хранилища, поэтому
+     * из двух обновлений с одной версией проходит одно. Лайки из запроса не берутся.
+     */
+    @Override
+    public Film updateFilm(Film film) {
+        if (film == null) {
+            log.error("Попытка обновить null фильм");
+            throw new NotFoundException("Фильм не может быть null");
+        }
+        long[] version = new long[1];
+        boolean updated = film.getId() != null && records.update(film.getId(), current -> {
+            long currentVersion = current.getLong(VERSION_OFFSET);
+            if (film.getVersion() != null && film.getVersion() != currentVersion) {
+                log.warn("Фильм с id {}: ожидалась версия {}, текущая {}",
+                        film.getId(), film.getVersion(), currentVersion);
+                throw new ConflictException("Фильм изменён другим запросом");
+            }
+            version[0] = currentVersion + 1;
+            return encode(film, version[0]);
+        });
+        if (!updated) {
+            throw notFound(film.getId());
+        }
+        Film revision = Film.builder()
+                .id(film.getId())
+                .version(version[0])
+                .name(film.getName())
+                .description(film.getDescription())
+                .releaseDate(film.getReleaseDate())
+                .duration(film.getDuration())
+                .likes(likesOf(film.getId()))
+                .build();
+        updatePopularity(film.getId());
+        log.info("Обновлён фильм с id={}, версия {}", film.getId(), version[0]);
+        return revision;
+    }
+
+    @Override
+    public Film deleteFilm(Long filmId) {
+        Film removed = filmId == null ? null : records.remove(filmId, in -> decode(in, null));
+        if (removed == null) {
+            throw notFound(filmId);
+        }
+        LongHashSet removedLikes = likes.remove(filmId);
+        if (removedLikes != null) {
+            likeCount.add(-removedLikes.size());
+            userLikes.removeAll(filmId, removedLikes);
+            removed.setLikes(removedLikes);
+        }
+        popularityIndex.remove(filmId);
+        trending.remove(filmId);
+        changes.changed(filmId, FilmChangeListener.DELETED);
+        log.info("Удален фильм с id={}", filmId);
+        return removed;
+    }
+
+    /**
+     * Каталог читается страницами по {@value #SCAN_BATCH} фильмов: в куче одновременно живёт
+     * не больше одной страницы собранных объектов.
+     */
+    @Override
+    public Collection<Film> getAll() {
+        return new AbstractCollection<>() {
+            @Override
+            public Iterator<Film> iterator() {
+                return Stream.iterate(getPage(Long.MIN_VALUE, SCAN_BATCH), page -> !page.isEmpty(),
+                                page -> getPage(page.get(page.size() - 1).getId(), SCAN_BATCH))
+                        .flatMap(List::stream)
+                        .iterator();
+            }
+
+            @Override
+            public int size() {
+                return records.size();
+            }
+        };
+    }
+
+    @Override
+    public List<Film> getPage(long afterId, int limit) {
+        return records.page(afterId, limit, this::materialize);
+    }
+
+    @Override
+    public void addLike(Long filmId, Long userId) {
+        like(filmId, List.of(userId));
+        updatePopularity(filmId);
+    }
+
+    @Override
+    public Set<Long> addLikes(Collection<FilmLike> newLikes) {
+        Set<Long> missing = new HashSet<>();
+        groupByFilm(newLikes).forEach((filmId, userIds) -> {
+            try {
+                like(filmId, userIds);
+            } catch (NotFoundException e) {
+                missing.add(filmId);
+                return;
+            }
+            updatePopularity(filmId);
+        });
+        log.info("Добавлено лайков: {}", newLikes.size());
+        return missing;
+    }
+
+    @Override
+    public void removeLike(Long filmId, Long userId) {
+        unlike(filmId, List.of(userId));
+        updatePopularity(filmId);
+    }
+
+    @Override
+    public Set<Long> removeLikes(Collection<FilmLike> removedLikes) {
+        Set<Long> missing = new HashSet<>();
+        groupByFilm(removedLikes).forEach((filmId, userIds) -> {
+            try {
+                unlike(filmId, userIds);
+            } catch (NotFoundException e) {
+                missing.add(filmId);
+                return;
+            }
+            updatePopularity(filmId);
+        });
+        log.info("Удалено лайков: {}", removedLikes.size());
+        return missing;
+    }
+
+    @Override
+    public void removeLikesOfUser(Long userId) {
+        for (long filmId : userLikes.filmIds(userId)) {
+            likes.computeIfPresent(filmId, (id, userIds) -> {
+                if (userIds.remove(userId.longValue())) {
+                    likeCount.decrement();
+                    trending.record(id, -1);
+                }
+                return userIds.isEmpty() ? null : userIds;
+            });
+            updatePopularity(filmId);
+        }
+        userLikes.removeUser(userId);
+        log.info("Сняты лайки пользователя {}", userId);
+    }
+
+    @Override
+    public Film getFilmById(Long filmId) {
+        Film film = filmId == null ? null : records.get(filmId, this::materialize);
+        if (film == null) {
+            throw notFound(filmId);
+        }
+        return film;
+    }
+
+    @Override
+    public boolean exists(Long filmId) {
+        return filmId != null && records.contains(filmId);
+    }
+
+    @Override
+    public Set<Long> findExistingIds(Collection<Long> filmIds) {
+        Set<Long> existing = new HashSet<>();
+        for (Long filmId : filmIds) {
+            if (filmId != null && records.contains(filmId)) {
+                existing.add(filmId);
+            }
+        }
+        return existing;
+    }
+
+    @Override
+    public List<Film> getPopularFilms(Long count) {
+        return resolve(popularityIndex.top(count).stream().mapToLong(Long::longValue).toArray());
+    }
+
+    @Override
+    public List<Film> getTrendingFilms(TrendWindow window, long count) {
+        return resolve(trending.top(window, count).stream().mapToLong(Long::longValue).toArray());
+    }
+
+    @Override
+    public List<Film> getLikedFilms(Long userId, long afterId, int limit) {
+        return resolve(userLikes.page(userId, afterId, limit));
+    }
+
+    @Override
+    public long size() {
+        return records.size();
+    }
+
+    @Override
+    public long totalLikes() {
+        return likeCount.sum();
+    }
+
+    @Override
+    public long version() {
+        return changes.version();
+    }
+
+    @Override
+    public void addChangeListener(FilmChangeListener listener) {
+        changes.addListener(listener);
+    }
+
+    /**
+     * Память вне кучи, выделенная под записи, и её часть, занятая заменёнными и удалёнными записями.
+     */
+    public long allocatedBytes() {
+        return records.allocatedBytes();
+    }
+
+    public long garbageBytes() {
+        return records.garbageBytes();
+    }
+
+    private void store(Film film) {
+        records.put(film.getId(), encode(film, film.getVersion()));
+        if (!film.getLikes().isEmpty()) {
+            LongHashSet userIds = film.getLikes().snapshot();
+            likes.put(film.getId(), userIds);
+            likeCount.add(userIds.size());
+            userLikes.addAll(film.getId(), userIds);
+        }
+        updatePopularity(film.getId());
+    }
+
+    /**
+     * Существование фильма проверяется внутри блокировки ключа: удаление, прошедшее раньше, не оставит
+     * лайков удалённому фильму, а прошедшее позже заберёт их вместе с множеством.
+     */
+    private void like(Long filmId, Collection<Long> userIds) {
+        if (filmId == null) {
+            throw notFound(null);
+        }
+        likes.compute(filmId, (id, current) -> {
+            if (!records.contains(id)) {
+                throw notFound(id);
+            }
+            LongHashSet target = current == null ? new LongHashSet() : current;
+            for (Long userId : userIds) {
+                if (target.add(userId.longValue())) {
+                    likeCount.increment();
+                    userLikes.add(id, userId);
+                    trending.record(id, 1);
+                }
+            }
+            return target.isEmpty() ? null : target;
+        });
+    }
+
+    private void unlike(Long filmId, Collection<Long> userIds) {
+        if (filmId == null) {
+            throw notFound(null);
+        }
+        likes.compute(filmId, (id, current) -> {
+            if (!records.contains(id)) {
+                throw notFound(id);
+            }
+            if (current == null) {
+                return null;
+            }
+            for (Long userId : userIds) {
+                if (current.remove(userId.longValue())) {
+                    likeCount.decrement();
+                    userLikes.remove(id, userId);
+                    trending.record(id, -1);
+                }
+            }
+            return current.isEmpty() ? null : current;
+        });
+    }
+
+    private void updatePopularity(long filmId) {
+        popularityIndex.update(filmId, () -> likeCountOf(filmId));
+        changes.changed(filmId, records.contains(filmId) ? likeCountOf(filmId) : FilmChangeListener.DELETED);
+    }
+
+    private int likeCountOf(long filmId) {
+        LongHashSet userIds = likes.get(filmId);
+        return userIds == null ? 0 : userIds.size();
+    }
+
+    private LongHashSet likesOf(long filmId) {
+        LongHashSet userIds = likes.get(filmId);
+        return userIds == null ? new LongHashSet() : userIds.snapshot();
+    }
+
+    private List<Film> resolve(long[] ids) {
+        List<Film> result = new ArrayList<>(ids.length);
+        for (long id : ids) {
+            Film film = records.get(id, this::materialize);
+            if (film != null) {
+                result.add(film);
+            }
+        }
+        return result;
+    }
+
+    private Film materialize(ByteBuffer record) {
+        return decode(record, likesOf(record.getLong(0)));
+    }
+
+    private static Film decode(ByteBuffer in, LongHashSet filmLikes) {
+        long id = in.getLong();
+        long version = in.getLong();
+        long releaseDate = in.getLong();
+        int duration = in.getInt();
+        return Film.builder()
+                .id(id)
+                .version(version)
+                .releaseDate(releaseDate == NO_DATE ? null : LocalDate.ofEpochDay(releaseDate))
+                .duration(duration == NO_DURATION ? null : duration)
+                .name(OffHeapRecordStore.getString(in))
+                .description(OffHeapRecordStore.getString(in))
+                .likes(filmLikes == null ? new LongHashSet() : filmLikes)
+                .build();
+    }
+
+    private static byte[] encode(Film film, long version) {
+        byte[] name = OffHeapRecordStore.utf8(film.getName());
+        byte[] description = OffHeapRecordStore.utf8(film.getDescription());
+        ByteBuffer out = ByteBuffer.allocate(FIXED_SIZE
+                + OffHeapRecordStore.sizeOf(name) + OffHeapRecordStore.sizeOf(description));
+        out.putLong(film.getId())
+                .putLong(version)
+                .putLong(film.getReleaseDate() == null ? NO_DATE : film.getReleaseDate().toEpochDay())
+                .putInt(film.getDuration() == null ? NO_DURATION : film.getDuration());
+        OffHeapRecordStore.putString(out, name);
+        OffHeapRecordStore.putString(out, description);
+        return out.array();
+    }
+
+    private static NotFoundException notFound(Long filmId) {
+        log.error("Фильм с id {} не найден", filmId);
+        return new NotFoundException("Фильм не найден");
+    }
+
+    private static Map<Long, List<Long>> groupByFilm(Collection<FilmLike> likes) {
+        Map<Long, List<Long>> byFilm = new HashMap<>();
+        for (FilmLike like : likes) {
+            byFilm.computeIfAbsent(like.getFilmId(), id -> new ArrayList<>()).add(like.getUserId());
+        }
+        return byFilm;
+    }
+}
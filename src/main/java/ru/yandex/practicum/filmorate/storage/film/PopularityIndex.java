@@ -0,0 +1,165 @@
+package ru.yandex.practicum.filmorate.storage.film;
+
+import ru.yandex.practicum.filmorate.utils.PartitionedMap;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.function.IntSupplier;
+import java.util.stream.IntStream;
+
+/**
+ * Индекс популярности: фильмы с лайками, упорядоченные по числу лайков (по убыванию),
+ * а при равенстве — по id (по возрастанию). Обновляется на месте при изменении лайков,
+ * поэтому первые N фильмов читаются за O(N) без сортировки всего каталога.
+ *
+ * <p>Индекс разбит на партиции по id фильма, как и карта фильмов: лайки популярных фильмов
+ * не сходятся в голове одного списка. Первые N собираются слиянием первых N каждой партиции.
+ */
+class PopularityIndex {
+    // меньшие выборки сливаются в вызывающем потоке: передача задач пулу дороже самой работы
+    private static final long PARALLEL_THRESHOLD = 4096;
+
+    private final Partition[] partitions;
+
+    PopularityIndex() {
+        this(1);
+    }
+
+    PopularityIndex(int partitions) {
+        this.partitions = new Partition[partitions];
+        for (int i = 0; i < partitions; i++) {
+            this.partitions[i] = new Partition();
+        }
+    }
+
+    /**
+     * Пересчитывает позицию фильма. Число лайков читается внутри блокировки ключа,
+     * поэтому при гонке двух обновлений в индексе остаётся самое свежее значение.
+     */
+    void update(long filmId, IntSupplier likes) {
+        partition(filmId).update(filmId, likes);
+    }
+
+    void remove(long filmId) {
+        partition(filmId).remove(filmId);
+    }
+
+    /**
+     * Первые {@code count} каждой партиции читаются параллельно в общем {@code ForkJoinPool}, если
+     * выборка достаточно велика, затем сливаются через кучу по первому элементу каждой партиции.
+     */
+    List<Long> top(long count) {
+        if (partitions.length == 1) {
+            return partitions[0].topEntries(count).stream().map(Entry::filmId).toList();
+        }
+        IntStream indexes = IntStream.range(0, partitions.length);
+        if (count >= PARALLEL_THRESHOLD / partitions.length) {
+            indexes = indexes.parallel();
+        }
+        List<List<Entry>> tops = indexes.mapToObj(i -> partitions[i].topEntries(count)).toList();
+
+        PriorityQueue<Cursor> heads = new PriorityQueue<>();
+        for (List<Entry> entries : tops) {
+            if (!entries.isEmpty()) {
+                heads.add(new Cursor(entries));
+            }
+        }
+        List<Long> result = new ArrayList<>();
+        while (result.size() < count && !heads.isEmpty()) {
+            Cursor cursor = heads.poll();
+            result.add(cursor.head().filmId());
+            if (cursor.advance()) {
+                heads.add(cursor);
+            }
+        }
+        return result;
+    }
+
+    private Partition partition(long filmId) {
+        return partitions[PartitionedMap.partitionOf(filmId, partitions.length)];
+    }
+
+    private static final class Partition {
+        private final ConcurrentSkipListSet<Entry> ranking = new ConcurrentSkipListSet<>();
+        private final Map<Long, Entry> entries = new ConcurrentHashMap<>();
+
+        void update(long filmId, IntSupplier likes) {
+            entries.compute(filmId, (id, current) -> {
+                int count = likes.getAsInt();
+                if (current != null && current.likes() == count) {
+                    return current;
+                }
+                // новая позиция добавляется до удаления старой: иначе читатель top() мог бы
+                // не застать фильм ни на одной из них
+                Entry next = count == 0 ? null : new Entry(count, id);
+                if (next != null) {
+                    ranking.add(next);
+                }
+                if (current != null) {
+                    ranking.remove(current);
+                }
+                return next;
+            });
+        }
+
+        void remove(long filmId) {
+            entries.computeIfPresent(filmId, (id, current) -> {
+                ranking.remove(current);
+                return null;
+            });
+        }
+
+        /**
+         * Во время обновления фильм ненадолго стоит в двух позициях; повтор пропускается.
+         */
+        List<Entry> topEntries(long count) {
+            List<Entry> result = new ArrayList<>((int) Math.max(0, Math.min(count, entries.size())));
+            Set<Long> seen = new HashSet<>();
+            Iterator<Entry> iterator = ranking.iterator();
+            while (result.size() < count && iterator.hasNext()) {
+                Entry entry = iterator.next();
+                if (seen.add(entry.filmId())) {
+                    result.add(entry);
+                }
+            }
+            return result;
+        }
+    }
+
+    private static final class Cursor implements Comparable<Cursor> {
+        private final List<Entry> entries;
+        private int position;
+
+        Cursor(List<Entry> entries) {
+            this.entries = entries;
+        }
+
+        Entry head() {
+            return entries.get(position);
+        }
+
+        boolean advance() {
+            return ++position < entries.size();
+        }
+
+        @Override
+        public int compareTo(Cursor other) {
+            return head().compareTo(other.head());
+        }
+    }
+
+    private record Entry(int likes, long filmId) implements Comparable<Entry> {
+        @Override
+        public int compareTo(Entry other) {
+            int byLikes = Integer.compare(other.likes, likes);
+            return byLikes != 0 ? byLikes : Long.compare(filmId, other.filmId);
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package ru.yandex.practicum.filmorate.storage.film;
+
+/**
+ * Окно, за которое считаются лайки в выдаче трендов: последний час, сутки или неделя.
+ */
+public enum TrendWindow {
+    HOUR("1h"),
+    DAY("24h"),
+    WEEK("7d");
+
+    private final String label;
+
+    TrendWindow(String label) {
+        this.label = label;
+    }
+
+    /**
+     * Окно по обозначению из запроса: {@code 1h}, {@code 24h} или {@code 7d}.
+     */
+    public static TrendWindow of(String label) {
+        for (TrendWindow window : values()) {
+            if (window.label.equals(label)) {
+                return window;
+            }
+        }
+        throw new IllegalArgumentException("Неизвестное окно трендов: " + label);
+    }
+
+    public String label() {
+        return label;
+    }
+}
@@ -0,0 +1,301 @@
+package ru.yandex.practicum.filmorate.storage.film;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongSupplier;
+
+/**
+ * Лайки фильмов за скользящие окна {@link TrendWindow}: за последний час по минутам, за сутки и неделю
+ * по часам. У фильма, которому ставили лайки за последнюю неделю, два кольцевых буфера — на 60 минут
+ * и на 168 часов, около килобайта; фильм без лайков за неделю счётчика не имеет.
+ *
+ * <p>Лайк меняет текущие корзины и суммы окон за O(1). Корзины, выпавшие из окна, вычитаются лениво —
+ * при следующем лайке фильма или когда фильм встречается в выдаче, — обхода всех фильмов нет. Снятие
+ * лайка отменяет самый свежий лайк за неделю, а если их нет, не меняет ничего. Поэтому сумма за неделю
+ * не превышает настоящего числа лайков фильма, и «снять и поставить снова» не добавляет в окна лишнего.
+ *
+ * <p>Для каждого окна фильмы упорядочены по сумме, как в {@link PopularityIndex}. Сумма в порядке может
+ * быть устаревшей, но только в большую сторону, поэтому первые N выбираются с головы: устаревший
+ * фильм пересчитывается и опускается на своё место, а фильм, сумма которого подтвердилась, точно
+ * стоит выше всех следующих.
+ */
+public class TrendingIndex {
+    private static final long MINUTE_MILLIS = 60_000;
+    private static final long HOUR_MILLIS = 3_600_000;
+    private static final int MINUTES = 60;
+    private static final int DAY_HOURS = 24;
+    private static final int WEEK_HOURS = 168;
+    private static final TrendWindow[] WINDOWS = TrendWindow.values();
+    // раньше любой записи порядка: с неё начинается обход
+    private static final Entry HEAD = new Entry(Integer.MAX_VALUE, Long.MIN_VALUE);
+
+    private final LongSupplier clock;
+    private final Map<Long, Counter> counters = new ConcurrentHashMap<>();
+    private final List<ConcurrentSkipListSet<Entry>> rankings = new ArrayList<>();
+
+    public TrendingIndex() {
+        this(System::currentTimeMillis);
+    }
+
+    /**
+     * @param clock текущее время в миллисекундах
+     */
+    public TrendingIndex(LongSupplier clock) {
+        this.clock = clock;
+        for (int i = 0; i < WINDOWS.length; i++) {
+            rankings.add(new ConcurrentSkipListSet<>());
+        }
+    }
+
+    /**
+     * Учитывает {@code delta} лайков фильма в текущих корзинах: положительное — поставленные,
+     * отрицательное — снятые.
+     */
+    public void record(long filmId, int delta) {
+        while (delta != 0) {
+            delta = counters.computeIfAbsent(filmId, Counter::new).add(delta);
+        }
+    }
+
+    /**
+     * Забывает фильм, например после его удаления.
+     */
+    public void remove(long filmId) {
+        Counter counter = counters.remove(filmId);
+        if (counter != null) {
+            counter.retire();
+        }
+    }
+
+    /**
+     * Id первых {@code count} фильмов окна по убыванию лайков, при равенстве — по возрастанию id.
+     */
+    public List<Long> top(TrendWindow window, long count) {
+        ConcurrentSkipListSet<Entry> ranking = rankings.get(window.ordinal());
+        List<Long> result = new ArrayList<>();
+        // при снятии лайка фильм может подняться выше и встретиться второй раз
+        Set<Long> seen = new HashSet<>();
+        Entry cursor = HEAD;
+        while (result.size() < count) {
+            Entry head = ranking.higher(cursor);
+            if (head == null) {
+                break;
+            }
+            Counter counter = counters.get(head.filmId());
+            int likes = counter == null ? 0 : counter.likes(window);
+            if (likes == head.likes()) {
+                if (seen.add(head.filmId())) {
+                    result.add(head.filmId());
+                }
+                cursor = head;
+            } else if (counter == null) {
+                // запись осталась от удалённого счётчика
+                ranking.remove(head);
+            }
+            // иначе пересчёт уже переставил фильм ниже, и следующий проход возьмёт новую голову
+        }
+        return result;
+    }
+
+    /**
+     * Счётчик лайков одного фильма. Изменения копятся в {@code pending} и разносятся по корзинам тем,
+     * кто свободно взял блокировку, поэтому потоки, лайкающие один фильм, не ждут друг друга.
+     */
+    private final class Counter {
+        private final long filmId;
+        private final ReentrantLock lock = new ReentrantLock();
+        private final AtomicInteger pending = new AtomicInteger();
+        private final int[] minutes = new int[MINUTES];
+        private final int[] hours = new int[WEEK_HOURS];
+        // суммы окон по порядку TrendWindow
+        private final int[] sums = new int[WINDOWS.length];
+        private final Entry[] entries = new Entry[WINDOWS.length];
+        private long minute;
+        private long hour;
+        // счётчик удалён из карты; изменения, пришедшие после этого, возвращаются вызывающему
+        private boolean retired;
+
+        Counter(long filmId) {
+            this.filmId = filmId;
+            long now = clock.getAsLong();
+            this.minute = now / MINUTE_MILLIS;
+            this.hour = now / HOUR_MILLIS;
+        }
+
+        /**
+         * @return изменения, не попавшие в счётчик, потому что он уже удалён
+         */
+        int add(int delta) {
+            pending.addAndGet(delta);
+            return drain();
+        }
+
+        int likes(TrendWindow window) {
+            int likes;
+            lock.lock();
+            try {
+                if (retired) {
+                    return 0;
+                }
+                apply(0);
+                likes = sums[window.ordinal()];
+            } finally {
+                lock.unlock();
+            }
+            int leftover = drain();
+            if (leftover != 0) {
+                record(filmId, leftover);
+            }
+            return likes;
+        }
+
+        void retire() {
+            lock.lock();
+            try {
+                retired = true;
+                pending.set(0);
+                for (int i = 0; i < WINDOWS.length; i++) {
+                    if (entries[i] != null) {
+                        rankings.get(i).remove(entries[i]);
+                        entries[i] = null;
+                    }
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        /**
+         * Владелец блокировки после неё ещё раз проверяет {@code pending}: изменение, добавленное, пока
+         * блокировка была занята, разнесёт он.
+         */
+        private int drain() {
+            while (pending.get() != 0 && lock.tryLock()) {
+                try {
+                    if (retired) {
+                        return pending.getAndSet(0);
+                    }
+                    apply(pending.getAndSet(0));
+                } finally {
+                    lock.unlock();
+                }
+            }
+            return 0;
+        }
+
+        private void apply(int delta) {
+            advance(clock.getAsLong());
+            if (delta > 0) {
+                minutes[(int) (minute % MINUTES)] += delta;
+                hours[(int) (hour % WEEK_HOURS)] += delta;
+                for (int i = 0; i < WINDOWS.length; i++) {
+                    sums[i] += delta;
+                }
+            } else if (delta < 0) {
+                cancel(-delta);
+            }
+            rank();
+            if (sums[TrendWindow.HOUR.ordinal()] == 0 && sums[TrendWindow.WEEK.ordinal()] == 0
+                    && pending.get() == 0) {
+                retired = true;
+                counters.remove(filmId, this);
+            }
+        }
+
+        /**
+         * Снимает {@code count} лайков с самых свежих непустых корзин: сначала с минут последнего часа,
+         * затем с часов недели. Часовая корзина не меньше своих минут в буфере, а к часам дело доходит,
+         * только когда все минуты пусты, поэтому кольца остаются согласованными.
+         */
+        private void cancel(int count) {
+            for (int back = 0; back < MINUTES && count > 0; back++) {
+                long m = minute - back;
+                int index = Math.floorMod(m, MINUTES);
+                int taken = Math.min(count, minutes[index]);
+                if (taken > 0) {
+                    minutes[index] -= taken;
+                    sums[TrendWindow.HOUR.ordinal()] -= taken;
+                    // минута последнего часа лежит в текущем или прошлом часе — оба входят в сутки
+                    hours[Math.floorMod(m / MINUTES, WEEK_HOURS)] -= taken;
+                    sums[TrendWindow.DAY.ordinal()] -= taken;
+                    sums[TrendWindow.WEEK.ordinal()] -= taken;
+                    count -= taken;
+                }
+            }
+            for (int back = 0; back < WEEK_HOURS && count > 0; back++) {
+                int index = Math.floorMod(hour - back, WEEK_HOURS);
+                int taken = Math.min(count, hours[index]);
+                if (taken > 0) {
+                    hours[index] -= taken;
+                    if (back < DAY_HOURS) {
+                        sums[TrendWindow.DAY.ordinal()] -= taken;
+                    }
+                    sums[TrendWindow.WEEK.ordinal()] -= taken;
+                    count -= taken;
+                }
+            }
+        }
+
+        /**
+         * Вычитает корзины, выпавшие из окон с прошлого вызова: не больше размера буфера за раз.
+         */
+        private void advance(long now) {
+            long nowMinute = now / MINUTE_MILLIS;
+            if (nowMinute > minute) {
+                long last = minute + Math.min(nowMinute - minute, MINUTES);
+                for (long m = minute + 1; m <= last; m++) {
+                    int index = (int) (m % MINUTES);
+                    sums[TrendWindow.HOUR.ordinal()] -= minutes[index];
+                    minutes[index] = 0;
+                }
+                minute = nowMinute;
+            }
+            long nowHour = now / HOUR_MILLIS;
+            if (nowHour > hour) {
+                // из суток выпадают часы до nowHour - 24 включительно; в буфере они ещё лежат
+                for (long h = hour - DAY_HOURS + 1; h <= Math.min(hour, nowHour - DAY_HOURS); h++) {
+                    sums[TrendWindow.DAY.ordinal()] -= hours[Math.floorMod(h, WEEK_HOURS)];
+                }
+                long last = hour + Math.min(nowHour - hour, WEEK_HOURS);
+                for (long h = hour + 1; h <= last; h++) {
+                    int index = (int) (h % WEEK_HOURS);
+                    sums[TrendWindow.WEEK.ordinal()] -= hours[index];
+                    hours[index] = 0;
+                }
+                hour = nowHour;
+            }
+        }
+
+        private void rank() {
+            for (int i = 0; i < WINDOWS.length; i++) {
+                Entry current = entries[i];
+                if (current != null && current.likes() == sums[i]) {
+                    continue;
+                }
+                ConcurrentSkipListSet<Entry> ranking = rankings.get(i);
+                if (current != null) {
+                    ranking.remove(current);
+                }
+                entries[i] = sums[i] > 0 ? new Entry(sums[i], filmId) : null;
+                if (entries[i] != null) {
+                    ranking.add(entries[i]);
+                }
+            }
+        }
+    }
+
+    private record Entry(int likes, long filmId) implements Comparable<Entry> {
+        @Override
+        public int compareTo(Entry other) {
+            int byLikes = Integer.compare(other.likes, likes);
+            return byLikes != 0 ? byLikes : Long.compare(filmId, other.filmId);
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package ru.yandex.practicum.filmorate.storage.film;
+
+import ru.yandex.practicum.filmorate.utils.LongHashSet;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+/**
+ * Обратный индекс лайков: пользователь → фильмы, которые он лайкнул. Ведётся вместе с
+ * {@code Film.likes}, поэтому любимые фильмы пользователя находятся за O(его лайков), без обхода каталога.
+ *
+ * <p>Фильмы пользователя хранятся упорядоченными по id: страница читается с нужного места, без сортировки.
+ * Множество пользователя, у которого не осталось лайков, удаляется.
+ */
+class UserLikesIndex {
+    private final Map<Long, NavigableSet<Long>> filmsByUser = new ConcurrentHashMap<>();
+
+    void add(long filmId, long userId) {
+        filmsByUser.compute(userId, (id, filmIds) -> {
+            NavigableSet<Long> target = filmIds == null ? new ConcurrentSkipListSet<>() : filmIds;
+            target.add(filmId);
+            return target;
+        });
+    }
+
+    void remove(long filmId, long userId) {
+        filmsByUser.computeIfPresent(userId, (id, filmIds) -> {
+            filmIds.remove(filmId);
+            return filmIds.isEmpty() ? null : filmIds;
+        });
+    }
+
+    boolean contains(long filmId, long userId) {
+        NavigableSet<Long> filmIds = filmsByUser.get(userId);
+        return filmIds != null && filmIds.contains(filmId);
+    }
+
+    long[] filmIds(long userId) {
+        NavigableSet<Long> filmIds = filmsByUser.get(userId);
+        return filmIds == null ? new long[0] : filmIds.stream().mapToLong(Long::longValue).toArray();
+    }
+
+    void removeUser(long userId) {
+        filmsByUser.remove(userId);
+    }
+
+    void addAll(long filmId, LongHashSet userIds) {
+        userIds.forEachLong(userId -> add(filmId, userId));
+    }
+
+    void removeAll(long filmId, LongHashSet userIds) {
+        userIds.forEachLong(userId -> remove(filmId, userId));
+    }
+
+    /**
+     * Id фильмов пользователя больше {@code afterId}, по возрастанию, не больше {@code limit}.
+     */
+    long[] page(long userId, long afterId, int limit) {
+        NavigableSet<Long> filmIds = filmsByUser.get(userId);
+        if (filmIds == null) {
+            return new long[0];
+        }
+        long[] page = new long[limit];
+        int size = 0;
+        Iterator<Long> iterator = filmIds.tailSet(afterId, false).iterator();
+        while (size < limit && iterator.hasNext()) {
+            page[size++] = iterator.next();
+        }
+        return size == limit ? page : Arrays.copyOf(page, size);
+    }
+}
@@ -0,0 +1,287 @@
+package ru.yandex.practicum.filmorate.storage.offheap;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.Function;
+
+/**
+ * Записи переменной длины вне кучи и упорядоченный индекс id → адрес записи.
+ *
+ * <p>Записи дописываются в чанки прямых {@link ByteBuffer} и после записи не меняются: обновление
+ * дописывает новую запись и переключает адрес, удаление только убирает адрес. Место старых записей
+ * не переиспользуется, его объём виден в {@link #garbageBytes()}.
+ *
+ * <p>Индекс — два массива {@code long} (id по возрастанию и адреса), поэтому в куче на всё хранилище
+ * приходится несколько объектов, а не объект на запись. Id выдаются по возрастанию, так что вставка
+ * почти всегда дописывает в конец массива. Удалённые id остаются в индексе с пустым адресом.
+ *
+ * <p>Запись и чтение индекса разделяет {@link StampedLock}: чтение сначала выполняется оптимистично,
+ * а сама запись читается уже без блокировки — она неизменяема.
+ */
+public class OffHeapRecordStore {
+    private static final long NO_RECORD = -1;
+    private static final int MIN_INDEX_CAPACITY = 16;
+
+    private final int chunkSize;
+    private final StampedLock lock = new StampedLock();
+    private volatile ByteBuffer[] chunks = new ByteBuffer[0];
+    private int writePosition;
+    private long[] ids = new long[MIN_INDEX_CAPACITY];
+    private long[] addresses = new long[MIN_INDEX_CAPACITY];
+    private int entries;
+    private int live;
+    private long garbageBytes;
+
+    public OffHeapRecordStore(int chunkSize) {
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * Запись с данным id или {@code null}; {@code decoder} получает буфер только для чтения
+     * с содержимым записи.
+     */
+    public <T> T get(long id, Function<ByteBuffer, T> decoder) {
+        long address = address(id);
+        return address == NO_RECORD ? null : decoder.apply(record(address));
+    }
+
+    public boolean contains(long id) {
+        return address(id) != NO_RECORD;
+    }
+
+    /**
+     * Сохраняет запись, заменяя прежнюю с тем же id.
+     *
+     * @return {@code true}, если записи с таким id не было
+     */
+    public boolean put(long id, byte[] record) {
+        long stamp = lock.writeLock();
+        try {
+            int index = Arrays.binarySearch(ids, 0, entries, id);
+            long address = append(record);
+            if (index >= 0) {
+                boolean created = addresses[index] == NO_RECORD;
+                release(addresses[index]);
+                addresses[index] = address;
+                if (created) {
+                    live++;
+                }
+                return created;
+            }
+            insert(-index - 1, id, address);
+            live++;
+            return true;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Заменяет запись под блокировкой записи: {@code update} получает текущую запись и возвращает новую.
+     * Исключение из {@code update} оставляет запись прежней.
+     *
+     * @return {@code false}, если записи с таким id нет
+     */
+    public boolean update(long id, Function<ByteBuffer, byte[]> update) {
+        long stamp = lock.writeLock();
+        try {
+            int index = Arrays.binarySearch(ids, 0, entries, id);
+            if (index < 0 || addresses[index] == NO_RECORD) {
+                return false;
+            }
+            byte[] record = update.apply(record(addresses[index]));
+            release(addresses[index]);
+            addresses[index] = append(record);
+            return true;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Удаляет запись и возвращает её, декодированную до удаления, или {@code null}, если записи нет.
+     */
+    public <T> T remove(long id, Function<ByteBuffer, T> decoder) {
+        long stamp = lock.writeLock();
+        try {
+            int index = Arrays.binarySearch(ids, 0, entries, id);
+            if (index < 0 || addresses[index] == NO_RECORD) {
+                return null;
+            }
+            T removed = decoder.apply(record(addresses[index]));
+            release(addresses[index]);
+            addresses[index] = NO_RECORD;
+            live--;
+            return removed;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * До {@code limit} записей с id больше {@code afterId} по возрастанию id. Адреса собираются под
+     * блокировкой, записи декодируются после неё.
+     */
+    public <T> List<T> page(long afterId, int limit, Function<ByteBuffer, T> decoder) {
+        long[] found;
+        long stamp = lock.readLock();
+        try {
+            int from = Arrays.binarySearch(ids, 0, entries, afterId);
+            from = from >= 0 ? from + 1 : -from - 1;
+            found = new long[Math.min(limit, entries - from)];
+            int count = 0;
+            for (int i = from; i < entries && count < found.length; i++) {
+                if (addresses[i] != NO_RECORD) {
+                    found[count++] = addresses[i];
+                }
+            }
+            found = Arrays.copyOf(found, count);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+        List<T> result = new ArrayList<>(found.length);
+        for (long address : found) {
+            result.add(decoder.apply(record(address)));
+        }
+        return result;
+    }
+
+    public int size() {
+        long stamp = lock.tryOptimisticRead();
+        int size = live;
+        if (lock.validate(stamp)) {
+            return size;
+        }
+        stamp = lock.readLock();
+        try {
+            return live;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Выделенная вне кучи память в байтах.
+     */
+    public long allocatedBytes() {
+        long total = 0;
+        for (ByteBuffer chunk : chunks) {
+            total += chunk.capacity();
+        }
+        return total;
+    }
+
+    /**
+     * Байты, занятые заменёнными и удалёнными записями.
+     */
+    public long garbageBytes() {
+        long stamp = lock.readLock();
+        try {
+            return garbageBytes;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    public static byte[] utf8(String value) {
+        return value == null ? null : value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Размер строки в записи: длина и байты UTF-8.
+     */
+    public static int sizeOf(byte[] utf8) {
+        return Integer.BYTES + (utf8 == null ? 0 : utf8.length);
+    }
+
+    public static void putString(ByteBuffer out, byte[] utf8) {
+        if (utf8 == null) {
+            out.putInt(-1);
+            return;
+        }
+        out.putInt(utf8.length);
+        out.put(utf8);
+    }
+
+    public static String getString(ByteBuffer in) {
+        int length = in.getInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private long address(long id) {
+        long stamp = lock.tryOptimisticRead();
+        long address = find(id);
+        if (lock.validate(stamp)) {
+            return address;
+        }
+        stamp = lock.readLock();
+        try {
+            return find(id);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * При оптимистичном чтении массивы и счётчик могут быть из разных состояний; границы берутся
+     * по самому короткому, а результат всё равно проверяется через {@code validate}.
+     */
+    private long find(long id) {
+        long[] currentIds = ids;
+        long[] currentAddresses = addresses;
+        int count = Math.min(entries, Math.min(currentIds.length, currentAddresses.length));
+        int index = Arrays.binarySearch(currentIds, 0, count, id);
+        return index >= 0 ? currentAddresses[index] : NO_RECORD;
+    }
+
+    private ByteBuffer record(long address) {
+        ByteBuffer chunk = chunks[(int) (address >>> 32)];
+        int position = (int) address;
+        return chunk.slice(position + Integer.BYTES, chunk.getInt(position)).asReadOnlyBuffer();
+    }
+
+    private long append(byte[] record) {
+        int size = Integer.BYTES + record.length;
+        ByteBuffer[] current = chunks;
+        if (current.length == 0 || writePosition + size > current[current.length - 1].capacity()) {
+            current = Arrays.copyOf(current, current.length + 1);
+            current[current.length - 1] = ByteBuffer.allocateDirect(Math.max(chunkSize, size));
+            chunks = current;
+            writePosition = 0;
+        }
+        int chunkIndex = current.length - 1;
+        ByteBuffer chunk = current[chunkIndex];
+        chunk.putInt(writePosition, record.length);
+        chunk.put(writePosition + Integer.BYTES, record);
+        long address = (long) chunkIndex << 32 | writePosition;
+        writePosition += size;
+        return address;
+    }
+
+    private void release(long address) {
+        if (address != NO_RECORD) {
+            garbageBytes += Integer.BYTES + chunks[(int) (address >>> 32)].getInt((int) address);
+        }
+    }
+
+    private void insert(int index, long id, long address) {
+        if (entries == ids.length) {
+            ids = Arrays.copyOf(ids, entries * 2);
+            addresses = Arrays.copyOf(addresses, entries * 2);
+        }
+        System.arraycopy(ids, index, ids, index + 1, entries - index);
+        System.arraycopy(addresses, index, addresses, index + 1, entries - index);
+        ids[index] = id;
+        addresses[index] = address;
+        entries++;
+    }
+}
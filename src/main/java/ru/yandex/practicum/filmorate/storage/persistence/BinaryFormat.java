@@ -0,0 +1,236 @@
+package ru.yandex.practicum.filmorate.storage.persistence;
+
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.utils.LongHashSet;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.zip.CRC32C;
+
+/**
+ * Двоичный формат записей журнала и снимков.
+ *
+ * <p>Запись журнала: {@code int} длина полезной нагрузки, {@code int} CRC32C, затем нагрузка —
+ * {@code long} LSN, {@code byte} тип изменения и поля изменения. Строки хранятся как длина в байтах
+ * ({@code -1} для null) и UTF-8, даты — как номер дня эпохи.
+ * Фильм и пользователь записываются с версией правки сразу после id.
+ */
+final class BinaryFormat {
+    static final int RECORD_HEADER_SIZE = 8;
+
+    private static final byte FILM_SAVED = 1;
+    private static final byte FILM_DELETED = 2;
+    private static final byte LIKE_ADDED = 3;
+    private static final byte LIKE_REMOVED = 4;
+    private static final byte USER_SAVED = 5;
+    private static final byte USER_DELETED = 6;
+    private static final byte FRIEND_ADDED = 7;
+    private static final byte FRIEND_REMOVED = 8;
+
+    private BinaryFormat() {
+    }
+
+    record Entry(long lsn, Mutation mutation) {
+    }
+
+    static byte[] encodeRecord(long lsn, Mutation mutation) {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeInt(0);
+            out.writeInt(0);
+            out.writeLong(lsn);
+            writeMutation(out, mutation);
+            out.flush();
+            byte[] record = bytes.toByteArray();
+            int length = record.length - RECORD_HEADER_SIZE;
+            CRC32C crc = new CRC32C();
+            crc.update(record, RECORD_HEADER_SIZE, length);
+            ByteBuffer.wrap(record).putInt(length).putInt((int) crc.getValue());
+            return record;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Проверяет контрольную сумму нагрузки; {@code false} означает оборванную или испорченную запись.
+     */
+    static boolean checksumMatches(byte[] payload, int expected) {
+        CRC32C crc = new CRC32C();
+        crc.update(payload);
+        return (int) crc.getValue() == expected;
+    }
+
+    static Entry decodePayload(ByteBuffer in) {
+        long lsn = in.getLong();
+        byte type = in.get();
+        Mutation mutation = switch (type) {
+            case FILM_SAVED -> new Mutation.FilmSaved(readFilm(in));
+            case FILM_DELETED -> new Mutation.FilmDeleted(in.getLong());
+            case LIKE_ADDED -> new Mutation.LikeAdded(in.getLong(), in.getLong());
+            case LIKE_REMOVED -> new Mutation.LikeRemoved(in.getLong(), in.getLong());
+            case USER_SAVED -> new Mutation.UserSaved(readUser(in));
+            case USER_DELETED -> new Mutation.UserDeleted(in.getLong());
+            case FRIEND_ADDED -> new Mutation.FriendAdded(in.getLong(), in.getLong());
+            case FRIEND_REMOVED -> new Mutation.FriendRemoved(in.getLong(), in.getLong());
+            default -> throw new IllegalStateException("Неизвестный тип записи журнала: " + type);
+        };
+        return new Entry(lsn, mutation);
+    }
+
+    private static void writeMutation(DataOutput out, Mutation mutation) throws IOException {
+        switch (mutation) {
+            case Mutation.FilmSaved saved -> {
+                out.writeByte(FILM_SAVED);
+                writeFilm(out, saved.film());
+            }
+            case Mutation.FilmDeleted deleted -> {
+                out.writeByte(FILM_DELETED);
+                out.writeLong(deleted.filmId());
+            }
+            case Mutation.LikeAdded like -> {
+                out.writeByte(LIKE_ADDED);
+                out.writeLong(like.filmId());
+                out.writeLong(like.userId());
+            }
+            case Mutation.LikeRemoved like -> {
+                out.writeByte(LIKE_REMOVED);
+                out.writeLong(like.filmId());
+                out.writeLong(like.userId());
+            }
+            case Mutation.UserSaved saved -> {
+                out.writeByte(USER_SAVED);
+                writeUser(out, saved.user());
+            }
+            case Mutation.UserDeleted deleted -> {
+                out.writeByte(USER_DELETED);
+                out.writeLong(deleted.userId());
+            }
+            case Mutation.FriendAdded friend -> {
+                out.writeByte(FRIEND_ADDED);
+                out.writeLong(friend.userId());
+                out.writeLong(friend.friendId());
+            }
+            case Mutation.FriendRemoved friend -> {
+                out.writeByte(FRIEND_REMOVED);
+                out.writeLong(friend.userId());
+                out.writeLong(friend.friendId());
+            }
+        }
+    }
+
+    static void writeFilm(DataOutput out, Film film) throws IOException {
+        out.writeLong(film.getId());
+        out.writeLong(film.getVersion());
+        writeString(out, film.getName());
+        writeString(out, film.getDescription());
+        writeDate(out, film.getReleaseDate());
+        out.writeBoolean(film.getDuration() != null);
+        if (film.getDuration() != null) {
+            out.writeInt(film.getDuration());
+        }
+        writeIds(out, film.getLikes());
+    }
+
+    static Film readFilm(ByteBuffer in) {
+        long id = in.getLong();
+        long version = in.getLong();
+        String name = readString(in);
+        String description = readString(in);
+        LocalDate releaseDate = readDate(in);
+        Integer duration = in.get() != 0 ? in.getInt() : null;
+        return Film.builder()
+                .id(id)
+                .version(version)
+                .name(name)
+                .description(description)
+                .releaseDate(releaseDate)
+                .duration(duration)
+                .likes(readIds(in))
+                .build();
+    }
+
+    static void writeUser(DataOutput out, User user) throws IOException {
+        out.writeLong(user.getId());
+        out.writeLong(user.getVersion());
+        writeString(out, user.getName());
+        writeString(out, user.getEmail());
+        writeString(out, user.getLogin());
+        writeDate(out, user.getBirthday());
+        writeIds(out, user.getFriends());
+    }
+
+    static User readUser(ByteBuffer in) {
+        long id = in.getLong();
+        long version = in.getLong();
+        String name = readString(in);
+        String email = readString(in);
+        String login = readString(in);
+        LocalDate birthday = readDate(in);
+        return User.builder()
+                .id(id)
+                .version(version)
+                .name(name)
+                .email(email)
+                .login(login)
+                .birthday(birthday)
+                .friends(readIds(in))
+                .build();
+    }
+
+    private static void writeString(DataOutput out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(ByteBuffer in) {
+        int length = in.getInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void writeDate(DataOutput out, LocalDate date) throws IOException {
+        out.writeBoolean(date != null);
+        if (date != null) {
+            out.writeLong(date.toEpochDay());
+        }
+    }
+
+    private static LocalDate readDate(ByteBuffer in) {
+        return in.get() != 0 ? LocalDate.ofEpochDay(in.getLong()) : null;
+    }
+
+    private static void writeIds(DataOutput out, LongHashSet ids) throws IOException {
+        long[] values = ids.toLongArray();
+        out.writeInt(values.length);
+        for (long value : values) {
+            out.writeLong(value);
+        }
+    }
+
+    private static LongHashSet readIds(ByteBuffer in) {
+        int count = in.getInt();
+        LongHashSet ids = new LongHashSet(count);
+        for (int i = 0; i < count; i++) {
+            ids.add(in.getLong());
+        }
+        return ids;
+    }
+}
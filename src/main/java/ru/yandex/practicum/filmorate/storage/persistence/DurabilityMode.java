@@ -0,0 +1,19 @@
+package ru.yandex.practicum.filmorate.storage.persistence;
+
+/**
+ * Когда изменение считается сохранённым и запрос может вернуть ответ.
+ */
+public enum DurabilityMode {
+    /**
+     * fsync после каждой записи журнала.
+     */
+    SYNC,
+    /**
+     * Групповая фиксация: один fsync на пачку записей, накопившихся пока писатель был занят.
+     */
+    BATCH,
+    /**
+     * Запрос не ждёт диска; журнал сбрасывается фоновым потоком раз в {@code async-flush-interval}.
+     */
+    ASYNC
+}
@@ -0,0 +1,406 @@
+package ru.yandex.practicum.filmorate.storage.persistence;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * Журнал упреждающей записи в файлах {@code wal-<первый LSN>.log}.
+ *
+ * <p>Потоки запросов только кладут закодированную запись в очередь; на диск пишет один поток-писатель,
+ * который забирает всю накопившуюся очередь разом (групповая фиксация). В режимах {@code SYNC} и
+ * {@code BATCH} запрос ждёт, пока его запись не будет сброшена на диск.
+ *
+ * <p>Запись встаёт в очередь раньше, чем изменение применяется в памяти: если журнал уже закрыт или
+ * отказал, изменение не применяется. Отказ диска или потока-писателя после постановки в очередь
+ * необратим — журнал больше не принимает записей и не даёт переключить сегмент, поэтому снимок
+ * с изменением, не дошедшим до журнала, не запишется. Используются только
+ * {@link ReentrantLock}, чтобы ожидание диска не закрепляло виртуальные потоки.
+ */
+@Slf4j
+public class FileMutationJournal implements MutationJournal, Closeable {
+    private static final int STRIPES = 256;
+    private static final String SEGMENT_PREFIX = "wal-";
+    private static final String SEGMENT_SUFFIX = ".log";
+    private static final int MAX_RECORD_SIZE = 64 * 1024 * 1024;
+
+    private final Path directory;
+    private final DurabilityMode durability;
+    private final long asyncFlushNanos;
+    private final ReentrantLock[] stripes = new ReentrantLock[STRIPES];
+
+    private final ReentrantLock queueLock = new ReentrantLock();
+    private final Condition workAvailable = queueLock.newCondition();
+    private final Condition progress = queueLock.newCondition();
+    private List<byte[]> pending = new ArrayList<>();
+    private long lastLsn;
+    private long durableLsn;
+    private boolean rotationRequested;
+    private long rotatedAt;
+    private boolean stopping;
+    private IOException failure;
+
+    private volatile boolean started;
+    private FileChannel segment;
+    private volatile Path segmentPath;
+    private Thread writer;
+
+    public FileMutationJournal(Path directory, DurabilityMode durability, Duration asyncFlushInterval) {
+        this.directory = directory;
+        this.durability = durability;
+        this.asyncFlushNanos = asyncFlushInterval.toNanos();
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+    }
+
+    @Override
+    public boolean writeIf(long key, BooleanSupplier condition, Mutation mutation, BooleanSupplier change) {
+        if (!started) {
+            return condition.getAsBoolean() && change.getAsBoolean();
+        }
+        ReentrantLock stripe = stripes[stripeIndex(key)];
+        long lsn;
+        stripe.lock();
+        try {
+            if (!condition.getAsBoolean()) {
+                return false;
+            }
+            lsn = enqueue(mutation);
+            // условие проверено под той же блокировкой, обмен удастся
+            change.getAsBoolean();
+        } finally {
+            stripe.unlock();
+        }
+        awaitDurable(lsn);
+        return true;
+    }
+
+    @Override
+    public boolean writeIf(long key, long otherKey, BooleanSupplier condition, Mutation mutation,
+                           BooleanSupplier change) {
+        if (!started) {
+            return condition.getAsBoolean() && change.getAsBoolean();
+        }
+        // блокировки берутся в порядке номеров полос, чтобы не было взаимоблокировки
+        int index = stripeIndex(key);
+        int otherIndex = stripeIndex(otherKey);
+        ReentrantLock first = stripes[Math.min(index, otherIndex)];
+        ReentrantLock second = stripes[Math.max(index, otherIndex)];
+        long lsn;
+        first.lock();
+        if (second != first) {
+            second.lock();
+        }
+        try {
+            if (!condition.getAsBoolean()) {
+                return false;
+            }
+            lsn = enqueue(mutation);
+            change.getAsBoolean();
+        } finally {
+            if (second != first) {
+                second.unlock();
+            }
+            first.unlock();
+        }
+        awaitDurable(lsn);
+        return true;
+    }
+
+    /**
+     * Применяет к {@code consumer} все записи с LSN больше {@code afterLsn} и возвращает последний
+     * прочитанный LSN. Оборванная запись в конце сегмента (сбой посреди записи) пропускается.
+     */
+    public long replay(long afterLsn, Consumer<Mutation> consumer) throws IOException {
+        long last = afterLsn;
+        for (Path path : segments()) {
+            try (InputStream file = Files.newInputStream(path);
+                 DataInputStream in = new DataInputStream(new BufferedInputStream(file, 1 << 16))) {
+                while (true) {
+                    BinaryFormat.Entry entry = readEntry(in, path);
+                    if (entry == null) {
+                        break;
+                    }
+                    if (entry.lsn() > last) {
+                        consumer.accept(entry.mutation());
+                        last = entry.lsn();
+                    }
+                }
+            }
+        }
+        return last;
+    }
+
+    /**
+     * Открывает новый сегмент и запускает поток-писатель. До вызова изменения применяются без журнала,
+     * что используется при восстановлении.
+     */
+    public void start(long nextLsn) throws IOException {
+        Files.createDirectories(directory);
+        lastLsn = nextLsn - 1;
+        durableLsn = lastLsn;
+        openSegment(nextLsn);
+        writer = new Thread(this::runWriter, "wal-writer");
+        writer.setDaemon(true);
+        writer.start();
+        started = true;
+        log.info("Журнал изменений открыт в {}, режим {}", directory, durability);
+    }
+
+    /**
+     * Закрывает текущий сегмент и начинает новый. Возвращает последний LSN закрытого сегмента:
+     * все изменения с меньшими или равными LSN уже применены в памяти.
+     */
+    public long rotate() {
+        long lsn;
+        queueLock.lock();
+        try {
+            rotationRequested = true;
+            workAvailable.signal();
+            while (rotationRequested && failure == null) {
+                progress.awaitUninterruptibly();
+            }
+            throwIfFailed();
+            lsn = rotatedAt;
+        } finally {
+            queueLock.unlock();
+        }
+        // запись получает LSN и применяется под одной блокировкой полосы: пройдя все полосы,
+        // дожидаемся применения всего, что попало в закрытый сегмент
+        for (ReentrantLock stripe : stripes) {
+            stripe.lock();
+            stripe.unlock();
+        }
+        return lsn;
+    }
+
+    /**
+     * Удаляет закрытые сегменты, все записи которых не новее {@code lsn}.
+     */
+    public void deleteSegmentsUpTo(long lsn) throws IOException {
+        for (Path path : segments()) {
+            if (!path.equals(segmentPath) && firstLsn(path) <= lsn) {
+                Files.deleteIfExists(path);
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        if (!started) {
+            return;
+        }
+        queueLock.lock();
+        try {
+            if (stopping) {
+                return;
+            }
+            stopping = true;
+            workAvailable.signal();
+        } finally {
+            queueLock.unlock();
+        }
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static int stripeIndex(long key) {
+        return (int) ((key ^ (key >>> 32)) & (STRIPES - 1));
+    }
+
+    private long enqueue(Mutation mutation) {
+        queueLock.lock();
+        try {
+            throwIfFailed();
+            if (stopping) {
+                throw new IllegalStateException("Журнал изменений закрыт");
+            }
+            long lsn = ++lastLsn;
+            pending.add(BinaryFormat.encodeRecord(lsn, mutation));
+            workAvailable.signal();
+            return lsn;
+        } finally {
+            queueLock.unlock();
+        }
+    }
+
+    private void awaitDurable(long lsn) {
+        if (durability == DurabilityMode.ASYNC) {
+            return;
+        }
+        queueLock.lock();
+        try {
+            while (durableLsn < lsn && failure == null) {
+                progress.awaitUninterruptibly();
+            }
+            throwIfFailed();
+        } finally {
+            queueLock.unlock();
+        }
+    }
+
+    private void runWriter() {
+        boolean dirty = false;
+        long lastForce = System.nanoTime();
+        try {
+            while (true) {
+                List<byte[]> batch;
+                long batchLsn;
+                boolean rotate;
+                boolean stop;
+                queueLock.lock();
+                try {
+                    while (pending.isEmpty() && !rotationRequested && !stopping) {
+                        if (dirty && durability == DurabilityMode.ASYNC) {
+                            if (workAvailable.awaitNanos(asyncFlushNanos) <= 0) {
+                                break;
+                            }
+                        } else {
+                            workAvailable.await();
+                        }
+                    }
+                    batch = pending;
+                    pending = new ArrayList<>();
+                    batchLsn = lastLsn;
+                    rotate = rotationRequested;
+                    stop = stopping;
+                } finally {
+                    queueLock.unlock();
+                }
+
+                for (byte[] record : batch) {
+                    writeFully(record);
+                    if (durability == DurabilityMode.SYNC) {
+                        segment.force(false);
+                    }
+                }
+                dirty |= !batch.isEmpty() && durability != DurabilityMode.SYNC;
+                boolean flushDue = System.nanoTime() - lastForce >= asyncFlushNanos;
+                if (dirty && (durability == DurabilityMode.BATCH || rotate || stop || flushDue)) {
+                    segment.force(false);
+                    dirty = false;
+                    lastForce = System.nanoTime();
+                }
+                if (rotate) {
+                    segment.close();
+                    openSegment(batchLsn + 1);
+                }
+
+                queueLock.lock();
+                try {
+                    durableLsn = batchLsn;
+                    if (rotate) {
+                        rotatedAt = batchLsn;
+                        rotationRequested = false;
+                    }
+                    progress.signalAll();
+                } finally {
+                    queueLock.unlock();
+                }
+                if (stop) {
+                    segment.close();
+                    return;
+                }
+            }
+        } catch (IOException e) {
+            log.error("Ошибка записи журнала изменений", e);
+            fail(e);
+        } catch (InterruptedException e) {
+            fail(new IOException("Поток записи журнала прерван", e));
+        } catch (Throwable e) {
+            // без этого ждущие в awaitDurable() зависли бы навсегда
+            log.error("Поток записи журнала изменений завершился ошибкой", e);
+            fail(new IOException("Поток записи журнала завершился ошибкой", e));
+        }
+    }
+
+    private void fail(IOException e) {
+        queueLock.lock();
+        try {
+            failure = e;
+            progress.signalAll();
+        } finally {
+            queueLock.unlock();
+        }
+    }
+
+    private void throwIfFailed() {
+        if (failure != null) {
+            throw new UncheckedIOException("Журнал изменений недоступен", failure);
+        }
+    }
+
+    private void writeFully(byte[] record) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(record);
+        while (buffer.hasRemaining()) {
+            segment.write(buffer);
+        }
+    }
+
+    private void openSegment(long firstLsn) throws IOException {
+        segmentPath = directory.resolve(String.format("%s%020d%s", SEGMENT_PREFIX, firstLsn, SEGMENT_SUFFIX));
+        segment = FileChannel.open(segmentPath,
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+    }
+
+    private BinaryFormat.Entry readEntry(DataInputStream in, Path path) throws IOException {
+        try {
+            int length = in.readInt();
+            int checksum = in.readInt();
+            if (length <= 0 || length > MAX_RECORD_SIZE) {
+                log.warn("Повреждённая запись в {}, остаток сегмента пропущен", path);
+                return null;
+            }
+            byte[] payload = new byte[length];
+            in.readFully(payload);
+            if (!BinaryFormat.checksumMatches(payload, checksum)) {
+                log.warn("Неверная контрольная сумма в {}, остаток сегмента пропущен", path);
+                return null;
+            }
+            return BinaryFormat.decodePayload(ByteBuffer.wrap(payload));
+        } catch (EOFException e) {
+            return null;
+        }
+    }
+
+    private List<Path> segments() throws IOException {
+        if (!Files.isDirectory(directory)) {
+            return List.of();
+        }
+        try (Stream<Path> files = Files.list(directory)) {
+            return files
+                    .filter(path -> path.getFileName().toString().startsWith(SEGMENT_PREFIX))
+                    .filter(path -> path.getFileName().toString().endsWith(SEGMENT_SUFFIX))
+                    .sorted()
+                    .toList();
+        }
+    }
+
+    private static long firstLsn(Path segment) {
+        String name = segment.getFileName().toString();
+        return Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+    }
+}
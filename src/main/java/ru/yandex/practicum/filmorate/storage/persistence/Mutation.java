@@ -0,0 +1,34 @@
+package ru.yandex.practicum.filmorate.storage.persistence;
+
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+
+/**
+ * Изменение хранилища, записываемое в журнал. Все изменения идемпотентны: повторное применение
+ * хвоста журнала поверх снимка, снятого во время записи, даёт то же состояние.
+ */
+public sealed interface Mutation {
+    record FilmSaved(Film film) implements Mutation {
+    }
+
+    record FilmDeleted(long filmId) implements Mutation {
+    }
+
+    record LikeAdded(long filmId, long userId) implements Mutation {
+    }
+
+    record LikeRemoved(long filmId, long userId) implements Mutation {
+    }
+
+    record UserSaved(User user) implements Mutation {
+    }
+
+    record UserDeleted(long userId) implements Mutation {
+    }
+
+    record FriendAdded(long userId, long friendId) implements Mutation {
+    }
+
+    record FriendRemoved(long userId, long friendId) implements Mutation {
+    }
+}
@@ -0,0 +1,47 @@
+package ru.yandex.practicum.filmorate.storage.persistence;
+
+import java.util.function.BooleanSupplier;
+
+/**
+ * Журнал изменений хранилищ. Изменение записывается в журнал и применяется под блокировкой ключа,
+ * поэтому для одного ключа порядок в журнале совпадает с порядком применения в памяти.
+ */
+public interface MutationJournal {
+    /**
+     * Изменения не записываются, но условие и изменение всё равно выполняются под блокировкой ключа.
+     */
+    MutationJournal DISABLED = new UnjournaledWrites();
+
+    /**
+     * Записывает {@code mutation} и выполняет {@code change}. Запись делается раньше изменения, поэтому
+     * {@code change} не должен бросать исключений: проверки, от которых зависит изменение, делаются
+     * заранее или в {@link #writeIf}.
+     */
+    default void write(long key, Mutation mutation, Runnable change) {
+        writeIf(key, () -> true, mutation, () -> {
+            change.run();
+            return true;
+        });
+    }
+
+    /**
+     * То же с условием: {@code condition} проверяется под блокировкой ключа, и если оно не выполнено,
+     * ничего не записывается. Записи по тому же ключу не вклиниваются между проверкой и {@code change},
+     * поэтому условием проверяют, что сущность не удалили и не заменили новой правкой.
+     *
+     * @return {@code true}, если изменение применено
+     */
+    boolean writeIf(long key, BooleanSupplier condition, Mutation mutation, BooleanSupplier change);
+
+    /**
+     * То же для изменений, затрагивающих два ключа (например, дружба двух пользователей).
+     */
+    default void write(long key, long otherKey, Mutation mutation, Runnable change) {
+        writeIf(key, otherKey, () -> true, mutation, () -> {
+            change.run();
+            return true;
+        });
+    }
+
+    boolean writeIf(long key, long otherKey, BooleanSupplier condition, Mutation mutation, BooleanSupplier change);
+}
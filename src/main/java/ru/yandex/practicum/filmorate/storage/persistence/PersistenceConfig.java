@@ -0,0 +1,47 @@
+package ru.yandex.practicum.filmorate.storage.persistence;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import ru.yandex.practicum.filmorate.storage.film.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.user.InMemoryUserStorage;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+/**
+ * Сохранение хранилищ в памяти на диск включается свойством {@code filmorate.persistence.enabled=true}.
+ * С профилем {@code jdbc} данные и так хранятся в базе, журнал не нужен.
+ */
+@Configuration
+@Profile("!jdbc & !offheap")
+public class PersistenceConfig {
+
+    @Bean
+    @ConditionalOnProperty(name = "filmorate.persistence.enabled", havingValue = "true")
+    public FileMutationJournal fileMutationJournal(
+            @Value("${filmorate.persistence.directory:data}") Path directory,
+            @Value("${filmorate.persistence.durability:batch}") String durability,
+            @Value("${filmorate.persistence.async-flush-interval:200ms}") Duration asyncFlushInterval) {
+        return new FileMutationJournal(directory, DurabilityMode.valueOf(durability.toUpperCase()), asyncFlushInterval);
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "filmorate.persistence.enabled", havingValue = "false", matchIfMissing = true)
+    public MutationJournal disabledMutationJournal() {
+        return MutationJournal.DISABLED;
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "filmorate.persistence.enabled", havingValue = "true")
+    public PersistenceManager persistenceManager(
+            FileMutationJournal journal,
+            InMemoryFilmStorage filmStorage,
+            InMemoryUserStorage userStorage,
+            @Value("${filmorate.persistence.directory:data}") Path directory,
+            @Value("${filmorate.persistence.snapshot-interval:10m}") Duration snapshotInterval) {
+        return new PersistenceManager(journal, filmStorage, userStorage, directory, snapshotInterval);
+    }
+}
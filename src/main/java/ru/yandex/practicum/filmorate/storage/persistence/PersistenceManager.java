@@ -0,0 +1,237 @@
+package ru.yandex.practicum.filmorate.storage.persistence;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import ru.yandex.practicum.filmorate.exceptions.NotFoundException;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.film.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.user.InMemoryUserStorage;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+
+/**
+ * Восстановление хранилищ при старте и периодические снимки.
+ *
+ * <p>Снимок {@code snapshot-<LSN>.bin} содержит состояние на момент не раньше указанного LSN. Он снимается
+ * без остановки записи, поэтому при старте поверх него проигрываются все записи журнала с большим LSN;
+ * изменения идемпотентны, и итог совпадает с состоянием до остановки.
+ *
+ * <p>Пользователь в снимке может быть уже удалён, а лайки фильмов — сняты с ещё не удалённого, или
+ * наоборот. Поэтому удаление пользователя при повторе снимает и его лайки, а лайк пользователя, которого
+ * в хранилище нет, пропускается: пользователь создаётся раньше своих лайков, и отсутствовать он может,
+ * только если удалён.
+ */
+@Slf4j
+public class PersistenceManager {
+    private static final int SNAPSHOT_MAGIC = 0x46494C4D;
+    private static final int SNAPSHOT_VERSION = 1;
+    private static final String SNAPSHOT_PREFIX = "snapshot-";
+    private static final String SNAPSHOT_SUFFIX = ".bin";
+    private static final byte USER_RECORD = 1;
+    private static final byte FILM_RECORD = 2;
+    private static final byte END_OF_SNAPSHOT = 0;
+
+    private final FileMutationJournal journal;
+    private final InMemoryFilmStorage filmStorage;
+    private final InMemoryUserStorage userStorage;
+    private final Path directory;
+    private final Duration snapshotInterval;
+    // снимки по расписанию и при остановке не должны писаться одновременно: каждый удаляет предыдущие
+    private final ReentrantLock snapshotLock = new ReentrantLock();
+    private ScheduledExecutorService scheduler;
+
+    public PersistenceManager(FileMutationJournal journal, InMemoryFilmStorage filmStorage,
+                              InMemoryUserStorage userStorage, Path directory, Duration snapshotInterval) {
+        this.journal = journal;
+        this.filmStorage = filmStorage;
+        this.userStorage = userStorage;
+        this.directory = directory;
+        this.snapshotInterval = snapshotInterval;
+    }
+
+    @PostConstruct
+    public void start() throws IOException {
+        long lastLsn = restore();
+        journal.start(lastLsn + 1);
+        if (!snapshotInterval.isZero()) {
+            scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "snapshot-writer");
+                thread.setDaemon(true);
+                return thread;
+            });
+            long period = snapshotInterval.toMillis();
+            scheduler.scheduleWithFixedDelay(this::snapshotQuietly, period, period, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @PreDestroy
+    public void stop() throws IOException, InterruptedException {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            scheduler.awaitTermination(1, TimeUnit.MINUTES);
+        }
+        snapshot();
+        journal.close();
+    }
+
+    /**
+     * Загружает последний снимок и проигрывает хвост журнала. Возвращает последний применённый LSN.
+     */
+    long restore() throws IOException {
+        long started = System.nanoTime();
+        Path snapshot = latestSnapshot();
+        long snapshotLsn = snapshot == null ? 0 : loadSnapshot(snapshot);
+        long lastLsn = journal.replay(snapshotLsn, this::apply);
+        log.info("Хранилища восстановлены за {} мс: снимок до LSN {}, журнал до LSN {}",
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started), snapshotLsn, lastLsn);
+        return lastLsn;
+    }
+
+    /**
+     * Снимает снимок: переключает сегмент журнала, пишет состояние во временный файл, атомарно
+     * переименовывает его и удаляет снимки с меньшим LSN и покрытые им сегменты. Снимки снимаются
+     * по одному.
+     */
+    public void snapshot() throws IOException {
+        snapshotLock.lock();
+        try {
+            writeSnapshot();
+        } finally {
+            snapshotLock.unlock();
+        }
+    }
+
+    private void writeSnapshot() throws IOException {
+        long lsn = journal.rotate();
+        Path target = directory.resolve(String.format("%s%020d%s", SNAPSHOT_PREFIX, lsn, SNAPSHOT_SUFFIX));
+        Path temporary = directory.resolve(target.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temporary,
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel), 1 << 16));
+            out.writeInt(SNAPSHOT_MAGIC);
+            out.writeInt(SNAPSHOT_VERSION);
+            out.writeLong(lsn);
+            for (User user : userStorage.getAll()) {
+                out.writeByte(USER_RECORD);
+                BinaryFormat.writeUser(out, user);
+            }
+            for (Film film : filmStorage.getAll()) {
+                out.writeByte(FILM_RECORD);
+                BinaryFormat.writeFilm(out, film);
+            }
+            out.writeByte(END_OF_SNAPSHOT);
+            out.flush();
+            channel.force(true);
+        }
+        Files.move(temporary, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        for (Path old : snapshots()) {
+            if (snapshotLsn(old) < lsn) {
+                Files.deleteIfExists(old);
+            }
+        }
+        journal.deleteSegmentsUpTo(lsn);
+        log.info("Снимок хранилищ записан: {}", target.getFileName());
+    }
+
+    private void snapshotQuietly() {
+        try {
+            snapshot();
+        } catch (IOException | RuntimeException e) {
+            log.error("Не удалось записать снимок хранилищ", e);
+        }
+    }
+
+    private long loadSnapshot(Path snapshot) throws IOException {
+        try (FileChannel channel = FileChannel.open(snapshot, StandardOpenOption.READ)) {
+            MappedByteBuffer in = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (in.getInt() != SNAPSHOT_MAGIC || in.getInt() != SNAPSHOT_VERSION) {
+                throw new IOException("Неизвестный формат снимка " + snapshot);
+            }
+            long lsn = in.getLong();
+            for (byte type = in.get(); type != END_OF_SNAPSHOT; type = in.get()) {
+                load(in, type);
+            }
+            return lsn;
+        }
+    }
+
+    private void load(ByteBuffer in, byte type) throws IOException {
+        switch (type) {
+            case USER_RECORD -> userStorage.loadUser(BinaryFormat.readUser(in));
+            case FILM_RECORD -> filmStorage.loadFilm(BinaryFormat.readFilm(in));
+            default -> throw new IOException("Повреждённый снимок: неизвестный тип записи " + type);
+        }
+    }
+
+    private void apply(Mutation mutation) {
+        try {
+            switch (mutation) {
+                case Mutation.FilmSaved saved -> filmStorage.loadFilm(saved.film());
+                case Mutation.FilmDeleted deleted -> filmStorage.deleteFilm(deleted.filmId());
+                case Mutation.LikeAdded like -> {
+                    if (!userStorage.findExistingIds(List.of(like.userId())).isEmpty()) {
+                        filmStorage.loadLike(like.filmId(), like.userId());
+                    }
+                }
+                case Mutation.LikeRemoved like -> filmStorage.removeLike(like.filmId(), like.userId());
+                case Mutation.UserSaved saved -> userStorage.loadUser(saved.user());
+                case Mutation.UserDeleted deleted -> {
+                    filmStorage.removeLikesOfUser(deleted.userId());
+                    userStorage.deleteUser(deleted.userId());
+                }
+                case Mutation.FriendAdded friend -> userStorage.addFriend(friend.userId(), friend.friendId());
+                case Mutation.FriendRemoved friend -> {
+                    // друга уже нет — это исправление висячей ссылки, removeFriend его бы не нашёл
+                    if (!userStorage.removeDanglingFriend(friend.userId(), friend.friendId())) {
+                        userStorage.removeFriend(friend.userId(), friend.friendId());
+                    }
+                }
+            }
+        } catch (NotFoundException e) {
+            // снимок уже мог содержать результат более позднего удаления
+            log.debug("Пропущено изменение из журнала {}: {}", mutation, e.getMessage());
+        }
+    }
+
+    private static long snapshotLsn(Path snapshot) {
+        String name = snapshot.getFileName().toString();
+        return Long.parseLong(name.substring(SNAPSHOT_PREFIX.length(), name.length() - SNAPSHOT_SUFFIX.length()));
+    }
+
+    private Path latestSnapshot() throws IOException {
+        List<Path> snapshots = snapshots();
+        return snapshots.isEmpty() ? null : snapshots.get(snapshots.size() - 1);
+    }
+
+    private List<Path> snapshots() throws IOException {
+        if (!Files.isDirectory(directory)) {
+            return List.of();
+        }
+        try (Stream<Path> files = Files.list(directory)) {
+            return files
+                    .filter(path -> path.getFileName().toString().startsWith(SNAPSHOT_PREFIX))
+                    .filter(path -> path.getFileName().toString().endsWith(SNAPSHOT_SUFFIX))
+                    .sorted()
+                    .toList();
+        }
+    }
+}
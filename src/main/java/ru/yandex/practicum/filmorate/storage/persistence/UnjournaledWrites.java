@@ -0,0 +1,74 @@
+package ru.yandex.practicum.filmorate.storage.persistence;
+
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.BooleanSupplier;
+
+/**
+ * {@link MutationJournal#DISABLED}: изменения никуда не пишутся, но условие и изменение выполняются
+ * под блокировкой ключа, иначе лайк или дружба могли бы лечь на сущность, удалённую между проверкой
+ * и записью.
+ *
+ * <p>Порядок записей по ключу здесь не нужен, поэтому блокировка разделяемая: лайки одного фильма
+ * не ждут друг друга. Эксклюзивно её берёт только удаление сущности — оно дожидается начатых записей
+ * по её ключу, а новые видят, что сущности уже нет.
+ */
+final class UnjournaledWrites implements MutationJournal {
+    private static final int STRIPES = 256;
+
+    private final StampedLock[] stripes = new StampedLock[STRIPES];
+
+    UnjournaledWrites() {
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new StampedLock();
+        }
+    }
+
+    @Override
+    public boolean writeIf(long key, BooleanSupplier condition, Mutation mutation, BooleanSupplier change) {
+        StampedLock stripe = stripes[stripeIndex(key)];
+        if (removesEntity(mutation)) {
+            long stamp = stripe.writeLock();
+            try {
+                return condition.getAsBoolean() && change.getAsBoolean();
+            } finally {
+                stripe.unlockWrite(stamp);
+            }
+        }
+        long stamp = stripe.readLock();
+        try {
+            return condition.getAsBoolean() && change.getAsBoolean();
+        } finally {
+            stripe.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Изменения двух ключей сущностей не удаляют, обе блокировки берутся разделяемыми в порядке полос.
+     */
+    @Override
+    public boolean writeIf(long key, long otherKey, BooleanSupplier condition, Mutation mutation,
+                           BooleanSupplier change) {
+        int index = stripeIndex(key);
+        int otherIndex = stripeIndex(otherKey);
+        StampedLock first = stripes[Math.min(index, otherIndex)];
+        StampedLock second = stripes[Math.max(index, otherIndex)];
+        long firstStamp = first.readLock();
+        long secondStamp = second != first ? second.readLock() : 0;
+        try {
+            return condition.getAsBoolean() && change.getAsBoolean();
+        } finally {
+            if (second != first) {
+                second.unlockRead(secondStamp);
+            }
+            first.unlockRead(firstStamp);
+        }
+    }
+
+    private static boolean removesEntity(Mutation mutation) {
+        return mutation instanceof Mutation.FilmDeleted || mutation instanceof Mutation.UserDeleted;
+    }
+
+    private static int stripeIndex(long key) {
+        return (int) ((key ^ (key >>> 32)) & (STRIPES - 1));
+    }
+}
@@ -1,115 +1,388 @@
 package ru.yandex.practicum.filmorate.storage.user;
 
-import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
 import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.exceptions.ConflictException;
 import ru.yandex.practicum.filmorate.exceptions.NotFoundException;
+import ru.yandex.practicum.filmorate.model.Friendship;
 import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.persistence.Mutation;
+import ru.yandex.practicum.filmorate.storage.persistence.MutationJournal;
+import ru.yandex.practicum.filmorate.utils.IdGenerator;
+import ru.yandex.practicum.filmorate.utils.IdGeneratorFactory;
+import ru.yandex.practicum.filmorate.utils.LongHashSet;
+import ru.yandex.practicum.filmorate.utils.PartitionedMap;
 
 import java.util.*;
-import java.util.stream.Collectors;
-
-import static ru.yandex.practicum.filmorate.utils.UtilMethods.getNextId;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiConsumer;
 
 
 @Component
-@RequiredArgsConstructor
+@Profile("!jdbc & !offheap")
 @Slf4j
 public class InMemoryUserStorage implements UserStorage {
-    private final Map<Long, User> users = new HashMap<>();
+    private final PartitionedMap<User> users;
+    // size() у ConcurrentSkipListMap обходит всю карту, поэтому счётчики для метрик ведутся отдельно
+    private final LongAdder userCount = new LongAdder();
+    // сумма размеров множеств друзей: каждая дружба учтена дважды
+    private final LongAdder friendLinks = new LongAdder();
+    private final IdGenerator idGenerator;
+    private final MutationJournal journal;
+
+    public InMemoryUserStorage(IdGeneratorFactory idGeneratorFactory, MutationJournal journal) {
+        this(idGeneratorFactory, journal, 1);
+    }
+
+    /**
+     * @param partitions число партиций карты пользователей
+     */
+    @Autowired
+    public InMemoryUserStorage(IdGeneratorFactory idGeneratorFactory, MutationJournal journal,
+                               @Value("${filmorate.storage.partitions:1}") int partitions) {
+        this.idGenerator = idGeneratorFactory.create();
+        this.journal = journal;
+        this.users = new PartitionedMap<>(partitions);
+    }
 
     @Override
     public User createUser(User user) {
-        if (user.getName() == null || user.getName().isBlank()) {
-            user.setName(user.getLogin());
-        }
-        user.setId(getNextId(users));
-        users.put(user.getId(), user);
+        user.setId(idGenerator.nextId());
+        user.setVersion(1L);
+        journal.write(user.getId(), new Mutation.UserSaved(user), () -> put(user));
         log.info("Создан пользователь с id={}", user.getId());
-        return user;
+        return user.snapshot();
+    }
+
+    @Override
+    public List<User> createUsers(List<User> newUsers) {
+        long[] ids = idGenerator.reserve(newUsers.size());
+        for (int i = 0; i < ids.length; i++) {
+            User user = newUsers.get(i);
+            user.setId(ids[i]);
+            user.setVersion(1L);
+            journal.write(user.getId(), new Mutation.UserSaved(user), () -> put(user));
+        }
+        log.info("Создано пользователей: {}", ids.length);
+        return newUsers.stream().map(User::snapshot).toList();
     }
 
+    /**
+     * Сравнение с обменом, как в {@code InMemoryFilmStorage#updateFilm}: друзья из запроса не берутся,
+     * новая правка получает множество друзей прежней.
+     */
     @Override
     public User updateUser(User user) {
         if (user == null) {
             log.error("Попытка обновить null пользователя");
             throw new NotFoundException("Пользователь не может быть null");
         }
-        if (!users.containsKey(user.getId())) {
-            log.error("Пользователь с id {} не найден", user.getId());
-            throw new NotFoundException("Пользователь не найден");
+        while (true) {
+            User current = find(user.getId());
+            if (user.getVersion() != null && !user.getVersion().equals(current.getVersion())) {
+                log.warn("Пользователь с id {}: ожидалась версия {}, текущая {}",
+                        user.getId(), user.getVersion(), current.getVersion());
+                throw new ConflictException("Пользователь изменён другим запросом");
+            }
+            User revision = nextRevision(user, current);
+            boolean replaced = journal.writeIf(user.getId(), () -> users.get(user.getId()) == current,
+                    new Mutation.UserSaved(revision), () -> users.replace(user.getId(), current, revision));
+            if (!replaced) {
+                if (user.getVersion() != null) {
+                    throw new ConflictException("Пользователь изменён другим запросом");
+                }
+                continue;
+            }
+            log.info("Обновлён пользователь с id={}, версия {}", user.getId(), revision.getVersion());
+            return revision.snapshot();
         }
-        users.put(user.getId(), user);
-        log.info("Обновлён пользователь с id={}", user.getId());
-        return user;
     }
 
     @Override
     public User deleteUser(Long userId) {
-        User user = getUserById(userId);
-        users.remove(user.getId());
-        return user;
+        User user;
+        while (true) {
+            User current = find(userId);
+            boolean removed = journal.writeIf(userId, () -> users.get(userId) == current,
+                    new Mutation.UserDeleted(userId), () -> {
+                        users.remove(userId);
+                        userCount.decrement();
+                        friendLinks.add(-current.getFriends().size());
+                        // дружба симметрична: обратные ссылки есть только у друзей, O(число друзей)
+                        current.getFriends().forEachLong(friendId -> {
+                            User friend = users.get(friendId);
+                            if (friend != null && friend.getFriends().remove(userId.longValue())) {
+                                friendLinks.decrement();
+                            }
+                        });
+                        return true;
+                    });
+            if (removed) {
+                user = current;
+                break;
+            }
+        }
+        log.info("Удалён пользователь с id={}", userId);
+        return user.snapshot();
     }
 
+    /**
+     * Копии снимаются по мере обхода, как в {@code InMemoryFilmStorage#getAll()}.
+     */
     @Override
     public Collection<User> getAll() {
-        return users.values();
+        return new AbstractCollection<>() {
+            @Override
+            public Iterator<User> iterator() {
+                return users.valuesAfter(Long.MIN_VALUE).map(User::snapshot).iterator();
+            }
+
+            @Override
+            public int size() {
+                return (int) userCount.sum();
+            }
+        };
     }
 
-    public User addFriend(Long userId, Long friendId) {
-        User user = getUserById(userId);
-        User friend = getUserById(friendId);
-        user.getFriends().add(friendId);
-        friend.getFriends().add(userId);
-        updateUser(user);
-        updateUser(friend);
-        return user;
+    @Override
+    public List<User> getPage(long afterId, int limit) {
+        return users.valuesAfter(afterId)
+                .limit(limit)
+                .map(User::snapshot)
+                .toList();
     }
 
-    public User removeFriend(Long userId, Long friendId) {
-        User user = getUserById(userId);
-        User friend = getUserById(friendId);
-        user.getFriends().remove(friendId);
-        friend.getFriends().remove(userId);
-        updateUser(user);
-        updateUser(friend);
-        return user;
+    @Override
+    public void addFriend(Long userId, Long friendId) {
+        if (!writeToPair(userId, friendId, new Mutation.FriendAdded(userId, friendId), this::link)) {
+            throw notFound(users.containsKey(userId) ? friendId : userId);
+        }
     }
 
-    public Set<User> getFriends(Long userId) {
-        User user = getUserById(userId);
-        Set<Long> friends = user.getFriends();
+    /**
+     * Связи с пользователями, удалёнными во время пакета, пропускаются.
+     */
+    @Override
+    public void addFriends(Collection<Friendship> friendships) {
+        int skipped = 0;
+        for (Friendship friendship : friendships) {
+            long userId = friendship.getUserId();
+            long friendId = friendship.getFriendId();
+            if (!writeToPair(userId, friendId, new Mutation.FriendAdded(userId, friendId), this::link)) {
+                skipped++;
+            }
+        }
+        log.info("Добавлено дружеских связей: {}, пропущено: {}", friendships.size() - skipped, skipped);
+    }
 
-        if (friends == null) {
-            log.warn("У пользователя с id={} friends == null", userId);
-            return Collections.emptySet();
+    @Override
+    public void removeFriend(Long userId, Long friendId) {
+        boolean removed = writeToPair(userId, friendId, new Mutation.FriendRemoved(userId, friendId),
+                (user, friend) -> {
+                    if (user.getFriends().remove(friendId.longValue())) {
+                        friendLinks.decrement();
+                    }
+                    if (friend.getFriends().remove(userId.longValue())) {
+                        friendLinks.decrement();
+                    }
+                });
+        if (!removed) {
+            throw notFound(users.containsKey(userId) ? friendId : userId);
         }
+    }
 
-        return friends.stream()
-                .map(this::getUserById)
-                .collect(Collectors.toSet());
+    /**
+     * Проверка дружбы без копирования пользователя.
+     */
+    public boolean hasFriend(long userId, long friendId) {
+        User user = users.get(userId);
+        return user != null && user.getFriends().contains(friendId);
     }
 
-    public Set<User> getCommonFriend(Long userId, Long otherId) {
-        User user = getUserById(userId);
-        User other = getUserById(otherId);
+    @Override
+    public List<User> getFriends(Long userId) {
+        return resolve(find(userId).getFriends().toLongArray());
+    }
+
+    @Override
+    public List<User> getCommonFriends(Long userId, Collection<Long> otherIds) {
+        return resolve(commonFriendIds(userId, otherIds));
+    }
 
-        Set<Long> userFriends = user.getFriends();
-        Set<Long> otherFriends = other.getFriends();
-        if (userFriends == null || otherFriends == null) {
-            return Collections.emptySet();
+    @Override
+    public int countCommonFriends(Long userId, Collection<Long> otherIds) {
+        return commonFriendIds(userId, otherIds).length;
+    }
+
+    /**
+     * Убирает из друзей пользователя id, которого нет в хранилище, и пишет это в журнал как
+     * {@link Mutation.FriendRemoved}: висячая ссылка могла попасть и в снимок, и без записи она
+     * вернулась бы после перезапуска.
+     */
+    public boolean removeDanglingFriend(long userId, long friendId) {
+        User user = users.get(userId);
+        if (user == null || users.containsKey(friendId) || !user.getFriends().contains(friendId)) {
+            return false;
         }
-        return userFriends.stream()
-                .filter(otherFriends::contains)
-                .map(this::getUserById)
-                .collect(Collectors.toSet());
+        // журнал применяет изменение, если выполнено условие, поэтому наличие ссылки проверяется в нём
+        return journal.writeIf(userId, friendId, () -> users.get(userId) == user && !users.containsKey(friendId)
+                        && user.getFriends().contains(friendId),
+                new Mutation.FriendRemoved(userId, friendId), () -> {
+                    user.getFriends().remove(friendId);
+                    friendLinks.decrement();
+                    return true;
+                });
+    }
+
+    /**
+     * Загружает пользователя с уже назначенным id при восстановлении с диска.
+     */
+    public void loadUser(User user) {
+        put(user);
+        idGenerator.advanceTo(user.getId());
     }
 
+    @Override
     public User getUserById(Long userId) {
-        if (userId == null || !users.containsKey(userId)) {
-            log.error("Пользователь с id {} не найден", userId);
-            throw new NotFoundException("Пользователь не найден");
+        return find(userId).snapshot();
+    }
+
+    @Override
+    public boolean exists(Long userId) {
+        return userId != null && users.containsKey(userId);
+    }
+
+    @Override
+    public Set<Long> findExistingIds(Collection<Long> userIds) {
+        Set<Long> existing = new HashSet<>();
+        for (Long userId : userIds) {
+            if (userId != null && users.containsKey(userId)) {
+                existing.add(userId);
+            }
+        }
+        return existing;
+    }
+
+    @Override
+    public long size() {
+        return userCount.sum();
+    }
+
+    @Override
+    public long totalFriendships() {
+        return friendLinks.sum() / 2;
+    }
+
+    /**
+     * Сам хранимый объект, а не копия: его меняют методы записи.
+     */
+    private User find(Long userId) {
+        User user = userId == null ? null : users.get(userId);
+        if (user == null) {
+            throw notFound(userId);
+        }
+        return user;
+    }
+
+    private static NotFoundException notFound(Long userId) {
+        log.error("Пользователь с id {} не найден", userId);
+        return new NotFoundException("Пользователь не найден");
+    }
+
+    /**
+     * Применяет изменение к паре хранимых пользователей под блокировками обоих ключей журнала. Под
+     * блокировками проверяется, что оба всё ещё в хранилище: если кого-то удалили, ничего не пишется
+     * и возвращается {@code false}, а если заменили новой правкой, изменение применяется к ней.
+     */
+    private boolean writeToPair(long userId, long friendId, Mutation mutation, BiConsumer<User, User> change) {
+        while (true) {
+            User user = users.get(userId);
+            User friend = users.get(friendId);
+            if (user == null || friend == null) {
+                return false;
+            }
+            boolean applied = journal.writeIf(userId, friendId,
+                    () -> users.get(userId) == user && users.get(friendId) == friend, mutation, () -> {
+                        change.accept(user, friend);
+                        return true;
+                    });
+            if (applied) {
+                return true;
+            }
+        }
+    }
+
+    private static User nextRevision(User update, User current) {
+        return User.builder()
+                .id(current.getId())
+                .version(current.getVersion() + 1)
+                .name(update.getName())
+                .email(update.getEmail())
+                .login(update.getLogin())
+                .birthday(update.getBirthday())
+                .friends(current.getFriends())
+                .build();
+    }
+
+    private void put(User user) {
+        User previous = users.put(user.getId(), user);
+        if (previous == null) {
+            userCount.increment();
+        }
+        friendLinks.add(user.getFriends().size() - (previous == null ? 0 : previous.getFriends().size()));
+    }
+
+    private void link(User user, User friend) {
+        if (user.getFriends().add(friend.getId().longValue())) {
+            friendLinks.increment();
+        }
+        if (friend.getFriends().add(user.getId().longValue())) {
+            friendLinks.increment();
+        }
+    }
+
+    /**
+     * Пересечение множеств друзей: обходим самое маленькое множество и проверяем
+     * каждого кандидата в остальных, поэтому стоимость — O(min degree * число пользователей).
+     */
+    private long[] commonFriendIds(Long userId, Collection<Long> otherIds) {
+        List<LongHashSet> friendSets = new ArrayList<>(otherIds.size() + 1);
+        friendSets.add(find(userId).getFriends());
+        for (Long otherId : otherIds) {
+            friendSets.add(find(otherId).getFriends());
+        }
+        friendSets.sort(Comparator.comparingInt(LongHashSet::size));
+
+        long[] candidates = friendSets.get(0).toLongArray();
+        int found = 0;
+        for (long candidate : candidates) {
+            if (containedInAll(candidate, friendSets)) {
+                candidates[found++] = candidate;
+            }
+        }
+        return Arrays.copyOf(candidates, found);
+    }
+
+    private static boolean containedInAll(long id, List<LongHashSet> friendSets) {
+        for (int i = 1; i < friendSets.size(); i++) {
+            if (!friendSets.get(i).contains(id)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private List<User> resolve(long[] ids) {
+        List<User> result = new ArrayList<>(ids.length);
+        for (long id : ids) {
+            User user = users.get(id);
+            if (user != null) {
+                result.add(user.snapshot());
+            }
         }
-        return users.get(userId);
+        return result;
     }
 }
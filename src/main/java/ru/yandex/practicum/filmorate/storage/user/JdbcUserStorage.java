@@ -0,0 +1,297 @@
+package ru.yandex.practicum.filmorate.storage.user;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.Profile;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import ru.yandex.practicum.filmorate.exceptions.ConflictException;
+import ru.yandex.practicum.filmorate.exceptions.NotFoundException;
+import ru.yandex.practicum.filmorate.model.Friendship;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.utils.IdGenerator;
+import ru.yandex.practicum.filmorate.utils.IdGeneratorFactory;
+
+import java.sql.Date;
+import java.util.*;
+import java.util.stream.Stream;
+
+/**
+ * Хранилище пользователей в реляционной БД (профиль {@code jdbc}).
+ *
+ * <p>Дружба хранится двумя строками, поэтому список друзей и общие друзья читаются по первичному
+ * ключу {@code (user_id, friend_id)} без {@code OR}. Общие друзья нескольких пользователей
+ * считаются одним запросом с {@code GROUP BY ... HAVING COUNT(*)}.
+ */
+@Component
+@Profile("jdbc")
+@Slf4j
+public class JdbcUserStorage implements UserStorage {
+    private static final String SELECT_USERS = "SELECT id, version, email, login, name, birthday FROM users";
+    private static final String INSERT_FRIENDSHIP = "INSERT INTO friendships (user_id, friend_id) "
+            + "SELECT :userId, :friendId WHERE NOT EXISTS "
+            + "(SELECT 1 FROM friendships WHERE user_id = :userId AND friend_id = :friendId)";
+    private static final String COMMON_FRIEND_IDS = "SELECT friend_id FROM friendships WHERE user_id IN (:ids) "
+            + "GROUP BY friend_id HAVING COUNT(*) = :count";
+
+    private static final RowMapper<User> USER_MAPPER = (rs, rowNum) -> {
+        Date birthday = rs.getDate("birthday");
+        return User.builder()
+                .id(rs.getLong("id"))
+                .version(rs.getLong("version"))
+                .email(rs.getString("email"))
+                .login(rs.getString("login"))
+                .name(rs.getString("name"))
+                .birthday(birthday == null ? null : birthday.toLocalDate())
+                .build();
+    };
+
+    private final NamedParameterJdbcTemplate jdbc;
+    private final IdGenerator idGenerator;
+
+    public JdbcUserStorage(NamedParameterJdbcTemplate jdbc, IdGeneratorFactory idGeneratorFactory) {
+        this.jdbc = jdbc;
+        this.idGenerator = idGeneratorFactory.create();
+        Long maxId = jdbc.getJdbcTemplate().queryForObject("SELECT MAX(id) FROM users", Long.class);
+        if (maxId != null) {
+            idGenerator.advanceTo(maxId);
+        }
+    }
+
+    @Override
+    @Transactional
+    public User createUser(User user) {
+        user.setId(idGenerator.nextId());
+        user.setVersion(1L);
+        jdbc.update("INSERT INTO users (id, email, login, name, birthday) "
+                + "VALUES (:id, :email, :login, :name, :birthday)", userParams(user));
+        log.info("Создан пользователь с id={}", user.getId());
+        return user;
+    }
+
+    @Override
+    @Transactional
+    public List<User> createUsers(List<User> newUsers) {
+        long[] ids = idGenerator.reserve(newUsers.size());
+        SqlParameterSource[] batch = new SqlParameterSource[ids.length];
+        for (int i = 0; i < ids.length; i++) {
+            User user = newUsers.get(i);
+            user.setId(ids[i]);
+            user.setVersion(1L);
+            batch[i] = userParams(user);
+        }
+        jdbc.batchUpdate("INSERT INTO users (id, email, login, name, birthday) "
+                + "VALUES (:id, :email, :login, :name, :birthday)", batch);
+        log.info("Создано пользователей: {}", ids.length);
+        return newUsers;
+    }
+
+    /**
+     * Версия сравнивается тем же {@code UPDATE}, как в {@code JdbcFilmStorage#updateFilm}; дружба не меняется.
+     */
+    @Override
+    @Transactional
+    public User updateUser(User user) {
+        if (user == null) {
+            log.error("Попытка обновить null пользователя");
+            throw new NotFoundException("Пользователь не может быть null");
+        }
+        int updated = jdbc.update("UPDATE users SET email = :email, login = :login, name = :name, "
+                + "birthday = :birthday, version = version + 1 WHERE id = :id"
+                + (user.getVersion() == null ? "" : " AND version = :version"),
+                userParams(user).addValue("version", user.getVersion()));
+        if (updated == 0) {
+            User current = getUserById(user.getId());
+            log.warn("Пользователь с id {}: ожидалась версия {}, текущая {}",
+                    user.getId(), user.getVersion(), current.getVersion());
+            throw new ConflictException("Пользователь изменён другим запросом");
+        }
+        User revision = getUserById(user.getId());
+        log.info("Обновлён пользователь с id={}, версия {}", revision.getId(), revision.getVersion());
+        return revision;
+    }
+
+    @Override
+    @Transactional
+    public User deleteUser(Long userId) {
+        User user = getUserById(userId);
+        // дружба и лайки удаляются каскадно, счётчики лайков нужно поправить до этого
+        jdbc.update("UPDATE films SET likes_count = likes_count - 1 "
+                + "WHERE id IN (SELECT film_id FROM film_likes WHERE user_id = :id)", Map.of("id", userId));
+        jdbc.update("DELETE FROM users WHERE id = :id", Map.of("id", userId));
+        return user;
+    }
+
+    @Override
+    public Collection<User> getAll() {
+        return withFriends(jdbc.query(SELECT_USERS + " ORDER BY id", USER_MAPPER));
+    }
+
+    @Override
+    public List<User> getPage(long afterId, int limit) {
+        return withFriends(jdbc.query(SELECT_USERS + " WHERE id > :after ORDER BY id LIMIT :limit",
+                Map.of("after", afterId, "limit", limit), USER_MAPPER));
+    }
+
+    @Override
+    public User getUserById(Long userId) {
+        List<User> found = userId == null ? List.of()
+                : jdbc.query(SELECT_USERS + " WHERE id = :id", Map.of("id", userId), USER_MAPPER);
+        if (found.isEmpty()) {
+            log.error("Пользователь с id {} не найден", userId);
+            throw new NotFoundException("Пользователь не найден");
+        }
+        return withFriends(found).get(0);
+    }
+
+    @Override
+    public boolean exists(Long userId) {
+        return userId != null && !jdbc.queryForList("SELECT id FROM users WHERE id = :id",
+                Map.of("id", userId), Long.class).isEmpty();
+    }
+
+    @Override
+    public Set<Long> findExistingIds(Collection<Long> userIds) {
+        if (userIds.isEmpty()) {
+            return Set.of();
+        }
+        return new HashSet<>(jdbc.queryForList("SELECT id FROM users WHERE id IN (:ids)",
+                Map.of("ids", userIds), Long.class));
+    }
+
+    @Override
+    @Transactional
+    public void addFriend(Long userId, Long friendId) {
+        lockUsers(userId, friendId);
+        jdbc.update(INSERT_FRIENDSHIP, Map.of("userId", userId, "friendId", friendId));
+        jdbc.update(INSERT_FRIENDSHIP, Map.of("userId", friendId, "friendId", userId));
+    }
+
+    @Override
+    @Transactional
+    public void addFriends(Collection<Friendship> friendships) {
+        if (friendships.isEmpty()) {
+            return;
+        }
+        // каждая дружба — две строки, в обе стороны
+        SqlParameterSource[] batch = friendships.stream()
+                .flatMap(friendship -> Stream.of(
+                        new MapSqlParameterSource()
+                                .addValue("userId", friendship.getUserId())
+                                .addValue("friendId", friendship.getFriendId()),
+                        new MapSqlParameterSource()
+                                .addValue("userId", friendship.getFriendId())
+                                .addValue("friendId", friendship.getUserId())))
+                .toArray(SqlParameterSource[]::new);
+        jdbc.batchUpdate(INSERT_FRIENDSHIP, batch);
+        log.info("Добавлено дружеских связей: {}", friendships.size());
+    }
+
+    @Override
+    @Transactional
+    public void removeFriend(Long userId, Long friendId) {
+        lockUsers(userId, friendId);
+        jdbc.update("DELETE FROM friendships WHERE (user_id = :userId AND friend_id = :friendId) "
+                + "OR (user_id = :friendId AND friend_id = :userId)", Map.of("userId", userId, "friendId", friendId));
+    }
+
+    @Override
+    public List<User> getFriends(Long userId) {
+        getUserById(userId);
+        return withFriends(jdbc.query(SELECT_USERS
+                        + " WHERE id IN (SELECT friend_id FROM friendships WHERE user_id = :id) ORDER BY id",
+                Map.of("id", userId), USER_MAPPER));
+    }
+
+    @Override
+    public List<User> getCommonFriends(Long userId, Collection<Long> otherIds) {
+        Set<Long> ids = existingIds(userId, otherIds);
+        return withFriends(jdbc.query(SELECT_USERS + " WHERE id IN (" + COMMON_FRIEND_IDS + ") ORDER BY id",
+                Map.of("ids", ids, "count", ids.size()), USER_MAPPER));
+    }
+
+    @Override
+    public int countCommonFriends(Long userId, Collection<Long> otherIds) {
+        Set<Long> ids = existingIds(userId, otherIds);
+        Integer count = jdbc.queryForObject("SELECT COUNT(*) FROM (" + COMMON_FRIEND_IDS + ") common",
+                Map.of("ids", ids, "count", ids.size()), Integer.class);
+        return count == null ? 0 : count;
+    }
+
+    @Override
+    public long size() {
+        return count("SELECT COUNT(*) FROM users");
+    }
+
+    @Override
+    public long totalFriendships() {
+        // каждая дружба хранится двумя строками
+        return count("SELECT COUNT(*) FROM friendships") / 2;
+    }
+
+    /**
+     * Блокирует строки обоих пользователей до конца транзакции, чтобы параллельное удаление
+     * не оставило дружбу с удалённым пользователем.
+     */
+    private void lockUsers(Long userId, Long friendId) {
+        Set<Long> found = new HashSet<>(jdbc.queryForList("SELECT id FROM users WHERE id IN (:ids) FOR UPDATE",
+                Map.of("ids", List.of(userId, friendId)), Long.class));
+        for (Long id : List.of(userId, friendId)) {
+            if (!found.contains(id)) {
+                log.error("Пользователь с id {} не найден", id);
+                throw new NotFoundException("Пользователь не найден");
+            }
+        }
+    }
+
+    private long count(String sql) {
+        Long count = jdbc.getJdbcTemplate().queryForObject(sql, Long.class);
+        return count == null ? 0 : count;
+    }
+
+    /**
+     * Проверяет, что все пользователи существуют; повторяющиеся id схлопываются, иначе
+     * {@code HAVING COUNT(*)} не совпал бы с числом различных пользователей.
+     */
+    private Set<Long> existingIds(Long userId, Collection<Long> otherIds) {
+        Set<Long> ids = new LinkedHashSet<>();
+        ids.add(userId);
+        ids.addAll(otherIds);
+        Integer found = jdbc.queryForObject("SELECT COUNT(*) FROM users WHERE id IN (:ids)",
+                Map.of("ids", ids), Integer.class);
+        if (found == null || found != ids.size()) {
+            log.error("Среди пользователей {} есть несуществующие", ids);
+            throw new NotFoundException("Пользователь не найден");
+        }
+        return ids;
+    }
+
+    private List<User> withFriends(List<User> users) {
+        if (users.isEmpty()) {
+            return users;
+        }
+        Map<Long, User> byId = new HashMap<>();
+        for (User user : users) {
+            user.getFriends().clear();
+            byId.put(user.getId(), user);
+        }
+        jdbc.query("SELECT user_id, friend_id FROM friendships WHERE user_id IN (:ids)",
+                Map.of("ids", byId.keySet()),
+                rs -> {
+                    byId.get(rs.getLong("user_id")).getFriends().add(rs.getLong("friend_id"));
+                });
+        return users;
+    }
+
+    private static MapSqlParameterSource userParams(User user) {
+        return new MapSqlParameterSource()
+                .addValue("id", user.getId())
+                .addValue("email", user.getEmail())
+                .addValue("login", user.getLogin())
+                .addValue("name", user.getName())
+                .addValue("birthday", user.getBirthday());
+    }
+}
@@ -0,0 +1,388 @@
+package ru.yandex.practicum.filmorate.storage.user;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.exceptions.ConflictException;
+import ru.yandex.practicum.filmorate.exceptions.NotFoundException;
+import ru.yandex.practicum.filmorate.model.Friendship;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.offheap.OffHeapRecordStore;
+import ru.yandex.practicum.filmorate.utils.IdGenerator;
+import ru.yandex.practicum.filmorate.utils.IdGeneratorFactory;
+import ru.yandex.practicum.filmorate.utils.LongHashSet;
+
+import java.nio.ByteBuffer;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
+
+/**
+ * Хранилище пользователей вне кучи, устроенное как {@code OffHeapFilmStorage}: поля в
+ * {@link OffHeapRecordStore}, в куче — только множества друзей у пользователей, у которых они есть.
+ */
+@Component
+@Profile("offheap")
+@Slf4j
+public class OffHeapUserStorage implements UserStorage {
+    // запись: id, версия, день рождения в днях эпохи, email, логин, имя
+    private static final int VERSION_OFFSET = Long.BYTES;
+    private static final int FIXED_SIZE = 3 * Long.BYTES;
+    private static final long NO_DATE = Long.MIN_VALUE;
+    private static final int SCAN_BATCH = 1024;
+
+    private final OffHeapRecordStore records;
+    private final Map<Long, LongHashSet> friends = new ConcurrentHashMap<>();
+    // сумма размеров множеств друзей: каждая дружба учтена дважды
+    private final LongAdder friendLinks = new LongAdder();
+    private final IdGenerator idGenerator;
+
+    /**
+     * @param chunkSize размер одного блока памяти вне кучи в байтах
+     */
+    public OffHeapUserStorage(IdGeneratorFactory idGeneratorFactory,
+                              @Value("${filmorate.offheap.chunk-size:67108864}") int chunkSize) {
+        this.idGenerator = idGeneratorFactory.create();
+        this.records = new OffHeapRecordStore(chunkSize);
+    }
+
+    @Override
+    public User createUser(User user) {
+        user.setId(idGenerator.nextId());
+        user.setVersion(1L);
+        store(user);
+        log.info("Создан пользователь с id={}", user.getId());
+        return user.snapshot();
+    }
+
+    @Override
+    public List<User> createUsers(List<User> newUsers) {
+        long[] ids = idGenerator.reserve(newUsers.size());
+        for (int i = 0; i < ids.length; i++) {
+            User user = newUsers.get(i);
+            user.setId(ids[i]);
+            user.setVersion(1L);
+            store(user);
+        }
+        log.info("Создано пользователей: {}", ids.length);
+        return newUsers.stream().map(User::snapshot).toList();
+    }
+
+    /**
+     * Проверка версии под блокировкой записи хранилища, как в {@code OffHeapFilmStorage#updateFilm}.
+     */
+    @Override
+    public User updateUser(User user) {
+        if (user == null) {
+            log.error("Попытка обновить null пользователя");
+            throw new NotFoundException("Пользователь не может быть null");
+        }
+        long[] version = new long[1];
+        boolean updated = user.getId() != null && records.update(user.getId(), current -> {
+            long currentVersion = current.getLong(VERSION_OFFSET);
+            if (user.getVersion() != null && user.getVersion() != currentVersion) {
+                log.warn("Пользователь с id {}: ожидалась версия {}, текущая {}",
+                        user.getId(), user.getVersion(), currentVersion);
+                throw new ConflictException("Пользователь изменён другим запросом");
+            }
+            version[0] = currentVersion + 1;
+            return encode(user, version[0]);
+        });
+        if (!updated) {
+            throw notFound(user.getId());
+        }
+        log.info("Обновлён пользователь с id={}, версия {}", user.getId(), version[0]);
+        return User.builder()
+                .id(user.getId())
+                .version(version[0])
+                .name(user.getName())
+                .email(user.getEmail())
+                .login(user.getLogin())
+                .birthday(user.getBirthday())
+                .friends(friendsOf(user.getId()))
+                .build();
+    }
+
+    /**
+     * Запись удаляется раньше множества друзей: дружба, добавляемая параллельно, либо попадёт
+     * в снятое множество и будет убрана у друзей, либо не пройдёт проверку существования.
+     */
+    @Override
+    public User deleteUser(Long userId) {
+        User removed = userId == null ? null : records.remove(userId, in -> decode(in, null));
+        if (removed == null) {
+            throw notFound(userId);
+        }
+        LongHashSet removedFriends = friends.remove(userId);
+        if (removedFriends != null) {
+            friendLinks.add(-removedFriends.size());
+            // обратные ссылки есть только у друзей, O(число друзей)
+            removedFriends.forEachLong(friendId -> friends.computeIfPresent(friendId, (id, friendIds) -> {
+                if (friendIds.remove(userId.longValue())) {
+                    friendLinks.decrement();
+                }
+                return friendIds.isEmpty() ? null : friendIds;
+            }));
+            removed.setFriends(removedFriends);
+        }
+        log.info("Удалён пользователь с id={}", userId);
+        return removed;
+    }
+
+    /**
+     * Страницами, как в {@code OffHeapFilmStorage#getAll()}.
+     */
+    @Override
+    public Collection<User> getAll() {
+        return new AbstractCollection<>() {
+            @Override
+            public Iterator<User> iterator() {
+                return Stream.iterate(getPage(Long.MIN_VALUE, SCAN_BATCH), page -> !page.isEmpty(),
+                                page -> getPage(page.get(page.size() - 1).getId(), SCAN_BATCH))
+                        .flatMap(List::stream)
+                        .iterator();
+            }
+
+            @Override
+            public int size() {
+                return records.size();
+            }
+        };
+    }
+
+    @Override
+    public List<User> getPage(long afterId, int limit) {
+        return records.page(afterId, limit, this::materialize);
+    }
+
+    @Override
+    public void addFriend(Long userId, Long friendId) {
+        link(userId, friendId);
+    }
+
+    @Override
+    public void addFriends(Collection<Friendship> friendships) {
+        for (Friendship friendship : friendships) {
+            link(friendship.getUserId(), friendship.getFriendId());
+        }
+        log.info("Добавлено дружеских связей: {}", friendships.size());
+    }
+
+    @Override
+    public void removeFriend(Long userId, Long friendId) {
+        requireExisting(userId);
+        requireExisting(friendId);
+        unlink(userId, friendId);
+        unlink(friendId, userId);
+    }
+
+    @Override
+    public List<User> getFriends(Long userId) {
+        requireExisting(userId);
+        return resolve(friendsOf(userId).toLongArray());
+    }
+
+    @Override
+    public List<User> getCommonFriends(Long userId, Collection<Long> otherIds) {
+        return resolve(commonFriendIds(userId, otherIds));
+    }
+
+    @Override
+    public int countCommonFriends(Long userId, Collection<Long> otherIds) {
+        return commonFriendIds(userId, otherIds).length;
+    }
+
+    @Override
+    public User getUserById(Long userId) {
+        User user = userId == null ? null : records.get(userId, this::materialize);
+        if (user == null) {
+            throw notFound(userId);
+        }
+        return user;
+    }
+
+    @Override
+    public boolean exists(Long userId) {
+        return userId != null && records.contains(userId);
+    }
+
+    @Override
+    public Set<Long> findExistingIds(Collection<Long> userIds) {
+        Set<Long> existing = new HashSet<>();
+        for (Long userId : userIds) {
+            if (userId != null && records.contains(userId)) {
+                existing.add(userId);
+            }
+        }
+        return existing;
+    }
+
+    @Override
+    public long size() {
+        return records.size();
+    }
+
+    @Override
+    public long totalFriendships() {
+        return friendLinks.sum() / 2;
+    }
+
+    /**
+     * Память вне кучи, выделенная под записи, и её часть, занятая заменёнными и удалёнными записями.
+     */
+    public long allocatedBytes() {
+        return records.allocatedBytes();
+    }
+
+    public long garbageBytes() {
+        return records.garbageBytes();
+    }
+
+    /**
+     * Друзья из запроса не сохраняются: дружба симметрична, а у нового пользователя ещё нет
+     * обратных ссылок. Связи добавляются через {@link #addFriends(Collection)}.
+     */
+    private void store(User user) {
+        user.setFriends(new LongHashSet());
+        records.put(user.getId(), encode(user, user.getVersion()));
+    }
+
+    /**
+     * Каждая половина связи добавляется под блокировкой ключа своего владельца и проверяет, что оба
+     * пользователя ещё существуют. Если пользователя удалили между половинами, первая откатывается —
+     * иначе у друга осталась бы висячая ссылка.
+     */
+    private void link(Long userId, Long friendId) {
+        requireExisting(userId);
+        requireExisting(friendId);
+        addLink(userId, friendId);
+        try {
+            addLink(friendId, userId);
+        } catch (NotFoundException e) {
+            unlink(userId, friendId);
+            throw e;
+        }
+    }
+
+    private void addLink(long ownerId, long friendId) {
+        friends.compute(ownerId, (id, friendIds) -> {
+            if (!records.contains(id)) {
+                throw notFound(id);
+            }
+            if (!records.contains(friendId)) {
+                throw notFound(friendId);
+            }
+            LongHashSet target = friendIds == null ? new LongHashSet() : friendIds;
+            if (target.add(friendId)) {
+                friendLinks.increment();
+            }
+            return target;
+        });
+    }
+
+    private void unlink(long ownerId, long friendId) {
+        friends.computeIfPresent(ownerId, (id, friendIds) -> {
+            if (friendIds.remove(friendId)) {
+                friendLinks.decrement();
+            }
+            return friendIds.isEmpty() ? null : friendIds;
+        });
+    }
+
+    private void requireExisting(Long userId) {
+        if (userId == null || !records.contains(userId)) {
+            throw notFound(userId);
+        }
+    }
+
+    private LongHashSet friendsOf(long userId) {
+        LongHashSet friendIds = friends.get(userId);
+        return friendIds == null ? new LongHashSet() : friendIds.snapshot();
+    }
+
+    /**
+     * Пересечение от самого маленького множества, как в {@code InMemoryUserStorage}; множества
+     * копируются, потому что параллельные изменения дружбы меняют их на месте.
+     */
+    private long[] commonFriendIds(Long userId, Collection<Long> otherIds) {
+        List<LongHashSet> friendSets = new ArrayList<>(otherIds.size() + 1);
+        requireExisting(userId);
+        friendSets.add(friendsOf(userId));
+        for (Long otherId : otherIds) {
+            requireExisting(otherId);
+            friendSets.add(friendsOf(otherId));
+        }
+        friendSets.sort(Comparator.comparingInt(LongHashSet::size));
+
+        long[] candidates = friendSets.get(0).toLongArray();
+        int found = 0;
+        for (long candidate : candidates) {
+            if (containedInAll(candidate, friendSets)) {
+                candidates[found++] = candidate;
+            }
+        }
+        return Arrays.copyOf(candidates, found);
+    }
+
+    private static boolean containedInAll(long id, List<LongHashSet> friendSets) {
+        for (int i = 1; i < friendSets.size(); i++) {
+            if (!friendSets.get(i).contains(id)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private List<User> resolve(long[] ids) {
+        List<User> result = new ArrayList<>(ids.length);
+        for (long id : ids) {
+            User user = records.get(id, this::materialize);
+            if (user != null) {
+                result.add(user);
+            }
+        }
+        return result;
+    }
+
+    private User materialize(ByteBuffer record) {
+        return decode(record, friendsOf(record.getLong(0)));
+    }
+
+    private static User decode(ByteBuffer in, LongHashSet userFriends) {
+        long id = in.getLong();
+        long version = in.getLong();
+        long birthday = in.getLong();
+        return User.builder()
+                .id(id)
+                .version(version)
+                .birthday(birthday == NO_DATE ? null : LocalDate.ofEpochDay(birthday))
+                .email(OffHeapRecordStore.getString(in))
+                .login(OffHeapRecordStore.getString(in))
+                .name(OffHeapRecordStore.getString(in))
+                .friends(userFriends == null ? new LongHashSet() : userFriends)
+                .build();
+    }
+
+    private static byte[] encode(User user, long version) {
+        byte[] email = OffHeapRecordStore.utf8(user.getEmail());
+        byte[] login = OffHeapRecordStore.utf8(user.getLogin());
+        byte[] name = OffHeapRecordStore.utf8(user.getName());
+        ByteBuffer out = ByteBuffer.allocate(FIXED_SIZE + OffHeapRecordStore.sizeOf(email)
+                + OffHeapRecordStore.sizeOf(login) + OffHeapRecordStore.sizeOf(name));
+        out.putLong(user.getId())
+                .putLong(version)
+                .putLong(user.getBirthday() == null ? NO_DATE : user.getBirthday().toEpochDay());
+        OffHeapRecordStore.putString(out, email);
+        OffHeapRecordStore.putString(out, login);
+        OffHeapRecordStore.putString(out, name);
+        return out.array();
+    }
+
+    private static NotFoundException notFound(Long userId) {
+        log.error("Пользователь с id {} не найден", userId);
+        return new NotFoundException("Пользователь не найден");
+    }
+}
@@ -1,15 +1,68 @@
 package ru.yandex.practicum.filmorate.storage.user;
 
+import ru.yandex.practicum.filmorate.model.Friendship;
 import ru.yandex.practicum.filmorate.model.User;
 
 import java.util.Collection;
+import java.util.List;
+import java.util.Set;
 
 public interface UserStorage {
     User createUser(User user);
 
+    /**
+     * Пакетное создание: id резервируются одним блоком, пользователи сохраняются одной операцией.
+     */
+    List<User> createUsers(List<User> users);
+
     User updateUser(User user);
 
     User deleteUser(Long userId);
 
     Collection<User> getAll();
+
+    /**
+     * Страница пользователей с id больше {@code afterId}, упорядоченная по id.
+     */
+    List<User> getPage(long afterId, int limit);
+
+    User getUserById(Long userId);
+
+    /**
+     * Те из {@code userIds}, что есть в хранилище.
+     */
+    Set<Long> findExistingIds(Collection<Long> userIds);
+
+    /**
+     * Есть ли пользователь в хранилище; в отличие от {@link #getUserById(Long)}, пользователь не копируется.
+     */
+    boolean exists(Long userId);
+
+    void addFriend(Long userId, Long friendId);
+
+    /**
+     * Пакетное добавление дружбы одной операцией хранилища; пользователи должны существовать.
+     */
+    void addFriends(Collection<Friendship> friendships);
+
+    void removeFriend(Long userId, Long friendId);
+
+    List<User> getFriends(Long userId);
+
+    /**
+     * Общие друзья пользователя {@code userId} и всех пользователей из {@code otherIds}.
+     */
+    List<User> getCommonFriends(Long userId, Collection<Long> otherIds);
+
+    int countCommonFriends(Long userId, Collection<Long> otherIds);
+
+    /**
+     * Число пользователей; используется метриками, поэтому должно быть дешёвым.
+     */
+    long size();
+
+    /**
+     * Общее число дружеских связей.
+     */
+    long totalFriendships();
 }
@@ -0,0 +1,20 @@
+package ru.yandex.practicum.filmorate.utils;
+
+/**
+ * Источник идентификаторов для хранилищ. Выданный id никогда не выдаётся повторно,
+ * в том числе после удаления сущности.
+ */
+public interface IdGenerator {
+    long nextId();
+
+    /**
+     * Резервирует сразу {@code count} идентификаторов для пакетной вставки.
+     * Возвращённые id уникальны и возрастают.
+     */
+    long[] reserve(int count);
+
+    /**
+     * Сообщает об уже занятом id (например, восстановленном с диска), чтобы он не был выдан повторно.
+     */
+    void advanceTo(long usedId);
+}
@@ -0,0 +1,29 @@
+package ru.yandex.practicum.filmorate.utils;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Создаёт отдельный {@link IdGenerator} для каждого хранилища.
+ * Стратегия задаётся свойством {@code filmorate.id.strategy}: {@code sequence} (по умолчанию)
+ * или {@code snowflake} с номером узла из {@code filmorate.id.node-id}.
+ */
+@Component
+public class IdGeneratorFactory {
+    private final String strategy;
+    private final long nodeId;
+
+    public IdGeneratorFactory(@Value("${filmorate.id.strategy:sequence}") String strategy,
+                              @Value("${filmorate.id.node-id:0}") long nodeId) {
+        this.strategy = strategy;
+        this.nodeId = nodeId;
+    }
+
+    public IdGenerator create() {
+        return switch (strategy.toLowerCase()) {
+            case "sequence" -> new SequenceIdGenerator();
+            case "snowflake" -> new SnowflakeIdGenerator(nodeId);
+            default -> throw new IllegalStateException("Неизвестная стратегия id: " + strategy);
+        };
+    }
+}
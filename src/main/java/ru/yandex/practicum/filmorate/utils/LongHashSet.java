@@ -0,0 +1,414 @@
+package ru.yandex.practicum.filmorate.utils;
+
+import java.util.AbstractSet;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.LongConsumer;
+
+/**
+ * Потокобезопасное множество примитивных {@code long} на открытой адресации с линейным пробированием.
+ * Хранит id лайков и друзей без упаковки в {@link Long}: около 8–16 байт на элемент вместо
+ * 50+ байт у {@code HashSet<Long>}.
+ *
+ * <p>Запись берёт эксклюзивную блокировку {@link StampedLock}, чтение сначала выполняется оптимистично
+ * и не мешает писателям. Итератор обходит снимок, поэтому не бросает
+ * {@link java.util.ConcurrentModificationException}. В JSON сериализуется как обычный массив чисел.
+ *
+ * <p>Множество, за блокировкой которого выстраивается очередь писателей, можно перенести
+ * в {@link ShardedLongSet} методом {@link #shard(int)}. После переноса все операции, в том числе
+ * по ссылкам, взятым раньше, пересылаются новому множеству.
+ */
+public class LongHashSet extends AbstractSet<Long> {
+    private static final int MIN_CAPACITY = 4;
+
+    private final StampedLock lock = new StampedLock();
+    // 0 обозначает свободную ячейку, сам 0 хранится во флаге containsZero
+    private long[] table;
+    private boolean containsZero;
+    private volatile int size;
+    // записи, которым пришлось ждать блокировку; меняется только под ней
+    private int contendedWrites;
+    private volatile LongHashSet successor;
+
+    public LongHashSet() {
+        this(0);
+    }
+
+    public LongHashSet(int expectedSize) {
+        table = new long[capacityFor(expectedSize)];
+    }
+
+    public LongHashSet(Collection<Long> values) {
+        this(values.size());
+        for (Long value : values) {
+            add(value.longValue());
+        }
+    }
+
+    private LongHashSet(long[] table, boolean containsZero, int size) {
+        this.table = table;
+        this.containsZero = containsZero;
+        this.size = size;
+    }
+
+    public boolean contains(long value) {
+        long stamp = lock.tryOptimisticRead();
+        LongHashSet next = successor;
+        if (next != null) {
+            return next.contains(value);
+        }
+        boolean found = find(value);
+        if (lock.validate(stamp)) {
+            return found;
+        }
+        // оптимистичное чтение могло пересечься с переносом: под блокировкой successor проверяется снова
+        stamp = lock.readLock();
+        try {
+            next = successor;
+            if (next == null) {
+                return find(value);
+            }
+        } finally {
+            lock.unlockRead(stamp);
+        }
+        return next.contains(value);
+    }
+
+    public boolean add(long value) {
+        long stamp = writeLock();
+        if (stamp == 0) {
+            return successor.add(value);
+        }
+        try {
+            if (value == 0) {
+                if (containsZero) {
+                    return false;
+                }
+                containsZero = true;
+                size = size + 1;
+                return true;
+            }
+            long[] slots = table;
+            int mask = slots.length - 1;
+            int index = indexOf(value, mask);
+            while (slots[index] != 0) {
+                if (slots[index] == value) {
+                    return false;
+                }
+                index = (index + 1) & mask;
+            }
+            slots[index] = value;
+            size = size + 1;
+            if (storedInTable() * 2 > slots.length) {
+                resize(slots.length * 2);
+            }
+            return true;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    public boolean remove(long value) {
+        long stamp = writeLock();
+        if (stamp == 0) {
+            return successor.remove(value);
+        }
+        try {
+            if (value == 0) {
+                if (!containsZero) {
+                    return false;
+                }
+                containsZero = false;
+                size = size - 1;
+                return true;
+            }
+            long[] slots = table;
+            int mask = slots.length - 1;
+            int gap = indexOf(value, mask);
+            while (slots[gap] != value) {
+                if (slots[gap] == 0) {
+                    return false;
+                }
+                gap = (gap + 1) & mask;
+            }
+            // сдвигаем хвост цепочки назад, чтобы не оставлять «надгробий»
+            int next = gap;
+            while (true) {
+                next = (next + 1) & mask;
+                long current = slots[next];
+                if (current == 0) {
+                    break;
+                }
+                int home = indexOf(current, mask);
+                boolean homeBetween = gap <= next ? gap < home && home <= next : gap < home || home <= next;
+                if (!homeBetween) {
+                    slots[gap] = current;
+                    gap = next;
+                }
+            }
+            slots[gap] = 0;
+            size = size - 1;
+            return true;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Снимок содержимого в виде примитивного массива.
+     */
+    public long[] toLongArray() {
+        long stamp = lock.tryOptimisticRead();
+        LongHashSet next = successor;
+        if (next != null) {
+            return next.toLongArray();
+        }
+        long[] snapshot = copy();
+        if (lock.validate(stamp)) {
+            return snapshot;
+        }
+        stamp = lock.readLock();
+        try {
+            next = successor;
+            if (next == null) {
+                return copy();
+            }
+        } finally {
+            lock.unlockRead(stamp);
+        }
+        return next.toLongArray();
+    }
+
+    /**
+     * Независимая копия множества на один момент времени. Таблица копируется целиком, без повторного
+     * хеширования, поэтому копия дешевле, чем {@code new LongHashSet(this)}.
+     */
+    public LongHashSet snapshot() {
+        long stamp = lock.tryOptimisticRead();
+        LongHashSet next = successor;
+        if (next != null) {
+            return next.snapshot();
+        }
+        LongHashSet copy = new LongHashSet(table.clone(), containsZero, size);
+        if (lock.validate(stamp)) {
+            return copy;
+        }
+        stamp = lock.readLock();
+        try {
+            next = successor;
+            if (next == null) {
+                return new LongHashSet(table.clone(), containsZero, size);
+            }
+        } finally {
+            lock.unlockRead(stamp);
+        }
+        return next.snapshot();
+    }
+
+    /**
+     * Переносит содержимое в {@link ShardedLongSet} из {@code shards} частей и с этого момента
+     * пересылает ему все операции. Повторный вызов возвращает то же множество.
+     *
+     * @return множество, которым стоит заменить ссылку на это
+     */
+    public LongHashSet shard(int shards) {
+        long stamp = writeLock();
+        if (stamp == 0) {
+            return successor;
+        }
+        try {
+            ShardedLongSet sharded = new ShardedLongSet(shards);
+            for (long value : copy()) {
+                sharded.add(value);
+            }
+            successor = sharded;
+            return sharded;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Множество, которому пересылаются операции, или само это множество, если переноса не было.
+     */
+    public LongHashSet resolve() {
+        LongHashSet next = successor;
+        return next == null ? this : next.resolve();
+    }
+
+    /**
+     * Сколько записей с создания множества ждали, пока блокировку отпустит другой поток.
+     */
+    public int contendedWrites() {
+        return contendedWrites;
+    }
+
+    public void forEachLong(LongConsumer action) {
+        for (long value : toLongArray()) {
+            action.accept(value);
+        }
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        return o instanceof Long value && contains(value.longValue());
+    }
+
+    @Override
+    public boolean add(Long value) {
+        return add(value.longValue());
+    }
+
+    @Override
+    public boolean remove(Object o) {
+        return o instanceof Long value && remove(value.longValue());
+    }
+
+    @Override
+    public int size() {
+        LongHashSet next = successor;
+        return next != null ? next.size() : size;
+    }
+
+    @Override
+    public void clear() {
+        long stamp = writeLock();
+        if (stamp == 0) {
+            successor.clear();
+            return;
+        }
+        try {
+            table = new long[MIN_CAPACITY];
+            containsZero = false;
+            size = 0;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    @Override
+    public Iterator<Long> iterator() {
+        long[] snapshot = toLongArray();
+        return new Iterator<>() {
+            private int position;
+
+            @Override
+            public boolean hasNext() {
+                return position < snapshot.length;
+            }
+
+            @Override
+            public Long next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return snapshot[position++];
+            }
+
+            @Override
+            public void remove() {
+                if (position == 0) {
+                    throw new IllegalStateException();
+                }
+                LongHashSet.this.remove(snapshot[position - 1]);
+            }
+        };
+    }
+
+    /**
+     * Берёт блокировку записи или возвращает 0, если множество уже перенесено в {@link #successor}.
+     */
+    private long writeLock() {
+        if (successor != null) {
+            return 0;
+        }
+        long stamp = lock.tryWriteLock();
+        if (stamp == 0) {
+            stamp = lock.writeLock();
+            contendedWrites++;
+        }
+        if (successor != null) {
+            lock.unlockWrite(stamp);
+            return 0;
+        }
+        return stamp;
+    }
+
+    private boolean find(long value) {
+        if (value == 0) {
+            return containsZero;
+        }
+        long[] slots = table;
+        int mask = slots.length - 1;
+        int index = indexOf(value, mask);
+        // при оптимистичном чтении таблица может меняться, поэтому число проб ограничено
+        for (int probe = 0; probe < slots.length; probe++) {
+            long current = slots[index];
+            if (current == value) {
+                return true;
+            }
+            if (current == 0) {
+                return false;
+            }
+            index = (index + 1) & mask;
+        }
+        return false;
+    }
+
+    private long[] copy() {
+        long[] slots = table;
+        boolean zero = containsZero;
+        int count = 0;
+        for (long value : slots) {
+            if (value != 0) {
+                count++;
+            }
+        }
+        long[] result = new long[zero ? count + 1 : count];
+        int position = 0;
+        if (zero) {
+            result[position++] = 0;
+        }
+        for (int i = 0; i < slots.length && position < result.length; i++) {
+            if (slots[i] != 0) {
+                result[position++] = slots[i];
+            }
+        }
+        return result;
+    }
+
+    private int storedInTable() {
+        return containsZero ? size - 1 : size;
+    }
+
+    private void resize(int capacity) {
+        long[] old = table;
+        long[] slots = new long[capacity];
+        int mask = capacity - 1;
+        for (long value : old) {
+            if (value != 0) {
+                int index = indexOf(value, mask);
+                while (slots[index] != 0) {
+                    index = (index + 1) & mask;
+                }
+                slots[index] = value;
+            }
+        }
+        table = slots;
+    }
+
+    private static int indexOf(long value, int mask) {
+        long hash = value * 0x9E3779B97F4A7C15L;
+        return (int) (hash ^ (hash >>> 32)) & mask;
+    }
+
+    private static int capacityFor(int expectedSize) {
+        int capacity = MIN_CAPACITY;
+        while (capacity < expectedSize * 2L) {
+            capacity <<= 1;
+        }
+        return capacity;
+    }
+}
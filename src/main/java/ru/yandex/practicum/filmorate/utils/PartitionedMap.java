@@ -0,0 +1,129 @@
+package ru.yandex.practicum.filmorate.utils;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Карта по id, разбитая на независимые упорядоченные партиции по хешу id. Точечные операции
+ * обращаются к одной партиции, поэтому писатели разных партиций не делят ни одной структуры.
+ *
+ * <p>Обход по возрастанию id сливает упорядоченные партиции k-путевым слиянием: в каждой партиции
+ * читается ровно столько элементов, сколько попало в результат, и её содержимое целиком не копируется.
+ * Обход слабо согласован, как у {@link ConcurrentSkipListMap}.
+ */
+public class PartitionedMap<V> {
+    private final List<ConcurrentSkipListMap<Long, V>> partitions;
+
+    public PartitionedMap(int partitions) {
+        if (partitions < 1) {
+            throw new IllegalArgumentException("Число партиций должно быть положительным: " + partitions);
+        }
+        this.partitions = new ArrayList<>(partitions);
+        for (int i = 0; i < partitions; i++) {
+            this.partitions.add(new ConcurrentSkipListMap<>());
+        }
+    }
+
+    /**
+     * Номер партиции id. Id идут подряд или содержат метку времени в старших битах, поэтому сначала они
+     * перемешиваются умножением Фибоначчи, а номер берётся из старших битов результата умножением
+     * на {@code partitions} — без деления и для любого числа партиций.
+     */
+    public static int partitionOf(long id, int partitions) {
+        long hash = (id * 0x9E3779B97F4A7C15L) >>> 32;
+        return (int) ((hash * partitions) >>> 32);
+    }
+
+    public int partitionCount() {
+        return partitions.size();
+    }
+
+    public V get(long id) {
+        return partition(id).get(id);
+    }
+
+    public boolean containsKey(long id) {
+        return partition(id).containsKey(id);
+    }
+
+    public V put(long id, V value) {
+        return partition(id).put(id, value);
+    }
+
+    public V remove(long id) {
+        return partition(id).remove(id);
+    }
+
+    public boolean replace(long id, V expected, V value) {
+        return partition(id).replace(id, expected, value);
+    }
+
+    /**
+     * Значения с id больше {@code afterId} по возрастанию id. Поток ленивый: с {@code limit} из партиций
+     * читается только нужное.
+     */
+    public Stream<V> valuesAfter(long afterId) {
+        if (partitions.size() == 1) {
+            return partitions.get(0).tailMap(afterId, false).values().stream();
+        }
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(new MergingIterator<>(partitions, afterId),
+                Spliterator.ORDERED | Spliterator.NONNULL), false);
+    }
+
+    private ConcurrentSkipListMap<Long, V> partition(long id) {
+        return partitions.get(partitionOf(id, partitions.size()));
+    }
+
+    private static final class MergingIterator<V> implements Iterator<V> {
+        private final PriorityQueue<Cursor<V>> heads =
+                new PriorityQueue<>(Comparator.comparingLong(cursor -> cursor.head.getKey()));
+
+        MergingIterator(List<ConcurrentSkipListMap<Long, V>> partitions, long afterId) {
+            for (ConcurrentSkipListMap<Long, V> partition : partitions) {
+                Iterator<Map.Entry<Long, V>> entries = partition.tailMap(afterId, false).entrySet().iterator();
+                if (entries.hasNext()) {
+                    heads.add(new Cursor<>(entries.next(), entries));
+                }
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return !heads.isEmpty();
+        }
+
+        @Override
+        public V next() {
+            Cursor<V> cursor = heads.poll();
+            if (cursor == null) {
+                throw new NoSuchElementException();
+            }
+            V value = cursor.head.getValue();
+            if (cursor.rest.hasNext()) {
+                cursor.head = cursor.rest.next();
+                heads.add(cursor);
+            }
+            return value;
+        }
+    }
+
+    private static final class Cursor<V> {
+        Map.Entry<Long, V> head;
+        final Iterator<Map.Entry<Long, V>> rest;
+
+        Cursor(Map.Entry<Long, V> head, Iterator<Map.Entry<Long, V>> rest) {
+            this.head = head;
+            this.rest = rest;
+        }
+    }
+}
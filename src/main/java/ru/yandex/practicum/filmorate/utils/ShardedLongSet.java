@@ -0,0 +1,101 @@
+package ru.yandex.practicum.filmorate.utils;
+
+/**
+ * Множество {@code long}, разбитое по хешу значения на независимые {@link LongHashSet}: писатели
+ * разных шардов не делят ни блокировку, ни счётчик размера. Нужно для «горячих» множеств, которые
+ * одновременно меняют десятки потоков, например лайков вирусного фильма; обычному множеству
+ * хватает одного {@link LongHashSet}, он компактнее.
+ *
+ * <p>Размер складывается из размеров шардов, а снимок и {@link #toLongArray()} собираются по шардам
+ * поочерёдно: изменения, сделанные во время обхода, в них могут попасть частично.
+ */
+public class ShardedLongSet extends LongHashSet {
+    private final LongHashSet[] shards;
+
+    public ShardedLongSet(int shards) {
+        if (shards < 1) {
+            throw new IllegalArgumentException("Число шардов должно быть положительным: " + shards);
+        }
+        this.shards = new LongHashSet[shards];
+        for (int i = 0; i < shards; i++) {
+            this.shards[i] = new LongHashSet();
+        }
+    }
+
+    private ShardedLongSet(LongHashSet[] shards) {
+        this.shards = shards;
+    }
+
+    public int shardCount() {
+        return shards.length;
+    }
+
+    @Override
+    public boolean contains(long value) {
+        return shardOf(value).contains(value);
+    }
+
+    @Override
+    public boolean add(long value) {
+        return shardOf(value).add(value);
+    }
+
+    @Override
+    public boolean remove(long value) {
+        return shardOf(value).remove(value);
+    }
+
+    @Override
+    public long[] toLongArray() {
+        long[][] parts = new long[shards.length][];
+        int total = 0;
+        for (int i = 0; i < shards.length; i++) {
+            parts[i] = shards[i].toLongArray();
+            total += parts[i].length;
+        }
+        long[] result = new long[total];
+        int position = 0;
+        for (long[] part : parts) {
+            System.arraycopy(part, 0, result, position, part.length);
+            position += part.length;
+        }
+        return result;
+    }
+
+    /**
+     * Копия тоже разбита на шарды: каждый шард копируется целиком, без повторного хеширования.
+     */
+    @Override
+    public LongHashSet snapshot() {
+        LongHashSet[] copies = new LongHashSet[shards.length];
+        for (int i = 0; i < shards.length; i++) {
+            copies[i] = shards[i].snapshot();
+        }
+        return new ShardedLongSet(copies);
+    }
+
+    @Override
+    public LongHashSet shard(int shards) {
+        return this;
+    }
+
+    @Override
+    public int size() {
+        int size = 0;
+        for (LongHashSet shard : shards) {
+            size += shard.size();
+        }
+        return size;
+    }
+
+    @Override
+    public void clear() {
+        for (LongHashSet shard : shards) {
+            shard.clear();
+        }
+    }
+
+    private LongHashSet shardOf(long value) {
+        return shards[PartitionedMap.partitionOf(value, shards.length)];
+    }
+}
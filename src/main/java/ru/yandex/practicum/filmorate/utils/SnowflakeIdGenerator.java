@@ -0,0 +1,71 @@
+package ru.yandex.practicum.filmorate.utils;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Id в стиле Snowflake для нескольких экземпляров приложения:
+ * 41 бит — миллисекунды от {@link #EPOCH}, 10 бит — номер узла, 12 бит — счётчик внутри миллисекунды.
+ * Если счётчик переполнился или часы ушли назад, метка времени сдвигается вперёд логически,
+ * поэтому id на одном узле всегда возрастают.
+ */
+public class SnowflakeIdGenerator implements IdGenerator {
+    public static final long EPOCH = 1_704_067_200_000L; // 2024-01-01T00:00:00Z
+    private static final int NODE_BITS = 10;
+    private static final int SEQUENCE_BITS = 12;
+    private static final long MAX_NODE_ID = (1L << NODE_BITS) - 1;
+    private static final long SEQUENCE_MASK = (1L << SEQUENCE_BITS) - 1;
+
+    private final long nodeId;
+    private final LongSupplier clock;
+    // (время << SEQUENCE_BITS) | счётчик последнего выданного id
+    private final AtomicLong state = new AtomicLong();
+
+    public SnowflakeIdGenerator(long nodeId) {
+        this(nodeId, System::currentTimeMillis);
+    }
+
+    SnowflakeIdGenerator(long nodeId, LongSupplier clock) {
+        if (nodeId < 0 || nodeId > MAX_NODE_ID) {
+            throw new IllegalArgumentException("Номер узла должен быть в диапазоне 0.." + MAX_NODE_ID);
+        }
+        this.nodeId = nodeId;
+        this.clock = clock;
+    }
+
+    @Override
+    public long nextId() {
+        while (true) {
+            long previous = state.get();
+            long now = (clock.getAsLong() - EPOCH) << SEQUENCE_BITS;
+            long next = Math.max(now, previous + 1);
+            if (state.compareAndSet(previous, next)) {
+                long timestamp = next >>> SEQUENCE_BITS;
+                return (timestamp << (NODE_BITS + SEQUENCE_BITS))
+                        | (nodeId << SEQUENCE_BITS)
+                        | (next & SEQUENCE_MASK);
+            }
+        }
+    }
+
+    @Override
+    public long[] reserve(int count) {
+        if (count < 0) {
+            throw new IllegalArgumentException("count не может быть отрицательным");
+        }
+        long[] ids = new long[count];
+        for (int i = 0; i < count; i++) {
+            ids[i] = nextId();
+        }
+        return ids;
+    }
+
+    @Override
+    public void advanceTo(long usedId) {
+        if (((usedId >>> SEQUENCE_BITS) & MAX_NODE_ID) != nodeId) {
+            return;
+        }
+        long timestamp = usedId >>> (NODE_BITS + SEQUENCE_BITS);
+        state.accumulateAndGet((timestamp << SEQUENCE_BITS) | (usedId & SEQUENCE_MASK), Math::max);
+    }
+}
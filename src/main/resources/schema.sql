@@ -0,0 +1,45 @@
+CREATE TABLE IF NOT EXISTS users (
+    id       BIGINT PRIMARY KEY,
+    email    VARCHAR(255) NOT NULL,
+    login    VARCHAR(255) NOT NULL,
+    name     VARCHAR(255),
+    birthday DATE,
+    -- номер правки для оптимистической блокировки при PUT
+    version  BIGINT NOT NULL DEFAULT 1
+);
+
+CREATE TABLE IF NOT EXISTS films (
+    id           BIGINT PRIMARY KEY,
+    name         VARCHAR(255) NOT NULL,
+    description  VARCHAR(200),
+    release_date DATE,
+    duration     INT,
+    -- денормализованный счётчик для индексированного запроса популярных фильмов
+    likes_count  INT NOT NULL DEFAULT 0,
+    version      BIGINT NOT NULL DEFAULT 1
+);
+
+-- базы, созданные до появления версий
+ALTER TABLE users ADD COLUMN IF NOT EXISTS version BIGINT NOT NULL DEFAULT 1;
+ALTER TABLE films ADD COLUMN IF NOT EXISTS version BIGINT NOT NULL DEFAULT 1;
+
+CREATE INDEX IF NOT EXISTS films_popularity_idx ON films (likes_count DESC, id);
+
+CREATE TABLE IF NOT EXISTS film_likes (
+    film_id BIGINT NOT NULL REFERENCES films (id) ON DELETE CASCADE,
+    user_id BIGINT NOT NULL REFERENCES users (id) ON DELETE CASCADE,
+    PRIMARY KEY (film_id, user_id)
+);
+
+-- лайки пользователя по возрастанию id фильма: страницы любимых фильмов без сортировки
+DROP INDEX IF EXISTS film_likes_user_idx;
+CREATE INDEX IF NOT EXISTS film_likes_user_film_idx ON film_likes (user_id, film_id);
+
+-- дружба симметрична и хранится двумя строками: (user, friend) и (friend, user)
+CREATE TABLE IF NOT EXISTS friendships (
+    user_id   BIGINT NOT NULL REFERENCES users (id) ON DELETE CASCADE,
+    friend_id BIGINT NOT NULL REFERENCES users (id) ON DELETE CASCADE,
+    PRIMARY KEY (user_id, friend_id)
+);
+
+CREATE INDEX IF NOT EXISTS friendships_friend_idx ON friendships (friend_id);
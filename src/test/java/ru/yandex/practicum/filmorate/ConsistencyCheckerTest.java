@@ -0,0 +1,102 @@
+package ru.yandex.practicum.filmorate;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.ConsistencyChecker;
+import ru.yandex.practicum.filmorate.storage.film.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.persistence.MutationJournal;
+import ru.yandex.practicum.filmorate.storage.user.InMemoryUserStorage;
+import ru.yandex.practicum.filmorate.utils.IdGeneratorFactory;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConsistencyCheckerTest {
+    private InMemoryUserStorage userStorage;
+    private InMemoryFilmStorage filmStorage;
+    private ConsistencyChecker checker;
+
+    @BeforeEach
+    void setUp() {
+        userStorage = new InMemoryUserStorage(new IdGeneratorFactory("sequence", 0), MutationJournal.DISABLED);
+        filmStorage = new InMemoryFilmStorage(new IdGeneratorFactory("sequence", 0), MutationJournal.DISABLED);
+        checker = new ConsistencyChecker(filmStorage, userStorage, 2, Duration.ofMinutes(1));
+        for (int i = 0; i < 3; i++) {
+            userStorage.createUser(User.builder()
+                    .email("user" + i + "@yandex.ru")
+                    .login("user" + i)
+                    .birthday(LocalDate.of(1990, 1, 1))
+                    .build());
+            filmStorage.createFilm(Film.builder()
+                    .name("Film " + i)
+                    .description("desc")
+                    .releaseDate(LocalDate.of(2000, 1, 1))
+                    .duration(100)
+                    .build());
+        }
+    }
+
+    @Test
+    void shouldRemoveDeletedUserFromFriendsInDegreeTime() {
+        userStorage.addFriend(1L, 2L);
+        userStorage.addFriend(1L, 3L);
+
+        userStorage.deleteUser(1L);
+
+        assertTrue(userStorage.getFriends(2L).isEmpty());
+        assertTrue(userStorage.getFriends(3L).isEmpty());
+        assertEquals(0, userStorage.totalFriendships());
+    }
+
+    @Test
+    void shouldRemoveLikesOfUserUsingReverseIndex() {
+        filmStorage.addLike(1L, 1L);
+        filmStorage.addLike(2L, 1L);
+        filmStorage.addLike(2L, 2L);
+
+        filmStorage.removeLikesOfUser(1L);
+
+        assertTrue(filmStorage.getFilmById(1L).getLikes().isEmpty());
+        assertEquals(Set.of(2L), filmStorage.getFilmById(2L).getLikes());
+        assertEquals(List.of(2L), filmStorage.getPopularFilms(10L).stream().map(Film::getId).toList());
+        assertEquals(0, filmStorage.getLikedFilmIds(1L).length);
+    }
+
+    @Test
+    void shouldRepairOnlyIssuesThatPersistUntilNextStep() {
+        // повреждённые записи, как после восстановления из испорченного снимка
+        userStorage.loadUser(withFriends(userStorage.getUserById(1L), 999L));
+        userStorage.loadUser(withFriends(userStorage.getUserById(2L), 3L));
+        Film film = filmStorage.getFilmById(1L);
+        film.getLikes().add(999L);
+        filmStorage.loadFilm(film);
+
+        // первый шаг только находит нарушения в первой порции
+        assertEquals(0, checker.step());
+        userStorage.loadUser(withFriends(userStorage.getUserById(1L)));
+        // второй шаг исправляет то, что осталось, и проверяет вторую порцию
+        assertEquals(2, checker.step());
+        checker.step();
+        checker.step();
+
+        assertEquals(Set.of(3L), userStorage.getUserById(2L).getFriends());
+        assertEquals(Set.of(2L), userStorage.getUserById(3L).getFriends());
+        assertTrue(filmStorage.getFilmById(1L).getLikes().isEmpty());
+        assertEquals(0, filmStorage.getLikedFilmIds(999L).length);
+        assertEquals(0, checker.step());
+    }
+
+    private static User withFriends(User user, long... friendIds) {
+        user.getFriends().clear();
+        for (long friendId : friendIds) {
+            user.getFriends().add(friendId);
+        }
+        return user;
+    }
+}
@@ -2,6 +2,8 @@ package ru.yandex.practicum.filmorate;
 
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
 import lombok.SneakyThrows;
 import org.junit.jupiter.api.MethodOrderer;
 import org.junit.jupiter.api.Order;
@@ -12,14 +14,18 @@ import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMock
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import ru.yandex.practicum.filmorate.model.Film;
 import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.serialization.BinaryFormatsConfig;
 
 import java.time.LocalDate;
 
+import static org.hamcrest.Matchers.not;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
-import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
-import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
 @SpringBootTest
 @AutoConfigureMockMvc
@@ -134,6 +140,26 @@ class FilmControllerTest {
                 .andExpect(jsonPath("$[1].id").value(film2));
     }
 
+    @Test
+    @Order(3)
+    void shouldReturn304UntilPopularFilmsChange() throws Exception {
+        long film = createFilm("Conditional");
+        long user = createUser("conditional@yandex.ru");
+
+        String etag = mockMvc.perform(get("/films/popular").param("count", "1000"))
+                .andExpect(status().isOk())
+                .andExpect(header().exists("Last-Modified"))
+                .andReturn().getResponse().getHeader("ETag");
+        mockMvc.perform(get("/films/popular").param("count", "1000").header("If-None-Match", etag))
+                .andExpect(status().isNotModified());
+
+        mockMvc.perform(put("/films/{id}/like/{userId}", film, user)).andExpect(status().isOk());
+
+        mockMvc.perform(get("/films/popular").param("count", "1000").header("If-None-Match", etag))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", not(etag)));
+    }
+
     @Test
     void shouldReturn400WhenNameIsNull() throws Exception {
         String json = "{ \"description\": \"cool film\", \"releaseDate\": \"1999-01-01\", \"duration\": 120 }";
@@ -282,4 +308,196 @@ class FilmControllerTest {
         mockMvc.perform(delete("/films/{id}/like/{userId}", filmId, 999L))
                 .andExpect(status().isNotFound());
     }
-}
\ No newline at end of file
+
+    @Test
+    void shouldPageFilmsByCursor() throws Exception {
+        long film1 = createFilm("Page 1");
+        long film2 = createFilm("Page 2");
+        createFilm("Page 3");
+
+        mockMvc.perform(get("/films").param("after", String.valueOf(film1)).param("limit", "1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(1))
+                .andExpect(jsonPath("$[0].id").value(film2))
+                .andExpect(header().string("X-Next-Cursor", String.valueOf(film2)));
+    }
+
+    @Test
+    void shouldReturn400WhenPageLimitTooLarge() throws Exception {
+        mockMvc.perform(get("/films").param("limit", "1001"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void shouldReturn400WhenPopularCountOutOfRange() throws Exception {
+        mockMvc.perform(get("/films/popular").param("count", "0"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/films/popular").param("count", "1001"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/films/popular").param("count", "1001").accept(BinaryFormatsConfig.SMILE))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void shouldReturn400WhenBatchTooLarge() throws Exception {
+        String likes = "[" + "{ \"filmId\": 1, \"userId\": 1 },".repeat(10_000) + "{ \"filmId\": 1, \"userId\": 1 }]";
+
+        mockMvc.perform(put("/films/likes/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(likes))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void shouldStreamFilmsAsNdjson() throws Exception {
+        createFilm("Streamed");
+        int total = new ObjectMapper().readTree(mockMvc.perform(get("/films"))
+                .andReturn().getResponse().getContentAsString()).size();
+
+        MvcResult started = mockMvc.perform(get("/films").accept("application/x-ndjson"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        String body = mockMvc.perform(asyncDispatch(started))
+                .andExpect(status().isOk())
+                .andReturn()
+                .getResponse()
+                .getContentAsString();
+
+        String[] lines = body.split("\n");
+        assertEquals(total, lines.length);
+        for (String line : lines) {
+            assertTrue(extractIdFromJson(line) > 0);
+        }
+    }
+
+    @Test
+    void shouldCreateFilmsAndLikesInBatch() throws Exception {
+        long userId = createUser("batch@yandex.ru");
+        String films = "[{ \"name\": \"Batch 1\", \"description\": \"d\", \"releaseDate\": \"2000-01-01\", \"duration\": 90 },"
+                + " { \"name\": \"\", \"description\": \"d\", \"releaseDate\": \"2000-01-01\", \"duration\": 90 }]";
+
+        String created = mockMvc.perform(post("/films/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(films))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].status").value("CREATED"))
+                .andExpect(jsonPath("$[1].status").value("INVALID"))
+                .andExpect(jsonPath("$[1].errors.name").value("Название не может быть пустым"))
+                .andReturn()
+                .getResponse()
+                .getContentAsString();
+        long filmId = new ObjectMapper().readTree(created).get(0).get("id").asLong();
+
+        String likes = "[{ \"filmId\": %d, \"userId\": %d }, { \"filmId\": 999, \"userId\": %d }]"
+                .formatted(filmId, userId, userId);
+        mockMvc.perform(put("/films/likes/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(likes))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].status").value("APPLIED"))
+                .andExpect(jsonPath("$[1].status").value("NOT_FOUND"));
+
+        mockMvc.perform(get("/films").param("after", String.valueOf(filmId - 1)).param("limit", "1"))
+                .andExpect(jsonPath("$[0].likes.length()").value(1));
+    }
+
+    @Test
+    void shouldRejectNewFilmLikedByUnknownUser() throws Exception {
+        String film = "{ \"name\": \"Liked\", \"description\": \"d\", \"releaseDate\": \"2000-01-01\", "
+                + "\"duration\": 90, \"likes\": [999999] }";
+
+        mockMvc.perform(post("/films")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(film))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void shouldKeepLikesAndRejectStaleVersionOnUpdate() throws Exception {
+        long filmId = createFilm("Versioned");
+        long userId = createUser("versioned@yandex.ru");
+        mockMvc.perform(put("/films/{id}/like/{userId}", filmId, userId)).andExpect(status().isOk());
+        String update = ("{ \"id\": %d, \"version\": 1, \"name\": \"Renamed\", \"description\": \"d\", "
+                + "\"releaseDate\": \"2000-01-01\", \"duration\": 90, \"likes\": [] }").formatted(filmId);
+
+        mockMvc.perform(put("/films")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(update))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"2\""))
+                .andExpect(jsonPath("$.name").value("Renamed"))
+                .andExpect(jsonPath("$.version").value(2))
+                .andExpect(jsonPath("$.likes.length()").value(1));
+
+        mockMvc.perform(put("/films")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(update))
+                .andExpect(status().isConflict());
+
+        // If-Match важнее версии в теле
+        mockMvc.perform(put("/films")
+                        .header("If-Match", "\"2\"")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(update))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.version").value(3));
+    }
+
+    @Test
+    void shouldNegotiateBinaryFormatsByAccept() throws Exception {
+        long filmId = createFilm("Binary");
+        long userId = createUser("binary@yandex.ru");
+        mockMvc.perform(put("/films/{id}/like/{userId}", filmId, userId)).andExpect(status().isOk());
+
+        byte[] cbor = mockMvc.perform(get("/films")
+                        .param("after", String.valueOf(filmId - 1))
+                        .param("limit", "1")
+                        .accept(MediaType.APPLICATION_CBOR))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_CBOR))
+                .andReturn()
+                .getResponse()
+                .getContentAsByteArray();
+        JsonNode films = new ObjectMapper(new CBORFactory()).readTree(cbor);
+        assertEquals(filmId, films.get(0).get("id").asLong());
+        assertEquals(userId, films.get(0).get("likes").get(0).asLong());
+
+        byte[] smile = mockMvc.perform(get("/films/popular").accept(BinaryFormatsConfig.SMILE))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(BinaryFormatsConfig.SMILE))
+                .andReturn()
+                .getResponse()
+                .getContentAsByteArray();
+        assertTrue(new ObjectMapper(new SmileFactory()).readTree(smile).isArray());
+
+        mockMvc.perform(get("/films/popular"))
+                .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_JSON));
+    }
+
+    @Test
+    void shouldReturnTrendingFilmsForWindow() throws Exception {
+        long filmId = createFilm("Trending");
+        for (int i = 0; i < 3; i++) {
+            long userId = createUser("trending" + i + "@yandex.ru");
+            mockMvc.perform(put("/films/{id}/like/{userId}", filmId, userId)).andExpect(status().isOk());
+        }
+
+        for (String window : new String[]{"1h", "24h", "7d"}) {
+            String json = mockMvc.perform(get("/films/trending")
+                            .param("window", window)
+                            .param("count", "1000"))
+                    .andExpect(status().isOk())
+                    .andReturn()
+                    .getResponse()
+                    .getContentAsString();
+            boolean found = false;
+            for (JsonNode film : new ObjectMapper().readTree(json)) {
+                found |= film.get("id").asLong() == filmId;
+            }
+            assertTrue(found, window);
+        }
+
+        mockMvc.perform(get("/films/trending").param("window", "2h"))
+                .andExpect(status().isBadRequest());
+    }
+}
@@ -0,0 +1,115 @@
+package ru.yandex.practicum.filmorate;
+
+import org.junit.jupiter.api.Test;
+import org.zalando.logbook.Correlation;
+import org.zalando.logbook.HttpLogWriter;
+import org.zalando.logbook.HttpRequest;
+import org.zalando.logbook.Precorrelation;
+import ru.yandex.practicum.filmorate.logging.AsyncHttpLogWriter;
+import ru.yandex.practicum.filmorate.logging.SamplingRequestCondition;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class HttpLoggingTest {
+
+    @Test
+    void shouldNeverLogExcludedEndpoints() {
+        SamplingRequestCondition condition = new SamplingRequestCondition(
+                List.of("GET /films/popular", "GET /users/*/friends/**"), List.of(), 1);
+
+        assertFalse(condition.test(request("GET", "/films/popular")));
+        assertFalse(condition.test(request("GET", "/users/1/friends")));
+        assertFalse(condition.test(request("GET", "/users/1/friends/common/2")));
+        assertTrue(condition.test(request("PUT", "/users/1/friends/2")));
+        assertTrue(condition.test(request("GET", "/films")));
+    }
+
+    @Test
+    void shouldApplyFirstMatchingEndpointRate() {
+        SamplingRequestCondition condition = new SamplingRequestCondition(
+                List.of(), List.of("/films/*/like/*=0", "DELETE /**=1"), 0);
+
+        assertFalse(condition.test(request("DELETE", "/films/1/like/2")));
+        assertTrue(condition.test(request("DELETE", "/films/1")));
+        assertFalse(condition.test(request("POST", "/films")));
+    }
+
+    @Test
+    void shouldSampleByDefaultRate() {
+        SamplingRequestCondition condition = new SamplingRequestCondition(List.of(), List.of(), 0.5);
+        HttpRequest request = request("GET", "/films");
+
+        int logged = 0;
+        for (int i = 0; i < 10_000; i++) {
+            if (condition.test(request)) {
+                logged++;
+            }
+        }
+        assertTrue(logged > 4_000 && logged < 6_000, "записано " + logged);
+    }
+
+    @Test
+    void shouldWriteEntriesInOrderAfterClose() throws Exception {
+        List<String> written = new CopyOnWriteArrayList<>();
+        AsyncHttpLogWriter writer = new AsyncHttpLogWriter(new CollectingWriter(written, null), 16);
+        writer.write(mock(Precorrelation.class), "request");
+        writer.write(mock(Correlation.class), "response");
+        writer.close();
+
+        assertEquals(List.of("request", "response"), written);
+        assertEquals(0, writer.dropped());
+    }
+
+    @Test
+    void shouldDropInsteadOfBlockingWhenQueueIsFull() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        List<String> written = new CopyOnWriteArrayList<>();
+        AsyncHttpLogWriter writer = new AsyncHttpLogWriter(new CollectingWriter(written, release), 1);
+        for (int i = 0; i < 10; i++) {
+            writer.write(mock(Precorrelation.class), "request " + i);
+        }
+        assertTrue(writer.dropped() >= 8);
+
+        release.countDown();
+        writer.close();
+        assertEquals(10, written.size() + writer.dropped());
+    }
+
+    private static HttpRequest request(String method, String path) {
+        HttpRequest request = mock(HttpRequest.class);
+        when(request.getMethod()).thenReturn(method);
+        when(request.getPath()).thenReturn(path);
+        return request;
+    }
+
+    private record CollectingWriter(List<String> written, CountDownLatch release) implements HttpLogWriter {
+        @Override
+        public void write(Precorrelation precorrelation, String request) {
+            await();
+            written.add(request);
+        }
+
+        @Override
+        public void write(Correlation correlation, String response) {
+            await();
+            written.add(response);
+        }
+
+        private void await() {
+            if (release == null) {
+                return;
+            }
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package ru.yandex.practicum.filmorate;
+
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.utils.IdGenerator;
+import ru.yandex.practicum.filmorate.utils.SequenceIdGenerator;
+import ru.yandex.practicum.filmorate.utils.SnowflakeIdGenerator;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IdGeneratorTest {
+
+    @Test
+    void shouldStartSequenceFromOne() {
+        IdGenerator generator = new SequenceIdGenerator();
+
+        assertEquals(1, generator.nextId());
+        assertEquals(2, generator.nextId());
+    }
+
+    @Test
+    void shouldReserveContiguousBlock() {
+        IdGenerator generator = new SequenceIdGenerator();
+        generator.nextId();
+
+        assertArrayEquals(new long[]{2, 3, 4}, generator.reserve(3));
+        assertEquals(5, generator.nextId());
+    }
+
+    @Test
+    void shouldNotDuplicateSequenceIdsAcrossThreads() throws Exception {
+        assertUniqueAcrossThreads(new SequenceIdGenerator());
+    }
+
+    @Test
+    void shouldNotDuplicateSnowflakeIdsAcrossThreads() throws Exception {
+        assertUniqueAcrossThreads(new SnowflakeIdGenerator(7));
+    }
+
+    @Test
+    void shouldGenerateIncreasingSnowflakeIds() {
+        IdGenerator generator = new SnowflakeIdGenerator(1);
+        long previous = generator.nextId();
+        for (int i = 0; i < 100_000; i++) {
+            long next = generator.nextId();
+            assertTrue(next > previous);
+            previous = next;
+        }
+    }
+
+    @Test
+    void shouldRejectInvalidNodeId() {
+        assertThrows(IllegalArgumentException.class, () -> new SnowflakeIdGenerator(1024));
+    }
+
+    private void assertUniqueAcrossThreads(IdGenerator generator) throws Exception {
+        int threads = 8;
+        int perThread = 50_000;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        Set<Long> ids = ConcurrentHashMap.newKeySet();
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            futures.add(executor.submit(() -> {
+                for (int j = 0; j < perThread; j++) {
+                    ids.add(generator.nextId());
+                }
+            }));
+        }
+        try {
+            for (Future<?> future : futures) {
+                future.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(threads * perThread, ids.size());
+    }
+}
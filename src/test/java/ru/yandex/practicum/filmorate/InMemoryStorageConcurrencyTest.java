@@ -0,0 +1,411 @@
+package ru.yandex.practicum.filmorate;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.validation.Validation;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import ru.yandex.practicum.filmorate.exceptions.ConflictException;
+import ru.yandex.practicum.filmorate.exceptions.NotFoundException;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmLike;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.service.FilmService;
+import ru.yandex.practicum.filmorate.service.LikeIngestionPipeline;
+import ru.yandex.practicum.filmorate.service.PopularFilmsCache;
+import ru.yandex.practicum.filmorate.storage.film.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.persistence.MutationJournal;
+import ru.yandex.practicum.filmorate.storage.user.InMemoryUserStorage;
+import ru.yandex.practicum.filmorate.utils.IdGeneratorFactory;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class InMemoryStorageConcurrencyTest {
+    private static final int THREADS = 8;
+    private static final int USERS = 2_000;
+
+    private InMemoryUserStorage userStorage;
+    private InMemoryFilmStorage filmStorage;
+
+    @BeforeEach
+    void setUp() {
+        IdGeneratorFactory idGeneratorFactory = new IdGeneratorFactory("sequence", 0);
+        userStorage = new InMemoryUserStorage(idGeneratorFactory, MutationJournal.DISABLED);
+        filmStorage = new InMemoryFilmStorage(idGeneratorFactory, MutationJournal.DISABLED);
+        for (int i = 0; i < USERS; i++) {
+            userStorage.createUser(User.builder()
+                    .email("user" + i + "@yandex.ru")
+                    .login("user" + i)
+                    .birthday(LocalDate.of(1990, 1, 1))
+                    .build());
+        }
+        for (int i = 0; i < 10; i++) {
+            filmStorage.createFilm(Film.builder()
+                    .name("Film " + i)
+                    .description("desc")
+                    .releaseDate(LocalDate.of(2000, 1, 1))
+                    .duration(100)
+                    .build());
+        }
+    }
+
+    @Test
+    void shouldKeepAllLikesUnderConcurrentWrites() throws Exception {
+        runConcurrently(thread -> {
+            for (long userId = thread + 1; userId <= USERS; userId += THREADS) {
+                filmStorage.addLike(1L, userId);
+            }
+        });
+
+        assertEquals(USERS, filmStorage.getFilmById(1L).getLikes().size());
+        assertEquals(1L, filmStorage.getPopularFilms(1L).get(0).getId());
+    }
+
+    @Test
+    void shouldSkipLikesOfFilmDeletedBeforeBatch() {
+        filmStorage.deleteFilm(2L);
+
+        Set<Long> missing = filmStorage.addLikes(
+                List.of(new FilmLike(1L, 1L), new FilmLike(2L, 1L), new FilmLike(3L, 2L)));
+
+        assertEquals(Set.of(2L), missing);
+        assertEquals(Set.of(1L), filmStorage.getFilmById(1L).getLikes());
+        assertEquals(Set.of(2L), filmStorage.getFilmById(3L).getLikes());
+        assertEquals(List.of(1L), filmStorage.getLikedFilms(1L, 0, 10).stream().map(Film::getId).toList());
+    }
+
+    @Test
+    void shouldReportFilmsDeletedBeforeUnlikeBatch() {
+        filmStorage.addLike(1L, 1L);
+        filmStorage.addLike(2L, 1L);
+        filmStorage.addLike(3L, 2L);
+        filmStorage.deleteFilm(2L);
+
+        Set<Long> missing = filmStorage.removeLikes(
+                List.of(new FilmLike(1L, 1L), new FilmLike(2L, 1L), new FilmLike(3L, 2L)));
+
+        assertEquals(Set.of(2L), missing);
+        assertTrue(filmStorage.getFilmById(1L).getLikes().isEmpty());
+        assertTrue(filmStorage.getFilmById(3L).getLikes().isEmpty());
+        assertTrue(filmStorage.getPopularFilms(10L).isEmpty());
+    }
+
+    @Test
+    void shouldNotLeaveLikesOfFilmsDeletedConcurrently() throws Exception {
+        runConcurrently(thread -> {
+            if (thread == 0) {
+                for (long filmId = 2; filmId <= 10; filmId++) {
+                    filmStorage.deleteFilm(filmId);
+                }
+                return;
+            }
+            for (long userId = thread; userId <= USERS; userId += THREADS) {
+                for (long filmId = 1; filmId <= 10; filmId++) {
+                    try {
+                        filmStorage.addLike(filmId, userId);
+                    } catch (NotFoundException e) {
+                        // фильм уже удалён
+                    }
+                }
+            }
+        });
+
+        assertEquals(filmStorage.getFilmById(1L).getLikes().size(), filmStorage.totalLikes());
+        assertEquals(List.of(1L), filmStorage.getPopularFilms(10L).stream().map(Film::getId).toList());
+        for (long userId = 1; userId <= USERS; userId++) {
+            for (long filmId : filmStorage.getLikedFilmIds(userId)) {
+                assertEquals(1L, filmId);
+            }
+        }
+    }
+
+    @Test
+    void shouldNotBefriendUsersDeletedConcurrently() throws Exception {
+        runConcurrently(thread -> {
+            if (thread == 0) {
+                for (long userId = 2; userId <= USERS; userId += 2) {
+                    userStorage.deleteUser(userId);
+                }
+                return;
+            }
+            for (long userId = thread + 1; userId <= USERS; userId += THREADS - 1) {
+                try {
+                    userStorage.addFriend(1L, userId);
+                } catch (NotFoundException e) {
+                    // пользователь уже удалён
+                }
+            }
+        });
+
+        List<User> friends = userStorage.getFriends(1L);
+        assertEquals(friends.size(), userStorage.getUserById(1L).getFriends().size());
+        assertEquals(friends.size(), userStorage.totalFriendships());
+        for (User friend : friends) {
+            assertEquals(1, friend.getId() % 2);
+            assertEquals(Set.of(1L), friend.getFriends());
+        }
+    }
+
+    @Test
+    void shouldKeepPromotedFilmHotAcrossServiceUpdates() throws Exception {
+        filmStorage = new InMemoryFilmStorage(new IdGeneratorFactory("sequence", 0), MutationJournal.DISABLED, 1, 1);
+        FilmService filmService = new FilmService(filmStorage, userStorage,
+                Validation.buildDefaultValidatorFactory().getValidator(),
+                new PopularFilmsCache(filmStorage, new ObjectMapper().findAndRegisterModules()),
+                new StaticListableBeanFactory().getBeanProvider(LikeIngestionPipeline.class));
+        Film hot = Film.builder()
+                .name("Hot")
+                .releaseDate(LocalDate.of(2000, 1, 1))
+                .duration(100)
+                .build();
+        filmService.createFilm(hot);
+        filmService.createFilm(Film.builder()
+                .name("Cold")
+                .releaseDate(LocalDate.of(2000, 1, 1))
+                .duration(100)
+                .build());
+        filmService.addLike(2L, 1L);
+        filmService.addLike(2L, 2L);
+        // хранимый фильм держит ссылку на множество, перенесённое в шарды в обход него
+        hot.getLikes().shard(4);
+
+        filmService.updateFilm(Film.builder()
+                .id(1L)
+                .name("Hot, updated")
+                .releaseDate(LocalDate.of(2000, 1, 1))
+                .duration(100)
+                .build());
+        assertTrue(filmStorage.isHot(1L));
+
+        runConcurrently(thread -> {
+            for (long userId = thread + 1; userId <= USERS; userId += THREADS) {
+                filmService.addLike(1L, userId);
+                if (userId % 100 == 0) {
+                    filmService.updateFilm(Film.builder()
+                            .id(1L)
+                            .name("Hot " + userId)
+                            .releaseDate(LocalDate.of(2000, 1, 1))
+                            .duration(100)
+                            .build());
+                }
+            }
+        });
+
+        assertTrue(filmStorage.isHot(1L));
+        assertEquals(USERS, filmService.removeLike(1L, 1L).getLikes().size() + 1);
+        assertEquals(USERS + 1, filmStorage.totalLikes());
+        assertEquals(List.of(1L, 2L), filmService.getPopularFilms(2L).stream().map(Film::getId).toList());
+    }
+
+    @Test
+    void shouldKeepLikesOfFilmPromotedToShardedSet() throws Exception {
+        // разбиение на шарды с первого же ожидания блокировки
+        filmStorage = new InMemoryFilmStorage(new IdGeneratorFactory("sequence", 0), MutationJournal.DISABLED, 1, 1);
+        for (int i = 0; i < 2; i++) {
+            filmStorage.createFilm(Film.builder()
+                    .name("Film " + i)
+                    .releaseDate(LocalDate.of(2000, 1, 1))
+                    .duration(100)
+                    .build());
+        }
+        filmStorage.addLike(2L, 1L);
+        filmStorage.addLike(2L, 2L);
+
+        runConcurrently(thread -> {
+            for (long userId = thread + 1; userId <= USERS; userId += THREADS) {
+                filmStorage.addLike(1L, userId);
+                if (userId % 10 == 0) {
+                    filmStorage.removeLike(1L, userId);
+                }
+            }
+        });
+
+        int expected = USERS - USERS / 10;
+        assertEquals(expected, filmStorage.getFilmById(1L).getLikes().size());
+        assertEquals(expected + 2, filmStorage.totalLikes());
+        assertEquals(List.of(1L, 2L), filmStorage.getPopularFilms(2L).stream().map(Film::getId).toList());
+        assertArrayEquals(new long[]{1L}, filmStorage.getLikedFilmIds(USERS - 1));
+
+        filmStorage.removeLikesOfUser(1L);
+        assertFalse(filmStorage.getFilmById(1L).getLikes().contains(1L));
+    }
+
+    @Test
+    void shouldKeepFriendshipsSymmetricUnderConcurrentWrites() throws Exception {
+        runConcurrently(thread -> {
+            for (long userId = thread + 2; userId <= USERS; userId += THREADS) {
+                userStorage.addFriend(1L, userId);
+            }
+        });
+
+        assertEquals(USERS - 1, userStorage.getFriends(1L).size());
+        for (long userId = 2; userId <= USERS; userId++) {
+            assertTrue(userStorage.getUserById(userId).getFriends().contains(1L));
+        }
+    }
+
+    @Test
+    void shouldIterateAllWhileWritersMutate() throws Exception {
+        AtomicBoolean running = new AtomicBoolean(true);
+        ExecutorService readers = Executors.newSingleThreadExecutor();
+        Future<?> reader = readers.submit(() -> {
+            while (running.get()) {
+                for (Film film : filmStorage.getAll()) {
+                    film.getLikes().forEach(Long::longValue);
+                }
+                for (User user : userStorage.getAll()) {
+                    user.getFriends().forEach(Long::longValue);
+                }
+            }
+        });
+
+        try {
+            runConcurrently(thread -> {
+                for (long userId = thread + 2; userId <= USERS; userId += THREADS) {
+                    filmStorage.addLike(userId % 10 + 1, userId);
+                    userStorage.addFriend(1L, userId);
+                    filmStorage.removeLike(userId % 10 + 1, userId);
+                }
+            });
+        } finally {
+            running.set(false);
+            readers.shutdown();
+        }
+
+        assertDoesNotThrow(() -> reader.get(10, TimeUnit.SECONDS));
+        assertTrue(filmStorage.getPopularFilms(10L).isEmpty());
+    }
+
+    @Test
+    void shouldReturnSnapshotsDetachedFromWriters() {
+        filmStorage.addLike(1L, 1L);
+        Film film = filmStorage.getFilmById(1L);
+        List<Film> page = filmStorage.getPage(0, 1);
+        userStorage.addFriend(1L, 2L);
+        User user = userStorage.getUserById(1L);
+
+        filmStorage.addLike(1L, 2L);
+        userStorage.addFriend(1L, 3L);
+        film.getLikes().add(99L);
+
+        assertEquals(Set.of(1L), page.get(0).getLikes());
+        assertEquals(Set.of(2L), user.getFriends());
+        assertEquals(Set.of(1L, 2L), filmStorage.getFilmById(1L).getLikes());
+    }
+
+    /**
+     * Множество лайков прочитанной копии не меняется, пока она сериализуется.
+     */
+    @Test
+    void shouldSerializeStableSnapshotsWhileWritersMutate() throws Exception {
+        ObjectMapper mapper = new ObjectMapper().findAndRegisterModules();
+        AtomicBoolean running = new AtomicBoolean(true);
+        ExecutorService readers = Executors.newSingleThreadExecutor();
+        Future<?> reader = readers.submit(() -> {
+            while (running.get()) {
+                for (Film film : filmStorage.getPage(0, 10)) {
+                    int likes = film.getLikes().size();
+                    String json = mapper.writeValueAsString(film);
+                    assertEquals(likes, mapper.readValue(json, Film.class).getLikes().size());
+                }
+            }
+            return null;
+        });
+
+        try {
+            runConcurrently(thread -> {
+                for (long userId = thread + 1; userId <= USERS; userId += THREADS) {
+                    filmStorage.addLike(userId % 10 + 1, userId);
+                }
+            });
+        } finally {
+            running.set(false);
+            readers.shutdown();
+        }
+
+        assertDoesNotThrow(() -> reader.get(10, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void shouldKeepLikesWhileFilmIsUpdatedConcurrently() throws Exception {
+        int updates = 200;
+        runConcurrently(thread -> {
+            if (thread % 2 == 0) {
+                for (long userId = thread / 2 + 1; userId <= USERS; userId += THREADS / 2) {
+                    filmStorage.addLike(1L, userId);
+                }
+            } else {
+                for (int i = 0; i < updates; i++) {
+                    filmStorage.updateFilm(Film.builder()
+                            .id(1L)
+                            .name("Film 1, правка " + i)
+                            .description("desc")
+                            .releaseDate(LocalDate.of(2000, 1, 1))
+                            .duration(100)
+                            .build());
+                }
+            }
+        });
+
+        Film film = filmStorage.getFilmById(1L);
+        assertEquals(USERS, film.getLikes().size());
+        assertEquals(1L + updates * THREADS / 2, film.getVersion());
+        assertEquals(USERS, filmStorage.totalLikes());
+    }
+
+    @Test
+    void shouldAcceptOneUpdatePerVersion() throws Exception {
+        AtomicInteger conflicts = new AtomicInteger();
+        runConcurrently(thread -> {
+            try {
+                userStorage.updateUser(User.builder()
+                        .id(1L)
+                        .version(1L)
+                        .email("thread" + thread + "@yandex.ru")
+                        .login("thread" + thread)
+                        .birthday(LocalDate.of(1990, 1, 1))
+                        .build());
+            } catch (ConflictException e) {
+                conflicts.incrementAndGet();
+            }
+        });
+
+        assertEquals(THREADS - 1, conflicts.get());
+        assertEquals(2L, userStorage.getUserById(1L).getVersion());
+    }
+
+    private void runConcurrently(ThreadTask task) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < THREADS; i++) {
+            final int thread = i;
+            futures.add(executor.submit(() -> {
+                start.await();
+                task.run(thread);
+                return null;
+            }));
+        }
+        start.countDown();
+        try {
+            for (Future<?> future : futures) {
+                future.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @FunctionalInterface
+    private interface ThreadTask {
+        void run(int thread) throws Exception;
+    }
+}
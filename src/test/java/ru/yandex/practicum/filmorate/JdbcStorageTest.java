@@ -0,0 +1,187 @@
+package ru.yandex.practicum.filmorate;
+
+import jakarta.validation.Validation;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+import ru.yandex.practicum.filmorate.exceptions.ConflictException;
+import ru.yandex.practicum.filmorate.exceptions.NotFoundException;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmLike;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.service.UserService;
+import ru.yandex.practicum.filmorate.storage.film.JdbcFilmStorage;
+import ru.yandex.practicum.filmorate.storage.user.JdbcUserStorage;
+import ru.yandex.practicum.filmorate.utils.IdGeneratorFactory;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JdbcStorageTest {
+    private EmbeddedDatabase database;
+    private JdbcUserStorage userStorage;
+    private JdbcFilmStorage filmStorage;
+
+    @BeforeEach
+    void setUp() {
+        database = new EmbeddedDatabaseBuilder()
+                .generateUniqueName(true)
+                .setType(EmbeddedDatabaseType.H2)
+                .addScript("schema.sql")
+                .build();
+        NamedParameterJdbcTemplate jdbc = new NamedParameterJdbcTemplate(database);
+        IdGeneratorFactory idGeneratorFactory = new IdGeneratorFactory("sequence", 0);
+        userStorage = new JdbcUserStorage(jdbc, idGeneratorFactory);
+        filmStorage = new JdbcFilmStorage(jdbc, idGeneratorFactory);
+    }
+
+    @AfterEach
+    void tearDown() {
+        database.shutdown();
+    }
+
+    @Test
+    void shouldCreateInBatchAndPageByKey() {
+        List<User> users = userStorage.createUsers(List.of(user("one"), user("two"), user("three")));
+
+        assertEquals(List.of(1L, 2L, 3L), users.stream().map(User::getId).toList());
+        assertEquals(List.of(2L, 3L), userStorage.getPage(1L, 10).stream().map(User::getId).toList());
+        assertEquals(List.of(1L), userStorage.getPage(0L, 1).stream().map(User::getId).toList());
+    }
+
+    @Test
+    void shouldCountLikesOnceAndOrderPopularFilms() {
+        long user1 = userStorage.createUser(user("one")).getId();
+        long user2 = userStorage.createUser(user("two")).getId();
+        long film1 = filmStorage.createFilm(film("First")).getId();
+        long film2 = filmStorage.createFilm(film("Second")).getId();
+
+        filmStorage.addLike(film1, user1);
+        filmStorage.addLike(film2, user1);
+        filmStorage.addLike(film2, user2);
+        filmStorage.addLike(film2, user2);
+
+        assertEquals(Set.of(user1, user2), filmStorage.getFilmById(film2).getLikes());
+        assertEquals(List.of(film2, film1), filmStorage.getPopularFilms(10L).stream().map(Film::getId).toList());
+
+        filmStorage.removeLike(film2, user1);
+        filmStorage.removeLike(film2, user2);
+        assertEquals(List.of(film1), filmStorage.getPopularFilms(10L).stream().map(Film::getId).toList());
+    }
+
+    @Test
+    void shouldSkipLikesOfMissingFilmInBatch() {
+        long user1 = userStorage.createUser(user("one")).getId();
+        long film1 = filmStorage.createFilm(film("First")).getId();
+
+        Set<Long> missing = filmStorage.addLikes(List.of(new FilmLike(film1, user1), new FilmLike(999L, user1)));
+
+        assertEquals(Set.of(999L), missing);
+        assertEquals(Set.of(user1), filmStorage.getFilmById(film1).getLikes());
+    }
+
+    @Test
+    void shouldPageLikedFilmsOfUser() {
+        long user1 = userStorage.createUser(user("one")).getId();
+        long user2 = userStorage.createUser(user("two")).getId();
+        long film1 = filmStorage.createFilm(film("First")).getId();
+        long film2 = filmStorage.createFilm(film("Second")).getId();
+        long film3 = filmStorage.createFilm(film("Third")).getId();
+        filmStorage.addLike(film3, user1);
+        filmStorage.addLike(film1, user1);
+        filmStorage.addLike(film2, user2);
+
+        assertEquals(List.of(film1), filmStorage.getLikedFilms(user1, 0, 1).stream().map(Film::getId).toList());
+        assertEquals(List.of(film3), filmStorage.getLikedFilms(user1, film1, 10).stream().map(Film::getId).toList());
+        assertEquals(Set.of(user1), filmStorage.getLikedFilms(user1, film1, 10).get(0).getLikes());
+    }
+
+    @Test
+    void shouldUpdateOnlyMatchingVersionAndKeepLikes() {
+        long user1 = userStorage.createUser(user("one")).getId();
+        Film film = filmStorage.createFilm(film("First"));
+        filmStorage.addLike(film.getId(), user1);
+
+        film.setName("First, правка");
+        Film updated = filmStorage.updateFilm(film);
+        assertEquals(2L, updated.getVersion());
+        assertEquals(Set.of(user1), updated.getLikes());
+
+        assertThrows(ConflictException.class, () -> filmStorage.updateFilm(film));
+        film.setId(999L);
+        assertThrows(NotFoundException.class, () -> filmStorage.updateFilm(film));
+    }
+
+    @Test
+    void shouldKeepFriendshipsSymmetricAndFindCommonFriends() {
+        long user1 = userStorage.createUser(user("one")).getId();
+        long user2 = userStorage.createUser(user("two")).getId();
+        long user3 = userStorage.createUser(user("three")).getId();
+        long common = userStorage.createUser(user("common")).getId();
+        userStorage.addFriend(user1, common);
+        userStorage.addFriend(user2, common);
+        userStorage.addFriend(user3, common);
+        userStorage.addFriend(user1, user2);
+
+        assertEquals(Set.of(user1, user2, user3), userStorage.getUserById(common).getFriends());
+        assertEquals(List.of(common), userStorage.getCommonFriends(user1, List.of(user2, user3))
+                .stream().map(User::getId).toList());
+        assertEquals(1, userStorage.countCommonFriends(user1, List.of(user2, user2)));
+
+        userStorage.removeFriend(common, user3);
+        assertEquals(0, userStorage.countCommonFriends(user1, List.of(user3)));
+        assertThrows(NotFoundException.class, () -> userStorage.getCommonFriends(user1, List.of(999L)));
+    }
+
+    @Test
+    void shouldRejectFriendshipWithUnknownUserBeforeWriting() {
+        UserService userService = new UserService(userStorage, filmStorage,
+                Validation.buildDefaultValidatorFactory().getValidator());
+        long user1 = userStorage.createUser(user("one")).getId();
+
+        assertThrows(NotFoundException.class, () -> userService.addFriend(user1, 999L));
+        assertThrows(NotFoundException.class, () -> userService.addFriend(999L, user1));
+        assertThrows(NotFoundException.class, () -> userService.removeFriend(user1, 999L));
+        assertTrue(userStorage.getFriends(user1).isEmpty());
+    }
+
+    @Test
+    void shouldCascadeUserDeletion() {
+        long user1 = userStorage.createUser(user("one")).getId();
+        long user2 = userStorage.createUser(user("two")).getId();
+        long film1 = filmStorage.createFilm(film("First")).getId();
+        filmStorage.addLike(film1, user1);
+        userStorage.addFriend(user1, user2);
+
+        userStorage.deleteUser(user1);
+
+        assertTrue(filmStorage.getFilmById(film1).getLikes().isEmpty());
+        assertTrue(filmStorage.getPopularFilms(10L).isEmpty());
+        assertTrue(userStorage.getFriends(user2).isEmpty());
+    }
+
+    private static User user(String login) {
+        return User.builder()
+                .email(login + "@yandex.ru")
+                .login(login)
+                .name(login)
+                .birthday(LocalDate.of(1990, 1, 1))
+                .build();
+    }
+
+    private static Film film(String name) {
+        return Film.builder()
+                .name(name)
+                .description("desc")
+                .releaseDate(LocalDate.of(2000, 1, 1))
+                .duration(100)
+                .build();
+    }
+}
@@ -0,0 +1,74 @@
+package ru.yandex.practicum.filmorate;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.serialization.FilmJsonSerializer;
+import ru.yandex.practicum.filmorate.serialization.UserJsonSerializer;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JsonSerializationTest {
+    private final ObjectMapper reflective = new ObjectMapper().findAndRegisterModules()
+            .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+    private final ObjectMapper custom = new ObjectMapper().findAndRegisterModules()
+            .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+            .registerModule(module());
+
+    @Test
+    void shouldWriteSameJsonAsReflectiveSerialization() throws Exception {
+        Film film = Film.builder()
+                .id(7L)
+                .version(3L)
+                .name("Фильм \"в кавычках\"")
+                .description("desc")
+                .releaseDate(LocalDate.of(2000, 1, 1))
+                .duration(100)
+                .build();
+        film.getLikes().addAll(List.of(0L, 1L, Long.MAX_VALUE));
+        User user = User.builder()
+                .id(1L)
+                .email("user@yandex.ru")
+                .login("user")
+                .build();
+        user.getFriends().add(2L);
+
+        assertEquals(reflective.readTree(reflective.writeValueAsString(film)),
+                reflective.readTree(custom.writeValueAsString(film)));
+        assertEquals(reflective.writeValueAsString(user), custom.writeValueAsString(user));
+        assertEquals(reflective.writeValueAsString(Film.builder().build()),
+                custom.writeValueAsString(Film.builder().build()));
+    }
+
+    @Test
+    void shouldRoundTripThroughCbor() throws Exception {
+        ObjectMapper cbor = new ObjectMapper(new CBORFactory()).findAndRegisterModules().registerModule(module());
+        Film film = Film.builder()
+                .id(1L)
+                .name("Film")
+                .releaseDate(LocalDate.of(1999, 12, 31))
+                .duration(90)
+                .build();
+        film.getLikes().addAll(List.of(5L, 6L));
+
+        Film restored = cbor.readValue(cbor.writeValueAsBytes(film), Film.class);
+
+        assertEquals(film, restored);
+        assertEquals(Set.of(5L, 6L), restored.getLikes());
+        assertTrue(cbor.writeValueAsBytes(film).length < custom.writeValueAsBytes(film).length);
+    }
+
+    private static SimpleModule module() {
+        return new SimpleModule()
+                .addSerializer(new FilmJsonSerializer())
+                .addSerializer(new UserJsonSerializer());
+    }
+}
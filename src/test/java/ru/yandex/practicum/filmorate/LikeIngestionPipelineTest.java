@@ -0,0 +1,134 @@
+package ru.yandex.practicum.filmorate;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.exceptions.NotFoundException;
+import ru.yandex.practicum.filmorate.exceptions.OverloadedException;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmLike;
+import ru.yandex.practicum.filmorate.service.LikeIngestionPipeline;
+import ru.yandex.practicum.filmorate.storage.film.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.persistence.MutationJournal;
+import ru.yandex.practicum.filmorate.utils.IdGeneratorFactory;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LikeIngestionPipelineTest {
+    private InMemoryFilmStorage filmStorage;
+    private LikeIngestionPipeline pipeline;
+
+    @BeforeEach
+    void setUp() {
+        filmStorage = new InMemoryFilmStorage(new IdGeneratorFactory("sequence", 0), MutationJournal.DISABLED);
+        for (int i = 0; i < 4; i++) {
+            filmStorage.createFilm(Film.builder()
+                    .name("Film " + i)
+                    .description("desc")
+                    .releaseDate(LocalDate.of(2000, 1, 1))
+                    .duration(100)
+                    .build());
+        }
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        if (pipeline != null) {
+            pipeline.stop();
+        }
+    }
+
+    @Test
+    void shouldApplyAllLikesFromConcurrentProducers() throws Exception {
+        pipeline = new LikeIngestionPipeline(filmStorage, 2, 1024, 64);
+        pipeline.start();
+        List<CompletableFuture<Void>> applied = new ArrayList<>();
+        for (long userId = 1; userId <= 500; userId++) {
+            applied.add(pipeline.submit(1L + userId % 4, userId, true));
+        }
+        CompletableFuture.allOf(applied.toArray(CompletableFuture[]::new)).get(10, TimeUnit.SECONDS);
+
+        for (long filmId = 1; filmId <= 4; filmId++) {
+            assertEquals(125, filmStorage.getFilmById(filmId).getLikes().size());
+        }
+    }
+
+    @Test
+    void shouldKeepLastEventOfCoalescedPair() throws Exception {
+        pipeline = new LikeIngestionPipeline(filmStorage, 1, 1024, 1024);
+        pipeline.submit(1L, 10L, true);
+        pipeline.submit(1L, 10L, false);
+        pipeline.submit(1L, 11L, false);
+        CompletableFuture<Void> last = pipeline.submit(1L, 11L, true);
+        pipeline.start();
+        last.get(10, TimeUnit.SECONDS);
+
+        assertEquals(Set.of(11L), filmStorage.getFilmById(1L).getLikes());
+    }
+
+    @Test
+    void shouldRejectWhenBufferIsFull() {
+        pipeline = new LikeIngestionPipeline(filmStorage, 1, 2, 16);
+        pipeline.submit(1L, 1L, true);
+        pipeline.submit(1L, 2L, true);
+
+        assertThrows(OverloadedException.class, () -> pipeline.submit(1L, 3L, true));
+    }
+
+    @Test
+    void shouldRejectEventsAfterStop() throws Exception {
+        pipeline = new LikeIngestionPipeline(filmStorage, 1, 16, 16);
+        pipeline.start();
+        pipeline.submit(1L, 1L, true).get(10, TimeUnit.SECONDS);
+        pipeline.stop();
+
+        assertThrows(OverloadedException.class, () -> pipeline.submit(1L, 2L, true));
+        assertEquals(Set.of(1L), filmStorage.getFilmById(1L).getLikes());
+    }
+
+    @Test
+    void shouldFailOnlyEventsOfMissingFilm() throws Exception {
+        pipeline = new LikeIngestionPipeline(filmStorage, 1, 16, 16);
+        CompletableFuture<Void> missing = pipeline.submit(999L, 1L, true);
+        CompletableFuture<Void> existing = pipeline.submit(1L, 1L, true);
+        pipeline.start();
+
+        existing.get(10, TimeUnit.SECONDS);
+        ExecutionException e = assertThrows(ExecutionException.class, () -> missing.get(10, TimeUnit.SECONDS));
+        assertInstanceOf(NotFoundException.class, e.getCause());
+        assertEquals(Set.of(1L), filmStorage.getFilmById(1L).getLikes());
+    }
+
+    @Test
+    void shouldCompleteEventsByTheirOwnGroup() throws Exception {
+        filmStorage = new InMemoryFilmStorage(new IdGeneratorFactory("sequence", 0), MutationJournal.DISABLED) {
+            @Override
+            public Set<Long> removeLikes(Collection<FilmLike> likes) {
+                throw new IllegalStateException("Хранилище недоступно");
+            }
+        };
+        filmStorage.createFilm(Film.builder()
+                .name("Film")
+                .releaseDate(LocalDate.of(2000, 1, 1))
+                .duration(100)
+                .build());
+        pipeline = new LikeIngestionPipeline(filmStorage, 1, 16, 16);
+        CompletableFuture<Void> like = pipeline.submit(1L, 1L, true);
+        CompletableFuture<Void> unlike = pipeline.submit(1L, 2L, false);
+        pipeline.start();
+
+        like.get(10, TimeUnit.SECONDS);
+        ExecutionException e = assertThrows(ExecutionException.class, () -> unlike.get(10, TimeUnit.SECONDS));
+        assertInstanceOf(IllegalStateException.class, e.getCause());
+        assertEquals(Set.of(1L), filmStorage.getFilmById(1L).getLikes());
+    }
+}
@@ -0,0 +1,187 @@
+package ru.yandex.practicum.filmorate;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.utils.LongHashSet;
+import ru.yandex.practicum.filmorate.utils.ShardedLongSet;
+
+import java.time.LocalDate;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LongHashSetTest {
+
+    @Test
+    void shouldBehaveLikeHashSet() {
+        assertBehavesLikeHashSet(new LongHashSet());
+        assertBehavesLikeHashSet(new ShardedLongSet(8));
+    }
+
+    @Test
+    void shouldForwardToShardedSetAfterPromotion() {
+        LongHashSet set = new LongHashSet();
+        for (long value = 0; value < 100; value++) {
+            set.add(value);
+        }
+
+        LongHashSet sharded = set.shard(4);
+        set.add(1_000L);
+        set.remove(0L);
+
+        assertInstanceOf(ShardedLongSet.class, sharded);
+        assertSame(sharded, set.shard(4));
+        assertSame(sharded, sharded.shard(8));
+        assertEquals(100, set.size());
+        assertEquals(100, sharded.size());
+        assertTrue(sharded.contains(1_000L));
+        assertFalse(sharded.contains(0L));
+        assertEquals(set, sharded);
+        assertEquals(100, sharded.toLongArray().length);
+        LongHashSet snapshot = set.snapshot();
+        assertInstanceOf(ShardedLongSet.class, snapshot);
+        assertEquals(sharded, snapshot);
+        sharded.add(2_000L);
+        snapshot.remove(1L);
+        assertFalse(snapshot.contains(2_000L));
+        assertTrue(sharded.contains(1L));
+    }
+
+    @Test
+    void shouldNotLoseWritesDuringPromotion() throws Exception {
+        LongHashSet set = new LongHashSet();
+        Thread[] writers = new Thread[4];
+        for (int i = 0; i < writers.length; i++) {
+            long first = i;
+            writers[i] = new Thread(() -> {
+                for (long value = first; value < 40_000; value += writers.length) {
+                    set.add(value);
+                }
+            });
+            writers[i].start();
+        }
+        LongHashSet sharded = set.shard(16);
+        for (Thread writer : writers) {
+            writer.join();
+        }
+
+        assertEquals(40_000, sharded.size());
+        assertEquals(40_000, set.size());
+    }
+
+    @Test
+    void shouldReadConsistentlyDuringPromotion() throws Exception {
+        for (int round = 0; round < 50; round++) {
+            LongHashSet set = new LongHashSet();
+            for (long value = 0; value < 1_000; value += 2) {
+                set.add(value);
+            }
+            AtomicBoolean failed = new AtomicBoolean();
+            Thread[] readers = new Thread[4];
+            for (int i = 0; i < readers.length; i++) {
+                readers[i] = new Thread(() -> {
+                    // чётные значения есть всегда, нечётные до 1000 не появляются никогда
+                    for (int pass = 0; pass < 20; pass++) {
+                        for (long value = 0; value < 1_000; value++) {
+                            if (set.contains(value) != (value % 2 == 0)) {
+                                failed.set(true);
+                            }
+                        }
+                        if (set.toLongArray().length < 500 || set.snapshot().size() < 500) {
+                            failed.set(true);
+                        }
+                    }
+                });
+                readers[i].start();
+            }
+            Thread writer = new Thread(() -> {
+                for (long value = 1_000; value < 3_000; value++) {
+                    set.add(value);
+                }
+            });
+            writer.start();
+            LongHashSet sharded = set.shard(8);
+            writer.join();
+            for (Thread reader : readers) {
+                reader.join();
+            }
+
+            assertFalse(failed.get());
+            assertEquals(2_500, set.size());
+            assertEquals(2_500, set.toLongArray().length);
+            assertEquals(sharded, set.snapshot());
+        }
+    }
+
+    private static void assertBehavesLikeHashSet(LongHashSet set) {
+        Random random = new Random(42);
+        Set<Long> expected = new HashSet<>();
+
+        for (int i = 0; i < 200_000; i++) {
+            long value = random.nextInt(2_000) - 10;
+            if (random.nextBoolean()) {
+                assertEquals(expected.add(value), set.add(value));
+            } else {
+                assertEquals(expected.remove(value), set.remove(value));
+            }
+        }
+
+        assertEquals(expected.size(), set.size());
+        assertEquals(expected, set);
+        for (long value = -10; value < 2_000; value++) {
+            assertEquals(expected.contains(value), set.contains(value));
+        }
+    }
+
+    @Test
+    void shouldIterateOverSnapshot() {
+        LongHashSet set = new LongHashSet();
+        set.add(1L);
+        set.add(2L);
+
+        for (Long value : set) {
+            set.add(value + 100);
+        }
+
+        assertEquals(Set.of(1L, 2L, 101L, 102L), set);
+    }
+
+    @Test
+    void shouldTakeIndependentSnapshot() {
+        LongHashSet set = new LongHashSet();
+        for (long value = 0; value < 100; value++) {
+            set.add(value);
+        }
+
+        LongHashSet snapshot = set.snapshot();
+        set.remove(0L);
+        set.add(1_000L);
+        snapshot.add(2_000L);
+
+        assertEquals(101, snapshot.size());
+        assertTrue(snapshot.contains(0L));
+        assertFalse(snapshot.contains(1_000L));
+        assertFalse(set.contains(2_000L));
+    }
+
+    @Test
+    void shouldSerializeAsJsonArray() throws Exception {
+        ObjectMapper mapper = new ObjectMapper().findAndRegisterModules();
+        Film film = Film.builder()
+                .name("Film")
+                .releaseDate(LocalDate.of(2000, 1, 1))
+                .duration(100)
+                .build();
+        film.getLikes().add(7L);
+
+        String json = mapper.writeValueAsString(film);
+        Film restored = mapper.readValue(json.replace("[7]", "[7,8]"), Film.class);
+
+        assertTrue(json.contains("\"likes\":[7]"));
+        assertEquals(Set.of(7L, 8L), restored.getLikes());
+    }
+}
@@ -0,0 +1,42 @@
+package ru.yandex.practicum.filmorate;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.observability.AutoConfigureObservability;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@AutoConfigureObservability
+class MetricsTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Test
+    void shouldExposeTimersGaugesAndErrorCounter() throws Exception {
+        mockMvc.perform(post("/films")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{ \"name\": \"Metered\", \"description\": \"d\", \"releaseDate\": \"2000-01-01\", \"duration\": 90 }"))
+                .andExpect(status().isOk());
+        mockMvc.perform(delete("/films/{id}", 999L))
+                .andExpect(status().isNotFound());
+
+        mockMvc.perform(get("/actuator/prometheus"))
+                .andExpect(status().isOk())
+                .andExpect(content().string(containsString(
+                        "filmorate_service_seconds_count{class=\"FilmService\",method=\"createFilm\",outcome=\"success\"")))
+                .andExpect(content().string(containsString("filmorate_storage_seconds_bucket{class=\"InMemoryFilmStorage\"")))
+                .andExpect(content().string(containsString("filmorate_films ")))
+                .andExpect(content().string(containsString("filmorate_likes ")))
+                .andExpect(content().string(containsString("filmorate_errors_total{type=\"not_found\"")));
+    }
+}
@@ -0,0 +1,190 @@
+package ru.yandex.practicum.filmorate;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.exceptions.ConflictException;
+import ru.yandex.practicum.filmorate.exceptions.NotFoundException;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.film.OffHeapFilmStorage;
+import ru.yandex.practicum.filmorate.storage.offheap.OffHeapRecordStore;
+import ru.yandex.practicum.filmorate.storage.user.OffHeapUserStorage;
+import ru.yandex.practicum.filmorate.utils.IdGeneratorFactory;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OffHeapStorageTest {
+    private OffHeapFilmStorage filmStorage;
+    private OffHeapUserStorage userStorage;
+
+    @BeforeEach
+    void setUp() {
+        IdGeneratorFactory idGeneratorFactory = new IdGeneratorFactory("sequence", 0);
+        filmStorage = new OffHeapFilmStorage(idGeneratorFactory, 4096);
+        userStorage = new OffHeapUserStorage(idGeneratorFactory, 4096);
+    }
+
+    @Test
+    void shouldKeepRecordsOrderedAndCountGarbage() {
+        OffHeapRecordStore store = new OffHeapRecordStore(64);
+        for (long id : new long[]{5, 1, 3, 2, 4}) {
+            assertTrue(store.put(id, text("r" + id)));
+        }
+        assertFalse(store.put(3, text("r3 again")));
+        assertEquals("r3 again", store.get(3, OffHeapStorageTest::decodeText));
+        assertTrue(store.garbageBytes() > 0);
+
+        assertEquals("r2", store.remove(2, OffHeapStorageTest::decodeText));
+        assertNull(store.remove(2, OffHeapStorageTest::decodeText));
+        assertFalse(store.contains(2));
+        assertEquals(List.of("r1", "r3 again", "r4"), store.page(0, 3, OffHeapStorageTest::decodeText));
+        assertEquals(List.of("r3 again", "r4", "r5"), store.page(2, 10, OffHeapStorageTest::decodeText));
+        assertEquals(4, store.size());
+
+        assertThrows(IllegalStateException.class, () -> store.update(4, record -> {
+            throw new IllegalStateException();
+        }));
+        assertEquals("r4", store.get(4, OffHeapStorageTest::decodeText));
+        assertFalse(store.update(2, record -> text("none")));
+    }
+
+    @Test
+    void shouldGrowChunksForRecordsLargerThanChunk() {
+        OffHeapRecordStore store = new OffHeapRecordStore(16);
+        String large = "x".repeat(100);
+        store.put(1, text(large));
+        store.put(2, text("small"));
+
+        assertEquals(large, store.get(1, OffHeapStorageTest::decodeText));
+        assertEquals("small", store.get(2, OffHeapStorageTest::decodeText));
+        assertTrue(store.allocatedBytes() >= 100 + 16);
+    }
+
+    @Test
+    void shouldStoreFilmFieldsLikesAndVersions() {
+        long userId = userStorage.createUser(user("one")).getId();
+        Film created = filmStorage.createFilm(film("Фильм"));
+        filmStorage.createFilm(Film.builder().name("Без даты").build());
+
+        filmStorage.addLike(created.getId(), userId);
+        Film updated = filmStorage.updateFilm(Film.builder()
+                .id(created.getId())
+                .version(1L)
+                .name("Новое название")
+                .description(null)
+                .releaseDate(LocalDate.of(1999, 12, 31))
+                .duration(90)
+                .build());
+
+        Film stored = filmStorage.getFilmById(created.getId());
+        assertEquals(2L, updated.getVersion());
+        assertEquals(updated, stored);
+        assertNull(stored.getDescription());
+        assertEquals(Set.of(userId), stored.getLikes());
+        assertNull(filmStorage.getFilmById(2L).getReleaseDate());
+        assertNull(filmStorage.getFilmById(2L).getDuration());
+        assertThrows(ConflictException.class, () -> filmStorage.updateFilm(Film.builder()
+                .id(created.getId()).version(1L).name("Устаревшее").build()));
+        assertThrows(NotFoundException.class, () -> filmStorage.updateFilm(Film.builder().id(99L).name("Нет").build()));
+    }
+
+    @Test
+    void shouldOrderPopularFilmsAndDropLikesOfDeletedFilm() {
+        List<Long> films = LongStream.range(0, 3).mapToObj(i -> filmStorage.createFilm(film("Фильм " + i)).getId())
+                .toList();
+        filmStorage.addLike(films.get(2), 1L);
+        filmStorage.addLike(films.get(2), 2L);
+        filmStorage.addLike(films.get(1), 1L);
+
+        assertEquals(List.of(films.get(2), films.get(1)), ids(filmStorage.getPopularFilms(10L)));
+        assertEquals(List.of(films.get(1), films.get(2)), ids(filmStorage.getLikedFilms(1L, 0, 10)));
+
+        filmStorage.deleteFilm(films.get(2));
+        assertEquals(1, filmStorage.totalLikes());
+        assertEquals(List.of(films.get(1)), ids(filmStorage.getPopularFilms(10L)));
+        assertThrows(NotFoundException.class, () -> filmStorage.addLike(films.get(2), 1L));
+
+        filmStorage.removeLikesOfUser(1L);
+        assertEquals(0, filmStorage.totalLikes());
+        assertEquals(List.of(films.get(0), films.get(1)), ids(List.copyOf(filmStorage.getAll())));
+    }
+
+    @Test
+    void shouldIterateCatalogueAcrossPages() {
+        for (int i = 0; i < 2500; i++) {
+            filmStorage.createFilm(film("Фильм " + i));
+        }
+        filmStorage.deleteFilm(1024L);
+
+        List<Long> ids = ids(List.copyOf(filmStorage.getAll()));
+        assertEquals(2499, ids.size());
+        assertEquals(2499, filmStorage.size());
+        assertFalse(ids.contains(1024L));
+        assertEquals(2500L, ids.get(ids.size() - 1));
+    }
+
+    @Test
+    void shouldKeepFriendshipSymmetricAndCleanUpOnDelete() {
+        long one = userStorage.createUser(user("one")).getId();
+        long two = userStorage.createUser(user("two")).getId();
+        long three = userStorage.createUser(user("three")).getId();
+
+        userStorage.addFriend(one, three);
+        userStorage.addFriend(two, three);
+        assertEquals(Set.of(one, two), userStorage.getUserById(three).getFriends());
+        assertEquals(List.of(three), userStorage.getCommonFriends(one, List.of(two)).stream()
+                .map(User::getId).toList());
+        assertEquals(2, userStorage.totalFriendships());
+
+        userStorage.deleteUser(three);
+        assertTrue(userStorage.getUserById(one).getFriends().isEmpty());
+        assertEquals(0, userStorage.totalFriendships());
+        assertThrows(NotFoundException.class, () -> userStorage.addFriend(one, three));
+        assertTrue(userStorage.getUserById(one).getFriends().isEmpty());
+
+        User updated = userStorage.updateUser(User.builder()
+                .id(one).version(1L).email("new@mail.ru").login("new").build());
+        assertEquals(2L, updated.getVersion());
+        assertEquals("new@mail.ru", userStorage.getUserById(one).getEmail());
+        assertNull(userStorage.getUserById(one).getName());
+    }
+
+    private static byte[] text(String value) {
+        return OffHeapRecordStore.utf8(value);
+    }
+
+    private static String decodeText(ByteBuffer record) {
+        byte[] bytes = new byte[record.remaining()];
+        record.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static Film film(String name) {
+        return Film.builder()
+                .name(name)
+                .description("Описание " + name)
+                .releaseDate(LocalDate.of(2000, 1, 1))
+                .duration(100)
+                .build();
+    }
+
+    private static User user(String login) {
+        return User.builder()
+                .email(login + "@mail.ru")
+                .login(login)
+                .name(login)
+                .birthday(LocalDate.of(1990, 1, 1))
+                .build();
+    }
+
+    private static List<Long> ids(List<Film> films) {
+        return films.stream().map(Film::getId).toList();
+    }
+}
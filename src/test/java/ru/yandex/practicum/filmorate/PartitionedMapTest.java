@@ -0,0 +1,88 @@
+package ru.yandex.practicum.filmorate;
+
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.storage.film.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.persistence.MutationJournal;
+import ru.yandex.practicum.filmorate.utils.IdGeneratorFactory;
+import ru.yandex.practicum.filmorate.utils.PartitionedMap;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PartitionedMapTest {
+
+    @Test
+    void shouldMergePartitionsInIdOrder() {
+        PartitionedMap<String> map = new PartitionedMap<>(8);
+        for (long id = 1; id <= 1000; id++) {
+            map.put(id, "v" + id);
+        }
+        map.remove(500L);
+
+        List<String> all = map.valuesAfter(Long.MIN_VALUE).toList();
+        assertEquals(999, all.size());
+        assertEquals("v1", all.get(0));
+        assertEquals("v1000", all.get(998));
+        assertEquals(List.of("v499", "v501", "v502"), map.valuesAfter(498).limit(3).toList());
+        assertNull(map.get(500L));
+        assertTrue(map.containsKey(501L));
+    }
+
+    @Test
+    void shouldSpreadSequentialIdsAcrossPartitions() {
+        int[] counts = new int[16];
+        for (long id = 1; id <= 16_000; id++) {
+            counts[PartitionedMap.partitionOf(id, 16)]++;
+        }
+        for (int count : counts) {
+            assertTrue(count > 800 && count < 1200, "неравномерное распределение: " + count);
+        }
+    }
+
+    @Test
+    void shouldRejectNonPositivePartitionCount() {
+        assertThrows(IllegalArgumentException.class, () -> new PartitionedMap<String>(0));
+    }
+
+    @Test
+    void shouldReturnSamePopularFilmsAndPagesAsSinglePartition() {
+        InMemoryFilmStorage single = storage(1);
+        InMemoryFilmStorage partitioned = storage(16);
+        Random random = new Random(42);
+        for (int i = 0; i < 20_000; i++) {
+            long filmId = 1 + random.nextInt(random.nextBoolean() ? 20 : 500);
+            long userId = 1 + random.nextInt(300);
+            single.addLike(filmId, userId);
+            partitioned.addLike(filmId, userId);
+        }
+
+        for (long count : new long[]{1, 10, 300, 600}) {
+            assertEquals(ids(single.getPopularFilms(count)), ids(partitioned.getPopularFilms(count)));
+        }
+        assertEquals(ids(single.getPage(123, 50)), ids(partitioned.getPage(123, 50)));
+        assertEquals(LongStream.rangeClosed(1, 500).boxed().toList(), ids(List.copyOf(partitioned.getAll())));
+    }
+
+    private static InMemoryFilmStorage storage(int partitions) {
+        InMemoryFilmStorage storage = new InMemoryFilmStorage(
+                new IdGeneratorFactory("sequence", 0), MutationJournal.DISABLED, partitions);
+        for (int i = 0; i < 500; i++) {
+            storage.createFilm(Film.builder()
+                    .name("Film " + i)
+                    .description("desc")
+                    .releaseDate(LocalDate.of(2000, 1, 1))
+                    .duration(100)
+                    .build());
+        }
+        return storage;
+    }
+
+    private static List<Long> ids(List<Film> films) {
+        return films.stream().map(Film::getId).toList();
+    }
+}
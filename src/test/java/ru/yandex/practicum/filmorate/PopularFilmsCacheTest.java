@@ -0,0 +1,85 @@
+package ru.yandex.practicum.filmorate;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.service.PopularFilmsCache;
+import ru.yandex.practicum.filmorate.storage.film.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.persistence.MutationJournal;
+import ru.yandex.practicum.filmorate.utils.IdGeneratorFactory;
+
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PopularFilmsCacheTest {
+    private InMemoryFilmStorage filmStorage;
+    private PopularFilmsCache cache;
+
+    @BeforeEach
+    void setUp() {
+        filmStorage = new InMemoryFilmStorage(new IdGeneratorFactory("sequence", 0), MutationJournal.DISABLED);
+        cache = new PopularFilmsCache(filmStorage, new ObjectMapper().findAndRegisterModules());
+        for (int i = 0; i < 4; i++) {
+            filmStorage.createFilm(Film.builder()
+                    .name("Film " + i)
+                    .description("desc")
+                    .releaseDate(LocalDate.of(2000, 1, 1))
+                    .duration(100)
+                    .build());
+        }
+        // фильм 1 — 3 лайка, фильм 2 — 2 лайка, фильмы 3 и 4 без лайков
+        for (long userId = 1; userId <= 3; userId++) {
+            filmStorage.addLike(1L, userId);
+        }
+        filmStorage.addLike(2L, 1L);
+        filmStorage.addLike(2L, 2L);
+    }
+
+    @Test
+    void shouldServeSameResponseWhileTopIsUnchanged() {
+        PopularFilmsCache.Response first = cache.get(2);
+
+        // фильм 3 поднимается до 1 лайка, фильм 4 до 2, но при равенстве фильм 2 впереди по id
+        filmStorage.addLike(3L, 1L);
+        filmStorage.addLike(4L, 1L);
+        filmStorage.addLike(4L, 2L);
+
+        assertSame(first, cache.get(2));
+    }
+
+    @Test
+    void shouldRecomputeWhenFilmCanEnterTop() {
+        PopularFilmsCache.Response first = cache.get(2);
+
+        filmStorage.addLike(3L, 1L);
+        filmStorage.addLike(3L, 2L);
+        filmStorage.addLike(3L, 3L);
+
+        PopularFilmsCache.Response second = cache.get(2);
+        assertNotSame(first, second);
+        assertNotEquals(first.version(), second.version());
+        assertTrue(second.lastModified() > first.lastModified());
+        assertTrue(new String(second.body()).contains("\"id\":3"));
+    }
+
+    @Test
+    void shouldRecomputeWhenFilmOfTopChanges() {
+        PopularFilmsCache.Response first = cache.get(2);
+
+        filmStorage.removeLike(2L, 1L);
+
+        assertNotSame(first, cache.get(2));
+    }
+
+    @Test
+    void shouldRecomputeOnAnyLikeWhileTopIsNotFull() {
+        PopularFilmsCache.Response first = cache.get(10);
+
+        filmStorage.addLike(4L, 1L);
+
+        assertTrue(new String(cache.get(10).body()).contains("\"id\":4"));
+        assertNotSame(first, cache.get(10));
+    }
+}
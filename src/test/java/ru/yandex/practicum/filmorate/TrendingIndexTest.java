@@ -0,0 +1,127 @@
+package ru.yandex.practicum.filmorate;
+
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.storage.film.TrendWindow;
+import ru.yandex.practicum.filmorate.storage.film.TrendingIndex;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TrendingIndexTest {
+    private final AtomicLong now = new AtomicLong(1_700_000_000_000L);
+    private final TrendingIndex index = new TrendingIndex(now::get);
+
+    @Test
+    void shouldRankRecentLikesAboveOldBlockbuster() {
+        like(1L, 100);
+        advance(Duration.ofDays(2));
+        like(2L, 5);
+
+        assertEquals(List.of(2L), index.top(TrendWindow.HOUR, 10));
+        assertEquals(List.of(2L), index.top(TrendWindow.DAY, 10));
+        assertEquals(List.of(1L, 2L), index.top(TrendWindow.WEEK, 10));
+        assertEquals(List.of(1L), index.top(TrendWindow.WEEK, 1));
+    }
+
+    @Test
+    void shouldExpireLikesAsWindowsSlide() {
+        like(1L, 3);
+
+        advance(Duration.ofMinutes(59));
+        assertEquals(List.of(1L), index.top(TrendWindow.HOUR, 10));
+        advance(Duration.ofMinutes(2));
+        assertEquals(List.of(), index.top(TrendWindow.HOUR, 10));
+        assertEquals(List.of(1L), index.top(TrendWindow.DAY, 10));
+
+        advance(Duration.ofHours(24));
+        assertEquals(List.of(), index.top(TrendWindow.DAY, 10));
+        assertEquals(List.of(1L), index.top(TrendWindow.WEEK, 10));
+
+        advance(Duration.ofDays(7));
+        assertEquals(List.of(), index.top(TrendWindow.WEEK, 10));
+    }
+
+    @Test
+    void shouldCancelMostRecentLikes() {
+        like(1L, 2);
+        like(2L, 2);
+        index.record(1L, -1);
+
+        assertEquals(List.of(2L, 1L), index.top(TrendWindow.HOUR, 10));
+
+        advance(Duration.ofMinutes(1));
+        index.record(2L, -1);
+        index.remove(1L);
+
+        assertEquals(List.of(2L), index.top(TrendWindow.WEEK, 10));
+        assertEquals(List.of(2L), index.top(TrendWindow.HOUR, 10));
+    }
+
+    @Test
+    void shouldCancelLikeFromEarlierHourWhenRecentOnesAreGone() {
+        like(1L, 2);
+        like(2L, 1);
+        advance(Duration.ofHours(3));
+        index.record(1L, -1);
+
+        assertEquals(List.of(1L, 2L), index.top(TrendWindow.DAY, 10));
+        index.record(1L, -1);
+        assertEquals(List.of(2L), index.top(TrendWindow.WEEK, 10));
+    }
+
+    @Test
+    void shouldNotPumpWindowsByRelikingInLaterMinutes() {
+        like(1L, 1);
+        like(2L, 2);
+        for (int i = 0; i < 10; i++) {
+            advance(Duration.ofMinutes(1));
+            index.record(1L, -1);
+            index.record(1L, 1);
+        }
+        advance(Duration.ofHours(2));
+        index.record(1L, -1);
+        index.record(1L, 1);
+
+        assertEquals(List.of(1L), index.top(TrendWindow.HOUR, 10));
+        assertEquals(List.of(2L, 1L), index.top(TrendWindow.DAY, 10));
+        assertEquals(List.of(2L, 1L), index.top(TrendWindow.WEEK, 10));
+    }
+
+    @Test
+    void shouldCountConcurrentLikesOfOneFilm() throws Exception {
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            Thread thread = new Thread(() -> {
+                for (int like = 0; like < 10_000; like++) {
+                    index.record(7L, 1);
+                    if (like % 1_000 == 0) {
+                        index.top(TrendWindow.HOUR, 5);
+                    }
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        like(8L, 80_000);
+        index.record(9L, 79_999);
+
+        assertEquals(List.of(7L, 8L, 9L), index.top(TrendWindow.DAY, 3));
+    }
+
+    private void like(long filmId, int likes) {
+        for (int i = 0; i < likes; i++) {
+            index.record(filmId, 1);
+        }
+    }
+
+    private void advance(Duration duration) {
+        now.addAndGet(duration.toMillis());
+    }
+}
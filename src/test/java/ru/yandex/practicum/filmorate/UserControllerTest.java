@@ -8,12 +8,14 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.http.MediaType;
+import org.springframework.test.annotation.DirtiesContext;
 import org.springframework.test.web.servlet.MockMvc;
 import ru.yandex.practicum.filmorate.model.User;
 
 import java.time.LocalDate;
 
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
@@ -252,6 +254,26 @@ class UserControllerTest {
                 .andExpect(jsonPath("$[0].id").value(user3.getId()));
     }
 
+    @Test
+    void shouldGetCommonFriendsOfSeveralUsers() throws Exception {
+        User user4 = createUser("user4@yandex.ru", "user4", "User Four", LocalDate.of(1990, 1, 4));
+        mockMvc.perform(put("/users/{id}/friends/{friendId}", user1.getId(), user3.getId())).andExpect(status().isOk());
+        mockMvc.perform(put("/users/{id}/friends/{friendId}", user2.getId(), user3.getId())).andExpect(status().isOk());
+        mockMvc.perform(put("/users/{id}/friends/{friendId}", user4.getId(), user3.getId())).andExpect(status().isOk());
+        mockMvc.perform(put("/users/{id}/friends/{friendId}", user1.getId(), user2.getId())).andExpect(status().isOk());
+
+        mockMvc.perform(get("/users/{id}/friends/common", user1.getId())
+                        .param("with", user2.getId() + "," + user4.getId()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(1))
+                .andExpect(jsonPath("$[0].id").value(user3.getId()));
+
+        mockMvc.perform(get("/users/{id}/friends/common/count", user1.getId())
+                        .param("with", String.valueOf(user4.getId())))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$").value(1));
+    }
+
     @Test
     void shouldReturnEmptyListWhenNoCommonFriends() throws Exception {
         mockMvc.perform(put("/users/{id}/friends/{friendId}", user1.getId(), user2.getId())).andExpect(status().isOk());
@@ -275,4 +297,142 @@ class UserControllerTest {
         mockMvc.perform(put("/users/1/friends/999"))
                 .andExpect(status().isNotFound());
     }
-}
\ No newline at end of file
+
+    @Test
+    void shouldPageUsersByCursor() throws Exception {
+        mockMvc.perform(get("/users").param("after", String.valueOf(user1.getId())).param("limit", "2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(2))
+                .andExpect(jsonPath("$[0].id").value(user2.getId()))
+                .andExpect(jsonPath("$[1].id").value(user3.getId()))
+                .andExpect(header().string("X-Next-Cursor", String.valueOf(user3.getId())));
+    }
+
+    @Test
+    void shouldAddFriendsInBatch() throws Exception {
+        String friendships = "[{ \"userId\": %d, \"friendId\": %d }, { \"userId\": %d, \"friendId\": %d },"
+                .formatted(user1.getId(), user2.getId(), user1.getId(), user3.getId())
+                + " { \"userId\": %d }]".formatted(user1.getId());
+
+        mockMvc.perform(put("/users/friends/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(friendships))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].status").value("APPLIED"))
+                .andExpect(jsonPath("$[1].status").value("APPLIED"))
+                .andExpect(jsonPath("$[2].status").value("INVALID"));
+
+        mockMvc.perform(get("/users/{id}/friends", user1.getId()))
+                .andExpect(jsonPath("$.length()").value(2));
+        mockMvc.perform(get("/users/{id}/friends", user3.getId()))
+                .andExpect(jsonPath("$[0].id").value(user1.getId()));
+    }
+
+    @Test
+    void shouldReturn400WhenFriendshipBatchTooLarge() throws Exception {
+        String friendship = "{ \"userId\": %d, \"friendId\": %d }".formatted(user1.getId(), user2.getId());
+
+        mockMvc.perform(put("/users/friends/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("[" + (friendship + ",").repeat(10_000) + friendship + "]"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/users/{id}/friends", user1.getId()))
+                .andExpect(jsonPath("$.length()").value(0));
+    }
+
+    @Test
+    void shouldGetUserById() throws Exception {
+        mockMvc.perform(get("/users/{id}", user2.getId()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.id").value(user2.getId()))
+                .andExpect(jsonPath("$.login").value("user2"));
+        mockMvc.perform(get("/users/{id}", 999_999))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void shouldUpdateUserOnlyWithMatchingVersion() throws Exception {
+        mockMvc.perform(put("/users/{id}/friends/{friendId}", user1.getId(), user2.getId()))
+                .andExpect(status().isOk());
+        String etag = mockMvc.perform(get("/users/{id}", user1.getId()))
+                .andExpect(status().isOk())
+                .andReturn()
+                .getResponse()
+                .getHeader("ETag");
+        String update = ("{ \"id\": %d, \"login\": \"renamed\", \"email\": \"renamed@yandex.ru\", "
+                + "\"birthday\": \"1990-01-01\", \"friends\": [] }").formatted(user1.getId());
+
+        mockMvc.perform(put("/users")
+                        .header("If-Match", etag)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(update))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.login").value("renamed"))
+                .andExpect(jsonPath("$.friends.length()").value(1));
+
+        mockMvc.perform(put("/users")
+                        .header("If-Match", etag)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(update))
+                .andExpect(status().isConflict());
+    }
+
+    // фильмы этого теста остались бы в общем контексте и попали бы в списки FilmControllerTest
+    @Test
+    @DirtiesContext(methodMode = DirtiesContext.MethodMode.AFTER_METHOD)
+    void shouldPageFavouriteFilms() throws Exception {
+        long[] films = new long[4];
+        for (int i = 0; i < films.length; i++) {
+            String result = mockMvc.perform(post("/films")
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content("{ \"name\": \"Favourite %d\", \"description\": \"d\", ".formatted(i)
+                                    + "\"releaseDate\": \"2000-01-01\", \"duration\": 90 }"))
+                    .andExpect(status().isOk())
+                    .andReturn().getResponse().getContentAsString();
+            films[i] = new ObjectMapper().readTree(result).get("id").asLong();
+            mockMvc.perform(put("/films/{id}/like/{userId}", films[i], user1.getId()))
+                    .andExpect(status().isOk());
+        }
+        mockMvc.perform(delete("/films/{id}/like/{userId}", films[1], user1.getId()))
+                .andExpect(status().isOk());
+        mockMvc.perform(delete("/films/{id}", films[2]))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(get("/users/{id}/films", user1.getId()).param("limit", "1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(1))
+                .andExpect(jsonPath("$[0].id").value(films[0]))
+                .andExpect(header().string("X-Next-Cursor", String.valueOf(films[0])));
+        mockMvc.perform(get("/users/{id}/films", user1.getId()).param("after", String.valueOf(films[0])))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(1))
+                .andExpect(jsonPath("$[0].id").value(films[3]));
+        mockMvc.perform(get("/users/{id}/films", 999_999))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void shouldRemoveDeletedUserFromFriendsAndLikes() throws Exception {
+        String film = mockMvc.perform(post("/films")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{ \"name\": \"Cascade\", \"description\": \"d\", "
+                                + "\"releaseDate\": \"2000-01-01\", \"duration\": 90 }"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        long filmId = new ObjectMapper().readTree(film).get("id").asLong();
+        mockMvc.perform(put("/films/{id}/like/{userId}", filmId, user1.getId())).andExpect(status().isOk());
+        mockMvc.perform(put("/users/{id}/friends/{friendId}", user1.getId(), user2.getId()))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(delete("/users/{id}", user1.getId()))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(get("/users/{id}/friends", user2.getId()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(0));
+        mockMvc.perform(get("/films").param("after", String.valueOf(filmId - 1)).param("limit", "1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].id").value(filmId))
+                .andExpect(jsonPath("$[0].likes.length()").value(0));
+    }
+}